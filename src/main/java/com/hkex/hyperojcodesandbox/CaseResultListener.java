@@ -0,0 +1,17 @@
+package com.hkex.hyperojcodesandbox;
+
+import com.hkex.hyperojcodesandbox.model.CaseJudgeInfo;
+
+/**
+ * 用例结论监听
+ * 每个用例得出结论（执行完成、命中结果缓存或快速失败跳过）时回调一次，可能在执行用例的线程中并发调用
+ */
+public interface CaseResultListener {
+
+    /**
+     * 用例得出结论
+     * @param index 用例下标（输入顺序）
+     * @param caseResult 用例结论
+     */
+    void onCaseResult(int index, CaseJudgeInfo caseResult);
+}
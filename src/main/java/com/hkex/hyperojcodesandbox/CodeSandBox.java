@@ -14,4 +14,22 @@ public interface CodeSandBox {
      */
     ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest);
 
+    /**
+     * 执行代码，每个用例得出结论时回调监听
+     * 默认在全部执行完成后按输入顺序逐个回调
+     *
+     * @param executeCodeRequest 执行代码请求
+     * @param listener 用例结论监听
+     * @return 执行结果
+     */
+    default ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, CaseResultListener listener) {
+        ExecuteCodeResponse response = executeCode(executeCodeRequest);
+        if (response.getCaseResults() != null) {
+            for (int i = 0; i < response.getCaseResults().size(); i++) {
+                listener.onCaseResult(i, response.getCaseResults().get(i));
+            }
+        }
+        return response;
+    }
+
 }
@@ -1,19 +1,46 @@
 package com.hkex.hyperojcodesandbox;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.hkex.hyperojcodesandbox.cache.ResultCache;
+import com.hkex.hyperojcodesandbox.cache.SingleFlight;
+import com.hkex.hyperojcodesandbox.compare.ExpectedOutput;
+import com.hkex.hyperojcodesandbox.compare.OutputComparator;
+import com.hkex.hyperojcodesandbox.compiler.CompileCache;
+import com.hkex.hyperojcodesandbox.compiler.CompileResult;
+import com.hkex.hyperojcodesandbox.compiler.InMemoryJavaCompiler;
+import com.hkex.hyperojcodesandbox.config.SandboxProperties;
+import com.hkex.hyperojcodesandbox.model.CaseJudgeInfo;
+import com.hkex.hyperojcodesandbox.model.CompileDiagnostic;
 import com.hkex.hyperojcodesandbox.model.ExecuteCodeRequest;
 import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import com.hkex.hyperojcodesandbox.model.ExecuteContext;
 import com.hkex.hyperojcodesandbox.model.ExecuteMessage;
 import com.hkex.hyperojcodesandbox.model.JudgeInfo;
+import com.hkex.hyperojcodesandbox.model.enums.CompareModeEnum;
+import com.hkex.hyperojcodesandbox.model.enums.ExecuteCodeStatusEnum;
+import com.hkex.hyperojcodesandbox.model.enums.InputModeEnum;
+import com.hkex.hyperojcodesandbox.output.OutputBudget;
+import com.hkex.hyperojcodesandbox.runner.CaseResult;
+import com.hkex.hyperojcodesandbox.testdata.CaseHistory;
+import com.hkex.hyperojcodesandbox.testdata.TestCaseInput;
+import com.hkex.hyperojcodesandbox.testdata.TestDataStore;
 import com.hkex.hyperojcodesandbox.utils.ProcessUtils;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
@@ -28,11 +55,52 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
      */
     private static final String GLOBAL_JAVA_CLASS_NAME = "Main.java";
 
+    /**
+     * 用例输入文件在代码目录（或容器工作目录）中的子目录
+     */
+    protected static final String INPUT_DIR = ".input";
+
+    /**
+     * javac进程的编译参数
+     */
+    private static final String JAVAC_OPTIONS = "-source 8 -target 8 -encoding utf-8";
+
     /**
      * 执行超时时间（毫秒）
      */
     private static final long TIME_OUT = 5000L;
 
+    /**
+     * 有CPU时间限制时，墙钟超时为限制的倍数，仅用于兜底（sleep、阻塞等不消耗CPU的程序）
+     */
+    private static final long WALL_TIME_FACTOR = 2L;
+
+    /**
+     * 墙钟超时额外预留的JVM启动时间（毫秒）
+     */
+    private static final long JVM_STARTUP_ALLOWANCE = 1000L;
+
+    @Resource
+    protected SandboxProperties sandboxProperties;
+
+    @Resource
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    @Resource
+    private CompileCache compileCache;
+
+    @Resource
+    private ResultCache resultCache;
+
+    @Resource
+    private SingleFlight singleFlight;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private CaseHistory caseHistory;
+
 
     /**
      * 执行代码
@@ -41,27 +109,126 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
      */
     @Override
     public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
-        List<String> inputList = executeCodeRequest.getInputList();
-        String code = executeCodeRequest.getCode();
+        return executeCode(executeCodeRequest, null);
+    }
 
-        File file = null;
+    /**
+     * 执行代码，每个用例得出结论时立即回调监听
+     * 开启合并执行时，内容相同的并发请求只执行一次并共用结果
+     * @param executeCodeRequest 执行代码请求
+     * @param listener 用例结论监听，为空时不回调
+     * @return 执行结果
+     */
+    @Override
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest, CaseResultListener listener) {
+        ExecuteCodeResponse response = sandboxProperties.isSingleFlight()
+                ? singleFlight.execute(getFlightKey(executeCodeRequest), listener,
+                        flightListener -> doExecuteCode(executeCodeRequest, flightListener))
+                : doExecuteCode(executeCodeRequest, listener);
+        response.setCorrelationId(executeCodeRequest.getCorrelationId());
+        return response;
+    }
 
+    /**
+     * 计算合并执行的键：请求中影响结果的内容（不含关联ID与返回方式）加上沙箱实现与运行环境
+     * @param executeCodeRequest 执行代码请求
+     * @return 键
+     */
+    private String getFlightKey(ExecuteCodeRequest executeCodeRequest) {
+        ExecuteCodeRequest keyRequest = BeanUtil.copyProperties(executeCodeRequest, ExecuteCodeRequest.class);
+        keyRequest.setCorrelationId(null);
+        keyRequest.setStreamResults(null);
+        return DigestUtil.sha256Hex(getClass().getName() + '\0' + getEnvironmentId() + '\0'
+                + JSONUtil.toJsonStr(keyRequest));
+    }
+
+    private ExecuteCodeResponse doExecuteCode(ExecuteCodeRequest executeCodeRequest, CaseResultListener listener) {
+        String code = executeCodeRequest.getCode();
+        List<TestCaseInput> inputList;
+        List<ExpectedOutput> expectedOutputs;
         try {
-            file = saveCode(code);
-            log.info("代码保存成功，路径：{}", file.getAbsolutePath());
+            inputList = getInputs(executeCodeRequest);
+            expectedOutputs = getExpectedOutputs(executeCodeRequest, inputList.size());
+        } catch (Exception e) {
+            return getErrorResponse(e);
+        }
+        boolean compare = expectedOutputs != null;
+
+        //查询用例结果缓存，全部命中时无需编译运行
+        String[] cacheKeys = getResultCacheKeys(executeCodeRequest, inputList, expectedOutputs);
+        ExecuteMessage[] executeMessages = new ExecuteMessage[inputList.size()];
+        List<Integer> pendingIndexes = new ArrayList<>();
+        for (int i = 0; i < inputList.size(); i++) {
+            executeMessages[i] = cacheKeys == null ? null : resultCache.get(cacheKeys[i]);
+            if (executeMessages[i] == null) {
+                pendingIndexes.add(i);
+            } else {
+                notifyCaseResult(listener, i, executeMessages[i]);
+            }
+        }
+        if (pendingIndexes.isEmpty()) {
+            log.info("{}个用例全部命中结果缓存", inputList.size());
+            return getResponse(Arrays.asList(executeMessages), compare);
+        }
+        List<TestCaseInput> pendingInputs = new ArrayList<>(pendingIndexes.size());
+        List<ExpectedOutput> pendingExpectedOutputs = compare ? new ArrayList<>(pendingIndexes.size()) : null;
+        for (Integer index : pendingIndexes) {
+            pendingInputs.add(inputList.get(index));
+            if (compare) {
+                pendingExpectedOutputs.add(expectedOutputs.get(index));
+            }
+        }
 
-            ExecuteMessage compMessage = compCode(file);
-            log.info("编译完成，结果：{}",compMessage.toString());
+        ExecuteContext context = ExecuteContext.builder()
+                .inputList(pendingInputs)
+                .timeLimit(executeCodeRequest.getTimeLimit())
+                .memoryLimit(executeCodeRequest.getMemoryLimit())
+                .outputBudget(new OutputBudget(sandboxProperties.getOutputLimit()))
+                .expectedOutputs(pendingExpectedOutputs)
+                .compareMode(executeCodeRequest.getCompareMode())
+                .floatTolerance(executeCodeRequest.getFloatTolerance())
+                .caseOrder(caseHistory.order(pendingInputs, executeCodeRequest.getCaseOrder() != null
+                        ? executeCodeRequest.getCaseOrder() : sandboxProperties.getCaseOrder()))
+                .failFast(executeCodeRequest.getFailFast() != null
+                        ? executeCodeRequest.getFailFast() : sandboxProperties.isFailFast())
+                .decided(new AtomicBoolean(false))
+                .caseResultListener(listener == null ? null
+                        : (index, caseResult) -> listener.onCaseResult(pendingIndexes.get(index), caseResult))
+                .build();
 
-            if(compMessage.getExitValue() != 0){
-                throw new RuntimeException("编译失败：" + compMessage.getErrorMessage());
-            }
+        File file = null;
 
-            //运行代码
-            List<ExecuteMessage> executeMessageList = runCode(inputList, file);
+        try {
+            CompileResult compileResult = compile(code);
+            if (!compileResult.isSuccess()) {
+                return getCompileErrorResponse(compileResult.getMessage(), compileResult.getDiagnostics());
+            }
+            //把编译产物（可能来自缓存）写入新的代码目录供运行器使用
+            file = saveClasses(compileResult.getClasses());
+            context.setClasses(compileResult.getClasses());
+
+            //运行代码（只运行未命中缓存的用例）
+            List<ExecuteMessage> executeMessageList = runCode(context, file);
+            if (pendingIndexes.size() < inputList.size()) {
+                log.info("{}个用例命中结果缓存，执行其余{}个", inputList.size() - pendingIndexes.size(), pendingIndexes.size());
+            }
+            for (int i = 0; i < pendingIndexes.size(); i++) {
+                ExecuteMessage executeMessage = executeMessageList.get(i);
+                if (executeMessage == null) {
+                    //快速失败时未开始的用例
+                    executeMessage = getSkippedMessage();
+                    notifyCaseResult(listener, pendingIndexes.get(i), executeMessage);
+                } else {
+                    caseHistory.record(pendingInputs.get(i), executeMessage.getTime(), isFailed(executeMessage));
+                }
+                executeMessages[pendingIndexes.get(i)] = executeMessage;
+                if (cacheKeys != null && executeMessage != null && !isFailed(executeMessage)) {
+                    resultCache.put(cacheKeys[pendingIndexes.get(i)], executeMessage);
+                }
+            }
 
             //整理输出结果
-            ExecuteCodeResponse response = getResponse(executeMessageList);
+            ExecuteCodeResponse response = getResponse(Arrays.asList(executeMessages), compare);
 
             return response;
         } catch (Exception e) {
@@ -76,6 +243,53 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
         }
     }
 
+    /**
+     * 获取用例输入：指定题目时引用测试数据仓库中的文件，否则使用请求中携带的输入
+     * @param executeCodeRequest 执行代码请求
+     * @return 用例输入
+     */
+    private List<TestCaseInput> getInputs(ExecuteCodeRequest executeCodeRequest) {
+        if (StrUtil.isNotBlank(executeCodeRequest.getProblemId())) {
+            return testDataStore.getInputs(executeCodeRequest.getProblemId(), executeCodeRequest.getTestDataVersion());
+        }
+        List<TestCaseInput> inputs = new ArrayList<>();
+        for (String input : executeCodeRequest.getInputList()) {
+            inputs.add(TestCaseInput.ofContent(input));
+        }
+        return inputs;
+    }
+
+    /**
+     * 获取各用例的期望输出：请求携带的期望输出或哈希，或指定题目与比较方式时测试数据仓库中的期望输出
+     * @param executeCodeRequest 执行代码请求
+     * @param caseCount 用例数
+     * @return 期望输出，不需要在沙箱内比较时为null
+     */
+    private List<ExpectedOutput> getExpectedOutputs(ExecuteCodeRequest executeCodeRequest, int caseCount) {
+        List<ExpectedOutput> expectedOutputs = null;
+        if (executeCodeRequest.getExpectedOutputList() != null) {
+            expectedOutputs = new ArrayList<>();
+            for (String expectedOutput : executeCodeRequest.getExpectedOutputList()) {
+                expectedOutputs.add(ExpectedOutput.ofContent(expectedOutput));
+            }
+        } else if (executeCodeRequest.getExpectedOutputHashList() != null) {
+            if (executeCodeRequest.getCompareMode() == CompareModeEnum.FLOAT) {
+                throw new RuntimeException("浮点比较不支持以哈希给出期望输出");
+            }
+            expectedOutputs = new ArrayList<>();
+            for (String hash : executeCodeRequest.getExpectedOutputHashList()) {
+                expectedOutputs.add(ExpectedOutput.ofHash(hash));
+            }
+        } else if (StrUtil.isNotBlank(executeCodeRequest.getProblemId()) && executeCodeRequest.getCompareMode() != null) {
+            expectedOutputs = testDataStore.getExpectedOutputs(executeCodeRequest.getProblemId(),
+                    executeCodeRequest.getTestDataVersion());
+        }
+        if (expectedOutputs != null && expectedOutputs.size() != caseCount) {
+            throw new RuntimeException("期望输出数量（" + expectedOutputs.size() + "）与用例数（" + caseCount + "）不一致");
+        }
+        return expectedOutputs;
+    }
+
     /**
      * 保存代码
      * @param code 用户代码
@@ -100,6 +314,84 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
         return userCodeFile;
     }
 
+    /**
+     * 编译代码，相同源码与编译参数直接使用缓存的结果
+     * @param code 用户代码
+     * @return 编译结果
+     */
+    public CompileResult compile(String code){
+        boolean inMemory = inMemoryJavaCompiler.isAvailable();
+        String cacheKey = compileCache.key(code, inMemory ? inMemoryJavaCompiler.getCompilerFlags()
+                : "javac:" + System.getProperty("java.version") + ":" + JAVAC_OPTIONS);
+        CompileResult compileResult = compileCache.get(cacheKey);
+        if (compileResult != null) {
+            log.info("编译缓存命中，结果：{}", compileResult.isSuccess());
+            return compileResult;
+        }
+        if (inMemory) {
+            //进程内编译，源码与类文件都在内存中
+            compileResult = inMemoryJavaCompiler.compile(code);
+            log.info("编译完成，耗时{}ms，结果：{}", compileResult.getTime(), compileResult.isSuccess());
+        } else {
+            compileResult = compileWithJavac(code);
+        }
+        compileCache.put(cacheKey, compileResult);
+        return compileResult;
+    }
+
+    /**
+     * 使用javac进程编译，并读回类文件
+     * @param code 用户代码
+     * @return 编译结果
+     */
+    private CompileResult compileWithJavac(String code){
+        File file = saveCode(code);
+        try {
+            log.info("代码保存成功，路径：{}", file.getAbsolutePath());
+            ExecuteMessage compMessage = compCode(file);
+            log.info("编译完成，结果：{}",compMessage.toString());
+            CompileResult compileResult = new CompileResult();
+            compileResult.setSuccess(compMessage.getExitValue() != null && compMessage.getExitValue() == 0);
+            compileResult.setMessage(compMessage.getErrorMessage());
+            compileResult.setTime(compMessage.getWallTime() == null ? 0 : compMessage.getWallTime());
+            compileResult.setClasses(compileResult.isSuccess() ? readClasses(file.getParentFile()) : new HashMap<>());
+            return compileResult;
+        } finally {
+            clearCodeFile(file);
+        }
+    }
+
+    /**
+     * 读取目录下的所有类
+     * @param codeDir 代码所在目录
+     * @return 类名到字节码的映射
+     */
+    private Map<String, byte[]> readClasses(File codeDir) {
+        Map<String, byte[]> classes = new HashMap<>();
+        String rootPath = codeDir.getAbsolutePath() + File.separator;
+        for (File classFile : FileUtil.loopFiles(codeDir, file -> file.getName().endsWith(".class"))) {
+            String relativePath = StrUtil.removePrefix(classFile.getAbsolutePath(), rootPath);
+            String className = StrUtil.removeSuffix(relativePath, ".class").replace(File.separatorChar, '.');
+            classes.put(className, FileUtil.readBytes(classFile));
+        }
+        return classes;
+    }
+
+    /**
+     * 保存编译好的类
+     * @param classes 类名到字节码的映射
+     * @return 代码目录下的主类源文件路径（源文件本身不写入），运行时使用其所在目录
+     */
+    public File saveClasses(Map<String, byte[]> classes){
+        String userCodeParentPath = System.getProperty("user.dir") + File.separator + GLOBAL_CODE_FILE_PATH
+                + File.separator + UUID.randomUUID();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            String classPath = entry.getKey().replace('.', File.separatorChar) + ".class";
+            FileUtil.writeBytes(entry.getValue(), new File(userCodeParentPath, classPath));
+        }
+        return new File(userCodeParentPath, GLOBAL_JAVA_CLASS_NAME);
+    }
+
     /**
      * 编译代码
      * @param userCodeFile 用户代码文件
@@ -108,14 +400,10 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
     public ExecuteMessage compCode(File userCodeFile){
         //编译代码 javac [compileArgs] [文件路径]
         //也可以传入userCodePath(不建议)
-        String compileCmd = String.format("javac -source 8 -target 8 -encoding utf-8 %s", userCodeFile.getAbsolutePath());
+        String compileCmd = String.format("javac %s %s", JAVAC_OPTIONS, userCodeFile.getAbsolutePath());
         try {
             Process Compileprocess = Runtime.getRuntime().exec(compileCmd);
-            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(Compileprocess, "编译",TIME_OUT);
-            if(executeMessage.getExitValue()!=0){
-                throw new RuntimeException("编译异常");
-            }
-            return executeMessage;
+            return ProcessUtils.runProcessAndGetMessage(Compileprocess, "编译",TIME_OUT);
         } catch (Exception e) {
             //return getErrorResponse(e)
             throw new RuntimeException(e);
@@ -124,11 +412,11 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
 
     /**
      * 运行代码
-     * @param inputList 输入
+     * @param context 运行上下文（输入、限制等）
      * @param userCodeFile 用户代码文件
      * @return 运行结果
      */
-    public abstract List<ExecuteMessage> runCode(List<String> inputList, File userCodeFile);
+    public abstract List<ExecuteMessage> runCode(ExecuteContext context, File userCodeFile);
         //执行代码（小心使用Scanner的程序）
 
 //        List<ExecuteMessage> executeMessageList = new ArrayList<>();
@@ -152,45 +440,341 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
      * @return 整理后的结果
      */
     public ExecuteCodeResponse getResponse(List<ExecuteMessage> executeMessageList){
+        return getResponse(executeMessageList, false);
+    }
+
+    /**
+     * 整理输出结果
+     * @param executeMessageList 运行结果
+     * @param compare 是否已在沙箱内比较输出，比较时不返回输出
+     * @return 整理后的结果
+     */
+    public ExecuteCodeResponse getResponse(List<ExecuteMessage> executeMessageList, boolean compare){
         //整理输出结果
         ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
         List<String> outputList = new ArrayList<>();
+        List<CaseJudgeInfo> caseResults = new ArrayList<>();
+        boolean allPassed = true;
 
+        JudgeInfo judgeInfo = new JudgeInfo();
         long maxTime = 0;
+        long maxCpuTime = 0;
+        long maxWallTime = 0;
         long maxMemory = 0;
         for (ExecuteMessage executeMessage : executeMessageList) {
-            if (StrUtil.isNotBlank(executeMessage.getErrorMessage())) {
-                executeCodeResponse.setMessage(executeMessage.getErrorMessage());
-                //代码有错误
-                executeCodeResponse.setStatus(3);
-                break;
+            caseResults.add(getCaseJudgeInfo(executeMessage));
+            if (!allPassed) {
+                //已出错，后续用例只记录各自的结论
+                continue;
             }
-            outputList.add(executeMessage.getMessage());
-
-            //整理内存时间用量
+            //整理内存时间用量（出错的用例也计入，超时用例的时间供判题参考）
             if(executeMessage.getTime() != null){
                 maxTime = Math.max(executeMessage.getTime(), maxTime);
             }
+            if(executeMessage.getCpuTime() != null){
+                maxCpuTime = Math.max(executeMessage.getCpuTime(), maxCpuTime);
+            }
+            if(executeMessage.getWallTime() != null){
+                maxWallTime = Math.max(executeMessage.getWallTime(), maxWallTime);
+            }
             if(executeMessage.getMemory() != null){
                 maxMemory = Math.max(executeMessage.getMemory(), maxMemory);
             }
+
+            if (ExecuteCodeStatusEnum.SKIPPED.getValue().equals(executeMessage.getStatus())) {
+                //跳过的用例不决定结果
+                continue;
+            }
+            if (isFailed(executeMessage)) {
+                //代码有错误
+                ExecuteCodeStatusEnum statusEnum = ExecuteCodeStatusEnum.getEnumByValue(executeMessage.getStatus());
+                if (statusEnum == null || statusEnum == ExecuteCodeStatusEnum.SUCCESS) {
+                    statusEnum = ExecuteCodeStatusEnum.RUNTIME_ERROR;
+                }
+                executeCodeResponse.setMessage(executeMessage.getErrorMessage());
+                executeCodeResponse.setStatus(statusEnum.getValue());
+                judgeInfo.setMessage(statusEnum.getText());
+                allPassed = false;
+                continue;
+            }
+            if (!compare) {
+                outputList.add(executeMessage.getMessage());
+            }
         }
 
         //判断是否运行成功
-        if(outputList.size() == executeMessageList.size()){
-            executeCodeResponse.setStatus(1);
+        if(allPassed){
+            executeCodeResponse.setStatus(ExecuteCodeStatusEnum.SUCCESS.getValue());
         }
 
         //封装判题信息
-        JudgeInfo judgeInfo = new JudgeInfo();
         judgeInfo.setTime(maxTime);
+        judgeInfo.setCpuTime(maxCpuTime);
+        judgeInfo.setWallTime(maxWallTime);
         judgeInfo.setMemory(maxMemory);
         executeCodeResponse.setOutputList(outputList);
         executeCodeResponse.setJudgeInfo(judgeInfo);
+        executeCodeResponse.setCaseResults(caseResults);
 
         return executeCodeResponse;
     }
 
+    /**
+     * 单个用例的结论
+     * @param executeMessage 运行结果
+     * @return 结论
+     */
+    private CaseJudgeInfo getCaseJudgeInfo(ExecuteMessage executeMessage) {
+        ExecuteCodeStatusEnum statusEnum = ExecuteCodeStatusEnum.SUCCESS;
+        if (isFailed(executeMessage)) {
+            statusEnum = ExecuteCodeStatusEnum.getEnumByValue(executeMessage.getStatus());
+            if (statusEnum == null || statusEnum == ExecuteCodeStatusEnum.SUCCESS) {
+                statusEnum = ExecuteCodeStatusEnum.RUNTIME_ERROR;
+            }
+        }
+        return CaseJudgeInfo.builder()
+                .status(statusEnum.getValue())
+                .message(executeMessage.getErrorMessage())
+                .time(executeMessage.getTime())
+                .memory(executeMessage.getMemory())
+                .build();
+    }
+
+    /**
+     * 按执行顺序取用例下标
+     * @param context 运行上下文
+     * @param position 执行顺序中的位置
+     * @return 用例下标
+     */
+    protected int caseAt(ExecuteContext context, int position) {
+        return context.getCaseOrder() == null ? position : context.getCaseOrder()[position];
+    }
+
+    /**
+     * 快速失败时是否已有用例失败，已失败则不再开始新的用例
+     * @param context 运行上下文
+     * @return 是否停止调度
+     */
+    protected boolean isDecided(ExecuteContext context) {
+        return context.isFailFast() && context.getDecided().get();
+    }
+
+    /**
+     * 用例执行完成，快速失败时记录是否已失败，并通知用例结论监听
+     * @param context 运行上下文
+     * @param index 用例下标
+     * @param executeMessage 运行结果
+     */
+    protected void onCaseFinished(ExecuteContext context, int index, ExecuteMessage executeMessage) {
+        if (context.isFailFast() && executeMessage != null && isFailed(executeMessage)) {
+            context.getDecided().set(true);
+        }
+        notifyCaseResult(context.getCaseResultListener(), index, executeMessage);
+    }
+
+    /**
+     * 通知用例结论监听，监听出错不影响判题
+     * @param listener 用例结论监听，为空时不通知
+     * @param index 用例下标
+     * @param executeMessage 运行结果
+     */
+    private void notifyCaseResult(CaseResultListener listener, int index, ExecuteMessage executeMessage) {
+        if (listener == null || executeMessage == null) {
+            return;
+        }
+        try {
+            listener.onCaseResult(index, getCaseJudgeInfo(executeMessage));
+        } catch (Exception e) {
+            log.warn("用例{}结论通知失败", index, e);
+        }
+    }
+
+    /**
+     * 快速失败时未执行的用例
+     * @return 运行结果
+     */
+    private ExecuteMessage getSkippedMessage() {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setStatus(ExecuteCodeStatusEnum.SKIPPED.getValue());
+        executeMessage.setErrorMessage("已有用例失败，未执行");
+        return executeMessage;
+    }
+
+    /**
+     * 把判题运行器返回的结果转换为执行信息
+     * 运行器返回的是完整输出（已受输出预算约束），需要比较时在收到结果后比较
+     * @param caseResult 用例结果
+     * @param comparator 输出比较器，为null时不比较
+     * @return 执行信息
+     */
+    protected ExecuteMessage toExecuteMessage(CaseResult caseResult, OutputComparator comparator) {
+        ExecuteMessage message = new ExecuteMessage();
+        message.setExitValue(caseResult.exitCode);
+        message.setMessage(caseResult.getStdoutString().trim());
+        message.setErrorMessage(caseResult.getStderrString().trim());
+        message.setCpuTime(caseResult.cpuTime);
+        message.setWallTime(caseResult.wallTime);
+        message.setTime(caseResult.cpuTime);
+        message.setMemory(caseResult.memory);
+        switch (caseResult.status) {
+            case CaseResult.STATUS_TIME_LIMIT_EXCEEDED:
+                message.setStatus(ExecuteCodeStatusEnum.TIME_LIMIT_EXCEEDED.getValue());
+                message.setErrorMessage("执行超时");
+                break;
+            case CaseResult.STATUS_OUTPUT_LIMIT_EXCEEDED:
+                message.setStatus(ExecuteCodeStatusEnum.OUTPUT_LIMIT_EXCEEDED.getValue());
+                message.setErrorMessage("输出超出限制（" + sandboxProperties.getOutputLimit() + "字节）");
+                break;
+            case CaseResult.STATUS_RUNTIME_ERROR:
+                message.setStatus(ExecuteCodeStatusEnum.RUNTIME_ERROR.getValue());
+                if (StrUtil.isBlank(message.getErrorMessage())) {
+                    message.setErrorMessage("程序退出码：" + caseResult.exitCode);
+                }
+                break;
+            default:
+                message.setStatus(ExecuteCodeStatusEnum.SUCCESS.getValue());
+        }
+        if (comparator != null) {
+            comparator.write(caseResult.stdout, 0, caseResult.stdout.length);
+            applyVerdict(message, comparator);
+        }
+        return message;
+    }
+
+    /**
+     * 创建用例的输出比较器
+     * @param context 运行上下文
+     * @param index 用例下标
+     * @return 比较器，不需要比较时为null
+     */
+    protected OutputComparator newComparator(ExecuteContext context, int index) {
+        if (context.getExpectedOutputs() == null) {
+            return null;
+        }
+        return OutputComparator.create(context.getExpectedOutputs().get(index), context.getCompareMode(),
+                context.getFloatTolerance());
+    }
+
+    /**
+     * 根据比较结果填写用例结论，比较时不保留输出
+     * 输出中途已不一致（程序被提前终止）判为答案错误；否则只有运行成功的用例才完成比较
+     * @param executeMessage 运行结果
+     * @param comparator 比较器，为null时不处理
+     */
+    protected void applyVerdict(ExecuteMessage executeMessage, OutputComparator comparator) {
+        if (comparator == null) {
+            return;
+        }
+        executeMessage.setMessage(null);
+        if (comparator.isDiverged() || (!isFailed(executeMessage) && !comparator.finish())) {
+            executeMessage.setStatus(ExecuteCodeStatusEnum.WRONG_ANSWER.getValue());
+            executeMessage.setErrorMessage(comparator.getDiff());
+        }
+    }
+
+    /**
+     * 是否通过标准输入传递用例输入
+     * @return 是否使用标准输入
+     */
+    protected boolean isStdinInput() {
+        return sandboxProperties.getInputMode() == InputModeEnum.STDIN;
+    }
+
+    /**
+     * 获取用例输入文件，由操作系统直接作为用户程序的标准输入，沙箱不再经手输入数据
+     * 测试数据仓库中的输入直接使用仓库文件，请求携带的输入写入代码目录
+     * @param dir 代码目录或容器工作目录
+     * @param index 用例下标
+     * @param input 用例输入
+     * @return 输入文件
+     */
+    protected File getInputFile(File dir, int index, TestCaseInput input) {
+        if (input.isStoreFile()) {
+            return input.getFile();
+        }
+        return FileUtil.writeString(input.getContent(), new File(new File(dir, INPUT_DIR), String.valueOf(index)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 把用例输入拆分为程序参数
+     * @param input 用例输入
+     * @return 程序参数
+     */
+    protected String[] splitArgs(TestCaseInput input) {
+        return input.getContent().split(" ");
+    }
+
+    /**
+     * 用例是否运行失败（非成功状态或有错误输出）
+     * @param executeMessage 运行结果
+     * @return 是否失败
+     */
+    private boolean isFailed(ExecuteMessage executeMessage) {
+        Integer status = executeMessage.getStatus();
+        boolean failed = status != null && !ExecuteCodeStatusEnum.SUCCESS.getValue().equals(status);
+        return failed || StrUtil.isNotBlank(executeMessage.getErrorMessage());
+    }
+
+    /**
+     * 计算各用例的结果缓存键
+     * @param executeCodeRequest 执行代码请求
+     * @param inputList 用例输入
+     * @param expectedOutputs 期望输出，不比较时为null
+     * @return 缓存键，未启用缓存、请求跳过缓存或运行环境未知时为null
+     */
+    private String[] getResultCacheKeys(ExecuteCodeRequest executeCodeRequest, List<TestCaseInput> inputList,
+                                        List<ExpectedOutput> expectedOutputs) {
+        if (!resultCache.isEnabled() || Boolean.TRUE.equals(executeCodeRequest.getBypassCache())) {
+            return null;
+        }
+        String environmentId = getEnvironmentId();
+        if (environmentId == null) {
+            return null;
+        }
+        String codeHash = DigestUtil.sha256Hex(executeCodeRequest.getCode());
+        String[] cacheKeys = new String[inputList.size()];
+        for (int i = 0; i < cacheKeys.length; i++) {
+            //比较输出时缓存的是结论，键中加入期望输出与比较方式
+            String caseKey = inputList.get(i).getCacheKey();
+            if (expectedOutputs != null) {
+                caseKey += '\0' + String.valueOf(executeCodeRequest.getCompareMode()) + '\0'
+                        + executeCodeRequest.getFloatTolerance() + '\0' + expectedOutputs.get(i).getCacheKey();
+            }
+            cacheKeys[i] = resultCache.key(codeHash, caseKey, executeCodeRequest, environmentId);
+        }
+        return cacheKeys;
+    }
+
+    /**
+     * 运行环境标识，运行环境变化后缓存的用例结果不再有效
+     * @return 运行环境标识，无法确定时返回null（不使用结果缓存）
+     */
+    protected String getEnvironmentId() {
+        return "native:" + System.getProperty("java.version");
+    }
+
+    /**
+     * 计算墙钟超时时间
+     * @param timeLimit CPU时间限制(ms)
+     * @return 墙钟超时(ms)
+     */
+    protected long getWallTimeLimit(Long timeLimit) {
+        if (timeLimit == null) {
+            return TIME_OUT;
+        }
+        return timeLimit * WALL_TIME_FACTOR + JVM_STARTUP_ALLOWANCE;
+    }
+
+    /**
+     * 判断是否超出CPU时间限制
+     * @param executeMessage 运行结果
+     * @param timeLimit CPU时间限制(ms)
+     * @return 是否超时
+     */
+    protected boolean isCpuTimeExceeded(ExecuteMessage executeMessage, Long timeLimit) {
+        return timeLimit != null && executeMessage.getCpuTime() != null && executeMessage.getCpuTime() > timeLimit;
+    }
+
     /**
      * 清理代码
      * @param userCodeFile 代码文件
@@ -206,6 +790,24 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
         return true;
     }
 
+    /**
+     * 编译失败的结果
+     * @param message 编译错误信息
+     * @param diagnostics 编译诊断信息，javac进程编译时为null
+     * @return 编译失败结果
+     */
+    private ExecuteCodeResponse getCompileErrorResponse(String message, List<CompileDiagnostic> diagnostics) {
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+        executeCodeResponse.setStatus(ExecuteCodeStatusEnum.COMPILE_ERROR.getValue());
+        executeCodeResponse.setOutputList(new ArrayList<>());
+        executeCodeResponse.setMessage(message);
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage(ExecuteCodeStatusEnum.COMPILE_ERROR.getText());
+        executeCodeResponse.setJudgeInfo(judgeInfo);
+        executeCodeResponse.setDiagnostics(diagnostics);
+        return executeCodeResponse;
+    }
+
     /**
      * 错误处理
      * @param e 错误
@@ -215,7 +817,7 @@ public abstract class JavaCodeSandBoxTemplate implements CodeSandBox{
         ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
 
         // 表示代码沙箱错误
-        executeCodeResponse.setStatus(2);
+        executeCodeResponse.setStatus(ExecuteCodeStatusEnum.SANDBOX_ERROR.getValue());
         executeCodeResponse.setOutputList(new ArrayList<>());
         executeCodeResponse.setMessage(e.getMessage());
         executeCodeResponse.setJudgeInfo(new JudgeInfo());
@@ -1,30 +1,43 @@
 package com.hkex.hyperojcodesandbox;
 
-import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ArrayUtil;
+import cn.hutool.core.util.StrUtil;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.*;
-import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.hkex.hyperojcodesandbox.compare.OutputComparator;
+import com.hkex.hyperojcodesandbox.config.DockerSandboxProperties;
+import com.hkex.hyperojcodesandbox.docker.AgentConnection;
+import com.hkex.hyperojcodesandbox.docker.ContainerPool;
+import com.hkex.hyperojcodesandbox.docker.PooledContainer;
+import com.hkex.hyperojcodesandbox.jvm.JvmProfile;
+import com.hkex.hyperojcodesandbox.model.ExecuteContext;
 import com.hkex.hyperojcodesandbox.model.ExecuteMessage;
+import com.hkex.hyperojcodesandbox.model.enums.ExecuteCodeStatusEnum;
+import com.hkex.hyperojcodesandbox.model.enums.RunModeEnum;
+import com.hkex.hyperojcodesandbox.monitor.CgroupMeasurement;
+import com.hkex.hyperojcodesandbox.monitor.CgroupMonitor;
+import com.hkex.hyperojcodesandbox.output.OutputCapture;
+import com.hkex.hyperojcodesandbox.runner.BatchRunner;
+import com.hkex.hyperojcodesandbox.runner.CaseResult;
+import com.hkex.hyperojcodesandbox.runner.LimitedOutputStream;
+import com.hkex.hyperojcodesandbox.testdata.TestCaseInput;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
 
-import javax.annotation.PostConstruct;
-import java.io.Closeable;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * java沙箱Docker实现
@@ -32,123 +45,365 @@ import java.util.concurrent.atomic.AtomicLong;
 @Component
 @Slf4j
 public class JavaDockerCodeSandBoxTemplateImpl extends JavaCodeSandBoxTemplate {
-    private static final long TIME_OUT = 5000L;
+    /**
+     * 批量模式下每个结果帧除输出外的最大字节数
+     */
+    private static final int BATCH_FRAME_OVERHEAD = 64 * 1024;
+
+    /**
+     * 批量模式输入清单的文件名前缀
+     */
+    private static final String BATCH_MANIFEST_PREFIX = "batch-";
 
-    private static final long MEMORY_LIMIT = 100 * 1000 * 1000L;
+    /**
+     * 等待判题代理响应时在墙钟时间限制之外额外预留的时间（毫秒）
+     */
+    private static final long AGENT_RESPONSE_SLACK = 2000L;
 
+    @Resource
     private DockerClient dockerClient;
 
-    private static final String IMAGE = "openjdk:8-jdk-alpine3.9";
+    @Resource
+    private ContainerPool containerPool;
+
+    @Resource
+    private DockerSandboxProperties dockerSandboxProperties;
 
-    private String seccompProfile;
+    @Resource
+    private CgroupMonitor cgroupMonitor;
+
+    @Resource
+    private JvmProfile jvmProfile;
 
     /**
-     * 初始化Docker客户端和安全配置
+     * 并行执行用例的线程池，并发度受容器池容量约束
      */
-    @PostConstruct
-    public void init() {
-        // 初始化Docker客户端（单例复用）
-        this.dockerClient = DockerClientBuilder.getInstance().build();
-        // 加载并校验安全配置
-        this.seccompProfile = ResourceUtil.readUtf8Str("profile.json");
-        if (this.seccompProfile.isEmpty()) {
-            throw new RuntimeException("安全配置文件profile.json为空");
-        }
-        log.info("Docker代码沙箱初始化完成，镜像:{}", IMAGE);
+    private final ExecutorService caseExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "judge-case");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 关闭用例线程池
+     */
+    @PreDestroy
+    public void destroy() {
+        caseExecutor.shutdownNow();
+    }
+
+    /**
+     * 以镜像ID与运行方式标识运行环境
+     * @return 运行环境标识，镜像未就绪时为null
+     */
+    @Override
+    protected String getEnvironmentId() {
+        String imageId = containerPool.getImageId();
+        return imageId == null ? null : "docker:" + imageId + ":" + dockerSandboxProperties.getRunMode();
     }
 
     /**
      * 运行代码
-     * @param inputList 输入
+     * @param context 运行上下文
      * @param userCodeFile 用户代码文件
      * @return 执行结果
      */
     @Override
-    public List<ExecuteMessage> runCode(List<String> inputList, File userCodeFile) {
-        //创建容器，把文件赋值到容器内
-        String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        String containerId = null;
+    public List<ExecuteMessage> runCode(ExecuteContext context, File userCodeFile) {
+        List<TestCaseInput> inputList = context.getInputList();
+        //从容器池租借容器，把编译产物放入容器工作目录
+        List<PooledContainer> containers = new ArrayList<>();
 
         try {
-            pullImage();
-
-            containerId = createContainer(userCodeParentPath);
-
-            //启动容器执行代码
-
-            dockerClient.startContainerCmd(containerId).exec();
-            log.debug("容器{}启动成功", containerId);
+            containers.add(containerPool.lease());
+            //并行模式下额外的容器只取空闲的，不为此等待或新建
+            int parallelism = Math.min(dockerSandboxProperties.getParallelism(), inputList.size());
+            while (containers.size() < parallelism) {
+                PooledContainer extra = containerPool.tryLease();
+                if (extra == null) {
+                    break;
+                }
+                containers.add(extra);
+            }
+            if (dockerSandboxProperties.getRunMode() == RunModeEnum.AGENT) {
+                //代理模式直接把类字节码发给容器内的代理，无需写入工作目录
+                for (PooledContainer container : containers) {
+                    container.getAgentConnection().loadClasses(context.getClasses(), AGENT_RESPONSE_SLACK);
+                }
+            } else {
+                for (PooledContainer container : containers) {
+                    containerPool.loadCode(container, userCodeFile.getParentFile());
+                }
+            }
 
-            //开始编译执行代码
-            return executeAllInputs(containerId, inputList);
+            //开始执行代码
+            return executeAllInputs(containers, context);
 
         } catch (Exception e) {
             log.warn("代码执行异常", e);
             return null;
         }finally {
-            if (containerId != null) {
-                log.info("准备清理容器{}", containerId);
-                cleanupContainer(containerId);
+            for (PooledContainer container : containers) {
+                log.info("归还容器{}", container.getContainerId());
+                containerPool.release(container);
             }
         }
     }
 
     /**
      * 执行所有输入
-     * @param containerId 容器id
-     * @param inputList 输入
+     * 每个容器内的用例顺序执行，多个容器之间并行，结果按输入顺序返回
+     * @param containers 容器
+     * @param context 运行上下文
      * @return 执行结果
      */
-    private List<ExecuteMessage> executeAllInputs(String containerId, List<String> inputList){
-        //docker exec <Container>
-        List<ExecuteMessage> resultList = new ArrayList<>(inputList.size());
-        //监测内存
-        //获取占用的内存
-        try(StatsCmd statsCmd = dockerClient.statsCmd(containerId)){
-            AtomicLong maxMemory = new AtomicLong(0);
-            statsCmd.exec(new ResultCallback<Statistics>() {
-                @Override
-                public void onNext(Statistics stats) {
-                    long memoryUsage = stats.getMemoryStats().getUsage();
-                    System.out.println("内存占用：" + memoryUsage);
-                    if (memoryUsage > maxMemory.get()) {
-                        maxMemory.set(memoryUsage);
-                    }
+    private List<ExecuteMessage> executeAllInputs(List<PooledContainer> containers, ExecuteContext context){
+        int caseCount = context.getInputList().size();
+        ExecuteMessage[] results = new ExecuteMessage[caseCount];
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        RunModeEnum runMode = dockerSandboxProperties.getRunMode();
+        List<Runnable> tasks = new ArrayList<>(containers.size());
+        for (int i = 0; i < containers.size(); i++) {
+            PooledContainer container = containers.get(i);
+            if (runMode == RunModeEnum.BATCH) {
+                //批量模式下每个容器预先分到固定的一组用例
+                List<Integer> indexes = new ArrayList<>();
+                for (int position = i; position < caseCount; position += containers.size()) {
+                    indexes.add(caseAt(context, position));
                 }
-                @Override
-                public void close() throws IOException {}
-                @Override
-                public void onStart(Closeable closeable) {}
-                @Override
-                public void onError(Throwable throwable) {
-                    log.warn("容器{}内存监控异常", containerId, throwable);
+                tasks.add(() -> executeBatch(container, context, indexes, containers.size(), results));
+            } else if (runMode == RunModeEnum.AGENT) {
+                tasks.add(() -> executeInAgent(container, context, nextIndex, containers.size(), results));
+            } else {
+                tasks.add(() -> executeInContainer(container, context, nextIndex, results));
+            }
+        }
+        if (tasks.size() == 1) {
+            tasks.get(0).run();
+            return Arrays.asList(results);
+        }
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            futures.add(caseExecutor.submit(task));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("执行输入用例被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("执行输入用例失败", e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 在一个容器内依次领取并执行用例
+     * @param container 容器
+     * @param context 运行上下文
+     * @param nextIndex 执行顺序中下一个待执行的位置（多个容器共享）
+     * @param results 执行结果
+     */
+    private void executeInContainer(PooledContainer container, ExecuteContext context, AtomicInteger nextIndex,
+                                    ExecuteMessage[] results){
+        //docker exec <Container>
+        //按用例读取容器cgroup统计内存与CPU时间
+        File cgroupDir = cgroupMonitor.resolveContainerCgroup(container.getContainerId());
+        List<TestCaseInput> inputList = context.getInputList();
+        int position;
+        while (!isDecided(context) && (position = nextIndex.getAndIncrement()) < inputList.size()) {
+            int index = caseAt(context, position);
+            results[index] = executeSingleInput(container, index, inputList.get(index), cgroupDir, context);
+            onCaseFinished(context, index, results[index]);
+        }
+    }
+
+    /**
+     * 代理模式：通过容器内常驻的判题代理依次领取并执行用例
+     * @param container 容器
+     * @param context 运行上下文
+     * @param nextIndex 执行顺序中下一个待执行的位置（多个容器共享）
+     * @param containerCount 参与执行的容器数，用于平分输出预算
+     * @param results 执行结果
+     */
+    private void executeInAgent(PooledContainer container, ExecuteContext context, AtomicInteger nextIndex,
+                                int containerCount, ExecuteMessage[] results) {
+        AgentConnection connection = container.getAgentConnection();
+        Long timeLimit = context.getTimeLimit();
+        long wallTimeLimit = getWallTimeLimit(timeLimit);
+        List<TestCaseInput> inputList = context.getInputList();
+        int position;
+        while (!isDecided(context) && (position = nextIndex.getAndIncrement()) < inputList.size()) {
+            int index = caseAt(context, position);
+            long outputLimit = context.getOutputBudget().getRemaining() / containerCount;
+            try {
+                String[] args = new String[0];
+                String stdinPath = "";
+                if (isStdinInput()) {
+                    stdinPath = containerInputPath(container, index, inputList.get(index));
+                } else {
+                    args = splitArgs(inputList.get(index));
                 }
-                @Override
-                public void onComplete() {}
-            });
-            for(String input : inputList){
-                ExecuteMessage message = executeSingleInput(containerId, input, maxMemory);
-                resultList.add(message);
+                CaseResult caseResult = connection.runCase(index, args, stdinPath,
+                        timeLimit == null ? -1 : timeLimit, wallTimeLimit, outputLimit,
+                        wallTimeLimit + AGENT_RESPONSE_SLACK);
+                context.getOutputBudget().acquire(caseResult.stdout.length + caseResult.stderr.length);
+                results[index] = toExecuteMessage(caseResult, newComparator(context, index));
+            } catch (IOException e) {
+                log.error("容器{}判题代理执行失败", container.getContainerId(), e);
+                ExecuteMessage message = new ExecuteMessage();
+                message.setStatus(ExecuteCodeStatusEnum.RUNTIME_ERROR.getValue());
+                message.setErrorMessage("执行失败: " + e.getMessage());
+                results[index] = message;
+            }
+            onCaseFinished(context, index, results[index]);
+        }
+    }
+
+    /**
+     * 批量模式：一次exec启动一个JVM，在其中依次运行分到的所有用例
+     * 用例输入文件的清单写入工作目录，结果由BatchRunner以帧的形式写回标准输出，帧分隔符通过标准输入传给BatchRunner
+     * @param container 容器
+     * @param context 运行上下文
+     * @param indexes 分到的用例下标
+     * @param containerCount 参与执行的容器数，用于平分输出预算
+     * @param results 执行结果
+     */
+    private void executeBatch(PooledContainer container, ExecuteContext context, List<Integer> indexes,
+                              int containerCount, ExecuteMessage[] results) {
+        String containerId = container.getContainerId();
+        Long timeLimit = context.getTimeLimit();
+        long wallTimeLimit = getWallTimeLimit(timeLimit);
+        long outputBudget = context.getOutputBudget().getRemaining() / containerCount;
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        StringBuilder manifest = new StringBuilder();
+        for (Integer index : indexes) {
+            manifest.append(index).append('\t')
+                    .append(containerInputPath(container, index, context.getInputList().get(index))).append('\n');
+        }
+        String manifestName = BATCH_MANIFEST_PREFIX + UUID.randomUUID();
+        FileUtil.writeString(manifest.toString(), new File(new File(container.getWorkspace(), INPUT_DIR), manifestName),
+                StandardCharsets.UTF_8);
+        List<String> cmd = new ArrayList<>();
+        cmd.add("java");
+        cmd.addAll(jvmProfile.dockerOptions(context.getMemoryLimit()));
+        cmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", ContainerPool.CONTAINER_RUNNER_PATH,
+                BatchRunner.class.getName(), ContainerPool.CONTAINER_CODE_PATH,
+                ContainerPool.CONTAINER_CODE_PATH + "/" + INPUT_DIR + "/" + manifestName,
+                String.valueOf(timeLimit == null ? -1 : timeLimit), String.valueOf(wallTimeLimit),
+                String.valueOf(outputBudget), isStdinInput() ? "stdin" : "args", context.isFailFast() ? "failfast" : "all"));
+        String[] cmdArray = cmd.toArray(new String[0]);
+
+        // BatchRunner按输出预算分别约束标准输出与错误输出，这里再为每个帧头留出空间
+        LimitedOutputStream stdout = new LimitedOutputStream(outputBudget * 2 + indexes.size() * BATCH_FRAME_OVERHEAD);
+        LimitedOutputStream stderr = new LimitedOutputStream(BATCH_FRAME_OVERHEAD);
+        String batchError = null;
+        try {
+            ExecCreateCmdResponse cmdResponse = dockerClient.execCreateCmd(containerId)
+                    .withCmd(cmdArray)
+                    .withAttachStdin(true)
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            boolean completed = dockerClient.execStartCmd(cmdResponse.getId())
+                    .withStdIn(new ByteArrayInputStream((boundary + "\n").getBytes(StandardCharsets.US_ASCII)))
+                    .exec(new ResultCallback.Adapter<Frame>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            byte[] payload = frame.getPayload();
+                            (frame.getStreamType() == StreamType.STDERR ? stderr : stdout)
+                                    .write(payload, 0, payload.length);
+                        }
+                    })
+                    .awaitCompletion(wallTimeLimit * indexes.size(), TimeUnit.MILLISECONDS);
+            if (!completed) {
+                containerPool.killProcesses(containerId);
+                batchError = "批量运行超时";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batchError = "执行被中断: " + e.getMessage();
+        } catch (Exception e) {
+            log.error("容器{}批量执行异常", containerId, e);
+            batchError = "执行失败: " + e.getMessage();
+        }
 
+        try {
+            for (CaseResult caseResult : CaseResult.readAll(stdout.toByteArray(), boundary.getBytes(StandardCharsets.US_ASCII))) {
+                context.getOutputBudget().acquire(caseResult.stdout.length + caseResult.stderr.length);
+                results[caseResult.index] = toExecuteMessage(caseResult, newComparator(context, caseResult.index));
+                onCaseFinished(context, caseResult.index, results[caseResult.index]);
+            }
+        } catch (IOException e) {
+            log.warn("容器{}批量结果解析不完整", containerId, e);
+        }
+        // 运行器异常退出（如JVM内存溢出）时，没有结果的用例记为运行错误
+        String stderrMessage = new String(stderr.toByteArray(), StandardCharsets.UTF_8).trim();
+        for (Integer index : indexes) {
+            if (results[index] == null && !(batchError == null && isDecided(context))) {
+                // 快速失败时运行器在失败用例后停止，其余用例留空记为跳过
+                ExecuteMessage message = new ExecuteMessage();
+                message.setStatus(ExecuteCodeStatusEnum.RUNTIME_ERROR.getValue());
+                message.setErrorMessage(batchError != null ? batchError : "批量运行异常: " + stderrMessage);
+                results[index] = message;
+                onCaseFinished(context, index, message);
             }
-        }catch (Exception e){
-            throw new RuntimeException("执行输入用例失败", e);
         }
-        return resultList;
+    }
+
+    /**
+     * 准备用例输入文件，返回其在容器内的路径
+     * 测试数据仓库以只读方式挂载在容器内，仓库中的输入直接引用，请求携带的输入写入工作目录
+     * @param container 容器
+     * @param index 用例下标
+     * @param input 用例输入
+     * @return 路径
+     */
+    private String containerInputPath(PooledContainer container, int index, TestCaseInput input) {
+        if (input.isStoreFile()) {
+            return ContainerPool.CONTAINER_TEST_DATA_PATH + "/" + input.getStorePath();
+        }
+        getInputFile(container.getWorkspace(), index, input);
+        return ContainerPool.CONTAINER_CODE_PATH + "/" + INPUT_DIR + "/" + index;
     }
 
     /**
      * 执行单个输入
-     * @param containerId 容器id
+     * @param container 容器
+     * @param index 用例下标
      * @param input 输入
-     * @param maxMemory 最大内存
+     * @param cgroupDir 容器cgroup目录，为null时不统计内存与CPU时间
+     * @param context 运行上下文
      * @return 执行结果
      */
-    private ExecuteMessage executeSingleInput(String containerId, String input, AtomicLong maxMemory) {
+    private ExecuteMessage executeSingleInput(PooledContainer container, int index, TestCaseInput input, File cgroupDir,
+                                              ExecuteContext context) {
+        String containerId = container.getContainerId();
+        Long timeLimit = context.getTimeLimit();
+        long wallTimeLimit = getWallTimeLimit(timeLimit);
         ExecuteMessage message = new ExecuteMessage();
         StopWatch stopWatch = new StopWatch();
-        String[] inputArgs = input.split(" ");
-        String[] cmdArray = ArrayUtil.append(new String[]{"java","-cp","/code","Main"}, inputArgs);
+        List<String> cmd = new ArrayList<>();
+        cmd.add("java");
+        cmd.addAll(jvmProfile.dockerOptions(context.getMemoryLimit()));
+        cmd.addAll(Arrays.asList("-cp", ContainerPool.CONTAINER_CODE_PATH, "Main"));
+        String[] cmdArray;
+        if (isStdinInput()) {
+            // docker exec附加的标准输入在写完后不会关闭，程序读不到EOF，改由shell把输入文件重定向为标准输入
+            cmdArray = new String[]{"sh", "-c", "exec " + StrUtil.join(" ", cmd) + " < "
+                    + containerInputPath(container, index, input)};
+        } else {
+            cmdArray = ArrayUtil.append(cmd.toArray(new String[0]), splitArgs(input));
+        }
+        OutputComparator comparator = newComparator(context, index);
+        OutputCapture output = new OutputCapture(context.getOutputBudget(), StandardCharsets.UTF_8);
+        OutputCapture error = new OutputCapture(context.getOutputBudget(), StandardCharsets.UTF_8);
         try{
             //创建执行命令
             ExecCreateCmdResponse cmdResponse = dockerClient.execCreateCmd(containerId)
@@ -168,10 +423,11 @@ public class JavaDockerCodeSandBoxTemplateImpl extends JavaCodeSandBoxTemplate {
             // 执行结果回调
             // 判断是否超时
             AtomicBoolean isTimeout = new AtomicBoolean(true);
-            StringBuilder output = new StringBuilder();
-            StringBuilder error = new StringBuilder();
+            AtomicBoolean isOverflow = new AtomicBoolean(false);
+            AtomicBoolean isWrong = new AtomicBoolean(false);
 
-            ExecStartResultCallback execCallback = new ExecStartResultCallback(){
+            // 不调用ExecStartResultCallback.onNext，它会为每一帧生成调试字符串
+            ResultCallback.Adapter<Frame> execCallback = new ResultCallback.Adapter<Frame>(){
                 @Override
                 public void onComplete() {
                     isTimeout.set(false); // 执行完成，未超时
@@ -180,34 +436,74 @@ public class JavaDockerCodeSandBoxTemplateImpl extends JavaCodeSandBoxTemplate {
 
                 @Override
                 public void onNext(Frame frame) {
-                    if (frame.getStreamType() == StreamType.STDERR) {
-                        error.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
-                    } else {
-                        output.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+                    byte[] payload = frame.getPayload();
+                    boolean stdout = frame.getStreamType() != StreamType.STDERR;
+                    if (stdout && comparator != null) {
+                        // 比较时标准输出只计入预算、不收集，与期望输出不一致时立即终止
+                        if (!comparator.write(payload, 0, payload.length)) {
+                            isWrong.set(true);
+                            closeQuietly();
+                        } else if (context.getOutputBudget().acquire(payload.length) < payload.length) {
+                            isOverflow.set(true);
+                            closeQuietly();
+                        }
+                        return;
+                    }
+                    if (!(stdout ? output : error).write(payload, 0, payload.length)) {
+                        // 输出超限，立即断开输出流，进程由调用方清理
+                        isOverflow.set(true);
+                        closeQuietly();
+                    }
+                }
+
+                private void closeQuietly() {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        log.debug("关闭输出流失败", e);
                     }
-                    super.onNext(frame);
                 }
             };
 
-            stopWatch.start();
-            dockerClient
-                    .execStartCmd(resId)
-                    .exec(execCallback)
-                    .awaitCompletion(TIME_OUT, TimeUnit.MILLISECONDS);
-            stopWatch.stop();
-
-            // 填充结果
-            message.setTime(stopWatch.getLastTaskTimeMillis());
-            message.setMemory(maxMemory.get());
-            message.setMessage(output.toString().trim());
-            message.setErrorMessage(error.toString().trim());
-
-            // 处理超时情况
-            if (isTimeout.get()) {
-                message.setErrorMessage("执行超时（超过" + TIME_OUT + "ms）");
-                log.warn("容器{}执行超时", containerId);
+            try (CgroupMeasurement measurement = cgroupMonitor.start(cgroupDir)) {
+                stopWatch.start();
+                dockerClient
+                        .execStartCmd(resId)
+                        .exec(execCallback)
+                        .awaitCompletion(wallTimeLimit, TimeUnit.MILLISECONDS);
+                stopWatch.stop();
+                // 超时或输出超限的进程仍在运行，先清理再读取CPU时间
+                if (isTimeout.get() || isOverflow.get() || isWrong.get()) {
+                    containerPool.killProcesses(containerId);
+                }
+                if (measurement != null) {
+                    message.setMemory(measurement.finishMemory());
+                    message.setCpuTime(measurement.finishCpuTime());
+                }
             }
 
+            // 填充结果，判题时间只使用CPU时间，不受Docker API往返与宿主机负载影响
+            message.setWallTime(stopWatch.getLastTaskTimeMillis());
+            message.setTime(message.getCpuTime());
+            message.setMessage(output.finish().trim());
+            message.setErrorMessage(error.finish().trim());
+
+            // 处理输出超限与超时情况，输出已不一致的程序是被提前终止的
+            if (isWrong.get()) {
+                log.info("容器{}输出与期望不一致，已提前终止", containerId);
+            } else if (isOverflow.get()) {
+                message.setStatus(ExecuteCodeStatusEnum.OUTPUT_LIMIT_EXCEEDED.getValue());
+                message.setErrorMessage("输出超出限制（" + sandboxProperties.getOutputLimit() + "字节）");
+                log.warn("容器{}输出超限", containerId);
+            } else if (isTimeout.get()) {
+                message.setStatus(ExecuteCodeStatusEnum.TIME_LIMIT_EXCEEDED.getValue());
+                message.setErrorMessage("执行超时（超过" + wallTimeLimit + "ms）");
+                log.warn("容器{}执行超时", containerId);
+            } else if (isCpuTimeExceeded(message, timeLimit)) {
+                message.setStatus(ExecuteCodeStatusEnum.TIME_LIMIT_EXCEEDED.getValue());
+                message.setErrorMessage("CPU时间超出限制（" + message.getCpuTime() + "ms > " + timeLimit + "ms）");
+            }
+            applyVerdict(message, comparator);
 
         } catch (InterruptedException e ) {
             message.setErrorMessage("执行被中断: " + e.getMessage());
@@ -215,106 +511,12 @@ public class JavaDockerCodeSandBoxTemplateImpl extends JavaCodeSandBoxTemplate {
         }catch (Exception e) {
             message.setErrorMessage("执行失败: " + e.getMessage());
             log.error("容器{}执行命令异常", containerId, e);
+        } finally {
+            output.close();
+            error.close();
         }
 
         return message;
     }
 
-    /**
-     * 创建容器
-     * @param userCodeParentPath 用户代码的父目录
-     * @return 容器ID
-     */
-    private String createContainer(String userCodeParentPath) {
-        //创建容器
-        try {
-            HostConfig hostConfig = new HostConfig();
-            //挂载
-            hostConfig.setBinds(new Bind(userCodeParentPath, new Volume("/code")));
-            //内存限制
-            hostConfig.withMemory(MEMORY_LIMIT);
-            //内存限制交换区
-            hostConfig.withMemorySwap(0L);
-            //创建安全策略
-            hostConfig.withSecurityOpts(Arrays.asList("seccomp=" + seccompProfile));
-            //cpu限制
-            hostConfig.withCpuCount(1L);
-            //启动容器
-            CreateContainerCmd containerCmd = dockerClient.createContainerCmd(IMAGE)
-                    .withHostConfig(hostConfig)
-                    .withNetworkDisabled(true)
-                    .withReadonlyRootfs(true)
-                    .withAttachStdin(true)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .withTty(true);
-
-            CreateContainerResponse containerResponse = containerCmd.exec();
-            String containerId = containerResponse.getId();
-            log.info("创建容器成功，ID:{}", containerId);
-            return containerId;
-        }catch (Exception e) {
-            throw new RuntimeException("创建容器失败", e);
-        }
-    }
-
-    /**
-     * 拉取镜像
-     */
-    private void pullImage() {
-        try{
-            ListImagesCmd listImagesCmd = dockerClient.listImagesCmd().withImageNameFilter(IMAGE);
-            if (!listImagesCmd.exec().isEmpty()) {
-                log.info("镜像{}已存在，无需拉取", IMAGE);
-                return;
-            }
-            //拉取镜像
-            PullImageCmd pullImageCmd = dockerClient.pullImageCmd(IMAGE);
-            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback(){
-                @Override
-                public void onNext(PullResponseItem item) {
-                    log.debug("镜像下载" + item.getStatus());
-                    super.onNext(item);
-                }
-            };
-            pullImageCmd
-                    .exec(pullImageResultCallback)
-                    .awaitCompletion();
-            log.info("下载完成");
-        }catch (InterruptedException e) {
-            log.error("拉取镜像异常");
-            throw new RuntimeException(e);
-        }
-    }
-
-    /**
-     * 清理容器
-     * @param containerId 容器ID
-     */
-    private void cleanupContainer(String containerId) {
-        try {
-            // 停止容器
-            dockerClient.stopContainerCmd(containerId)
-                    .withTimeout(3) // 3秒超时
-                    .exec();
-            log.debug("容器{}已停止", containerId);
-        } catch (NotFoundException e) {
-            log.warn("容器{}不存在，无需停止", containerId);
-        } catch (Exception e) {
-            log.error("停止容器{}失败", containerId, e);
-        }
-
-        try {
-            // 删除容器
-            dockerClient.removeContainerCmd(containerId)
-                    .withForce(true)
-                    .exec();
-            log.debug("容器{}已删除", containerId);
-        } catch (NotFoundException e) {
-            log.warn("容器{}不存在，无需删除", containerId);
-        } catch (Exception e) {
-            log.error("删除容器{}失败", containerId, e);
-        }
-    }
-
 }
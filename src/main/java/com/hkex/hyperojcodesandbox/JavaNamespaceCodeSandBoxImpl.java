@@ -0,0 +1,206 @@
+package com.hkex.hyperojcodesandbox;
+
+import cn.hutool.core.util.StrUtil;
+import com.hkex.hyperojcodesandbox.compare.OutputComparator;
+import com.hkex.hyperojcodesandbox.config.NamespaceSandboxProperties;
+import com.hkex.hyperojcodesandbox.jvm.CdsArchiveManager;
+import com.hkex.hyperojcodesandbox.jvm.JvmProfile;
+import com.hkex.hyperojcodesandbox.model.ExecuteContext;
+import com.hkex.hyperojcodesandbox.model.ExecuteMessage;
+import com.hkex.hyperojcodesandbox.model.enums.ExecuteCodeStatusEnum;
+import com.hkex.hyperojcodesandbox.monitor.CgroupMeasurement;
+import com.hkex.hyperojcodesandbox.namespace.CgroupLeaf;
+import com.hkex.hyperojcodesandbox.namespace.CgroupLeafFactory;
+import com.hkex.hyperojcodesandbox.testdata.TestCaseInput;
+import com.hkex.hyperojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * java命名空间实现
+ * 不经过Docker，每个用例在新的user/mount/pid/net命名空间中启动：根目录为tmpfs，只读挂载系统库、JDK与代码目录，
+ * 没有网络；进程放入独占的cgroup v2叶子节点，按memory.max、pids.max、cpu.max限制资源，无法创建叶子节点时不执行
+ */
+@Component
+@Slf4j
+public class JavaNamespaceCodeSandBoxImpl extends JavaCodeSandBoxTemplate {
+
+    /**
+     * 沙箱内JDK的挂载位置
+     */
+    public static final String SANDBOX_JDK_PATH = "/jdk";
+
+    /**
+     * 沙箱内代码目录的挂载位置
+     */
+    public static final String SANDBOX_CODE_PATH = "/code";
+
+    /**
+     * 沙箱内类共享归档目录的挂载位置
+     */
+    public static final String SANDBOX_CDS_PATH = "/cds";
+
+    /**
+     * 代码目录下用作沙箱根目录挂载点的目录
+     */
+    private static final String ROOT_DIR = ".root";
+
+    /**
+     * 沙箱内运行用户程序的用户与组（nobody），不是命名空间内的root
+     */
+    private static final int SANDBOX_UID = 65534;
+
+    /**
+     * 启动脚本：把自身加入cgroup叶子节点后进入新的命名空间
+     * 参数：cgroup目录 初始化脚本 初始化脚本的参数...
+     */
+    private static final String LAUNCH_SCRIPT = String.join("\n",
+            "cg=\"$1\"; setup=\"$2\"; shift 2",
+            "echo $$ > \"$cg/cgroup.procs\" || exit 125",
+            "exec unshare --user --map-root-user --mount --pid --fork --net --kill-child sh -c \"$setup\" ns-setup \"$@\"");
+
+    /**
+     * 初始化脚本：在新的命名空间内搭建只读根目录，用pivot_root切换进去并卸载原根目录，宿主机的挂载树在沙箱内不可见
+     * 最后再进入一层user/mount命名空间，使挂载被锁定，用户程序无法重新以读写方式挂载；
+     * 用户程序在这层命名空间中以非root用户运行，setpriv清空能力边界集与继承、环境能力并设置no_new_privs，没有任何能力
+     * 参数：根目录 JDK目录 代码目录 归档目录（可为空） tmpfs大小 命令...
+     */
+    private static final String SETUP_SCRIPT = String.join("\n",
+            "set -e",
+            "root=\"$1\"; jdk=\"$2\"; code=\"$3\"; cds=\"$4\"; size=\"$5\"; shift 5",
+            "mount -t tmpfs -o size=\"$size\",mode=755 tmpfs \"$root\"",
+            "robind() { mkdir -p \"$root$2\"; mount --bind \"$1\" \"$root$2\";"
+                    + " mount -o remount,bind,ro \"$root$2\" 2>/dev/null || mount -o remount,bind,ro,nosuid,nodev \"$root$2\"; }",
+            "for d in /usr /lib /lib64 /lib32 /bin /sbin; do",
+            "  if [ -L \"$d\" ]; then ln -s \"$(readlink \"$d\")\" \"$root$d\"",
+            "  elif [ -d \"$d\" ]; then robind \"$d\" \"$d\"; fi",
+            "done",
+            "robind \"$jdk\" " + SANDBOX_JDK_PATH,
+            "robind \"$code\" " + SANDBOX_CODE_PATH,
+            "if [ -n \"$cds\" ]; then robind \"$cds\" " + SANDBOX_CDS_PATH + "; fi",
+            "mkdir \"$root/proc\" \"$root/tmp\" \"$root/dev\"",
+            "mount -t proc proc \"$root/proc\"",
+            "mount -t tmpfs -o size=\"$size\" tmpfs \"$root/tmp\"",
+            "for f in null zero random urandom; do touch \"$root/dev/$f\"; mount --bind \"/dev/$f\" \"$root/dev/$f\"; done",
+            "cd \"$root\"",
+            "pivot_root . .",
+            "umount -l .",
+            "cd /",
+            "mount -o remount,bind,ro /",
+            "exec unshare --user --map-user=" + SANDBOX_UID + " --map-group=" + SANDBOX_UID + " --mount --keep-caps"
+                    + " setpriv --no-new-privs --bounding-set -all --inh-caps -all --ambient-caps -all \"$@\"");
+
+    @Resource
+    private NamespaceSandboxProperties namespaceSandboxProperties;
+
+    @Resource
+    private CgroupLeafFactory cgroupLeafFactory;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    @Resource
+    private JvmProfile jvmProfile;
+
+    @Override
+    protected String getEnvironmentId() {
+        return "namespace:" + getJdkHome();
+    }
+
+    @Override
+    public List<ExecuteMessage> runCode(ExecuteContext context, File userCodeFile) {
+        Long timeLimit = context.getTimeLimit();
+        File codeDir = userCodeFile.getParentFile();
+        File rootDir = new File(codeDir, ROOT_DIR);
+        if (!rootDir.isDirectory() && !rootDir.mkdirs()) {
+            throw new RuntimeException("创建沙箱根目录失败");
+        }
+        String archive = cdsArchiveManager.getNativeArchive();
+        List<String> baseCmd = new ArrayList<>(Arrays.asList("sh", "-c", LAUNCH_SCRIPT, "ns-launch"));
+        int cgroupArgIndex = baseCmd.size();
+        baseCmd.add("");
+        baseCmd.addAll(Arrays.asList(SETUP_SCRIPT, rootDir.getAbsolutePath(), getJdkHome(),
+                codeDir.getAbsolutePath(), archive == null ? "" : new File(archive).getParent(),
+                namespaceSandboxProperties.getTmpSize()));
+        baseCmd.add(SANDBOX_JDK_PATH + "/bin/java");
+        baseCmd.addAll(jvmProfile.namespaceOptions(context.getMemoryLimit(), archive != null));
+        baseCmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", SANDBOX_CODE_PATH, "Main"));
+        // memory.max包含JVM自身开销，堆溢出仍由JVM报告为运行错误
+        long memoryMax = (jvmProfile.getHeapLimit(context.getMemoryLimit())
+                + namespaceSandboxProperties.getMemoryOverhead()) * 1024 * 1024;
+        List<TestCaseInput> inputList = context.getInputList();
+        ExecuteMessage[] results = new ExecuteMessage[inputList.size()];
+        for (int position = 0; position < inputList.size() && !isDecided(context); position++) {
+            int i = caseAt(context, position);
+            TestCaseInput input = inputList.get(i);
+            OutputComparator comparator = newComparator(context, i);
+            try (CgroupLeaf leaf = cgroupLeafFactory.create(memoryMax)) {
+                List<String> runCmd = new ArrayList<>(baseCmd);
+                runCmd.set(cgroupArgIndex, leaf.getDir().getAbsolutePath());
+                ProcessBuilder processBuilder = new ProcessBuilder(runCmd);
+                if (isStdinInput()) {
+                    // 标准输入在进入命名空间之前打开，沙箱内不需要挂载输入文件
+                    processBuilder.redirectInput(getInputFile(codeDir, i, input));
+                } else {
+                    runCmd.addAll(Arrays.asList(splitArgs(input)));
+                }
+                Process runProcess = processBuilder.start();
+                ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(runProcess, "运行",
+                        getWallTimeLimit(timeLimit), null, context.getOutputBudget(), comparator);
+                if (executeMessage.getMessage() != null) {
+                    executeMessage.setMessage(executeMessage.getMessage().trim());
+                }
+                if (ExecuteCodeStatusEnum.OUTPUT_LIMIT_EXCEEDED.getValue().equals(executeMessage.getStatus())) {
+                    executeMessage.setErrorMessage("输出超出限制（" + sandboxProperties.getOutputLimit() + "字节）");
+                } else {
+                    applyCgroupUsage(executeMessage, leaf, timeLimit);
+                }
+                applyVerdict(executeMessage, comparator);
+                results[i] = executeMessage;
+                onCaseFinished(context, i, executeMessage);
+            } catch (IOException e) {
+                throw new RuntimeException("运行异常", e);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 用cgroup的统计填写CPU时间与内存，并判断是否超出内存或CPU时间限制
+     * @param executeMessage 运行结果
+     * @param leaf 本次执行的cgroup叶子节点
+     * @param timeLimit CPU时间限制(ms)
+     */
+    private void applyCgroupUsage(ExecuteMessage executeMessage, CgroupLeaf leaf, Long timeLimit) {
+        CgroupMeasurement measurement = leaf.getMeasurement();
+        if (measurement != null) {
+            try {
+                executeMessage.setCpuTime(measurement.finishCpuTime());
+                executeMessage.setTime(executeMessage.getCpuTime());
+                executeMessage.setMemory(measurement.finishMemory());
+            } catch (IOException e) {
+                log.warn("读取cgroup{}统计失败", leaf.getDir(), e);
+            }
+        }
+        if (leaf.isOomKilled()) {
+            executeMessage.setStatus(ExecuteCodeStatusEnum.MEMORY_LIMIT_EXCEEDED.getValue());
+            executeMessage.setErrorMessage("内存超出限制");
+        } else if (!ExecuteCodeStatusEnum.TIME_LIMIT_EXCEEDED.getValue().equals(executeMessage.getStatus())
+                && isCpuTimeExceeded(executeMessage, timeLimit)) {
+            executeMessage.setStatus(ExecuteCodeStatusEnum.TIME_LIMIT_EXCEEDED.getValue());
+            executeMessage.setErrorMessage("CPU时间超出限制（" + executeMessage.getCpuTime() + "ms > " + timeLimit + "ms）");
+        }
+    }
+
+    private String getJdkHome() {
+        String jdkHome = namespaceSandboxProperties.getJdkHome();
+        return StrUtil.isBlank(jdkHome) ? System.getProperty("java.home") : jdkHome;
+    }
+}
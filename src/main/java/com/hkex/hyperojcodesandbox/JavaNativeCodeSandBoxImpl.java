@@ -1,40 +1,134 @@
 package com.hkex.hyperojcodesandbox;
 
-import com.hkex.hyperojcodesandbox.model.ExecuteCodeRequest;
-import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import com.hkex.hyperojcodesandbox.compare.OutputComparator;
+import com.hkex.hyperojcodesandbox.jvm.JvmProfile;
+import com.hkex.hyperojcodesandbox.model.ExecuteContext;
 import com.hkex.hyperojcodesandbox.model.ExecuteMessage;
+import com.hkex.hyperojcodesandbox.model.enums.ExecuteCodeStatusEnum;
+import com.hkex.hyperojcodesandbox.monitor.ProcessMeasurement;
+import com.hkex.hyperojcodesandbox.monitor.ProcessMonitor;
+import com.hkex.hyperojcodesandbox.testdata.TestCaseInput;
+import com.hkex.hyperojcodesandbox.runner.CaseResult;
 import com.hkex.hyperojcodesandbox.utils.ProcessUtils;
+import com.hkex.hyperojcodesandbox.worker.NativeWorker;
+import com.hkex.hyperojcodesandbox.worker.NativeWorkerPool;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * java本地实现
+ * 启用预启动JVM池时用例优先交给池中空闲的JVM运行，没有空闲时为用例启动新的JVM
  */
 @Component
+@Slf4j
 public class JavaNativeCodeSandBoxImpl extends JavaCodeSandBoxTemplate {
-    /**
-     * 执行超时时间（毫秒）
-     */
-    private static final long TIME_OUT = 5000L;
+
+    @Resource
+    private JvmProfile jvmProfile;
+
+    @Resource
+    private ProcessMonitor processMonitor;
+
+    @Resource
+    private NativeWorkerPool nativeWorkerPool;
 
     @Override
-    public List<ExecuteMessage> runCode(List<String> inputList, File userCodeFile) {
-        List<ExecuteMessage> executeMessageList = new ArrayList<>();
-        for (String input : inputList) {
-            String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s Main %s", userCodeFile.getParentFile().getAbsolutePath(), input);
+    public List<ExecuteMessage> runCode(ExecuteContext context, File userCodeFile) {
+        Long timeLimit = context.getTimeLimit();
+        File codeDir = userCodeFile.getParentFile();
+        List<String> baseCmd = new ArrayList<>();
+        baseCmd.add("java");
+        baseCmd.addAll(jvmProfile.nativeOptions(context.getMemoryLimit()));
+        baseCmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", codeDir.getAbsolutePath(), "Main"));
+        List<TestCaseInput> inputList = context.getInputList();
+        ExecuteMessage[] results = new ExecuteMessage[inputList.size()];
+        for (int position = 0; position < inputList.size() && !isDecided(context); position++) {
+            int i = caseAt(context, position);
+            TestCaseInput input = inputList.get(i);
+            OutputComparator comparator = newComparator(context, i);
+            NativeWorker worker = nativeWorkerPool.tryLease(context.getMemoryLimit());
+            if (worker != null) {
+                results[i] = executeInWorker(worker, context, codeDir, i, comparator);
+                onCaseFinished(context, i, results[i]);
+                continue;
+            }
+            // 包装进程回收JVM后写出的stat，用于读取最终的CPU时间
+            File statFile = new File(codeDir, "proc" + i + ".stat");
+            List<String> runCmd = processMonitor.wrapCommand(baseCmd, statFile);
+            ProcessBuilder processBuilder = new ProcessBuilder(runCmd);
+            if (isStdinInput()) {
+                processBuilder.redirectInput(getInputFile(codeDir, i, input));
+            } else {
+                runCmd.addAll(Arrays.asList(splitArgs(input)));
+            }
             try {
-                Process runProcess = Runtime.getRuntime().exec(runCmd);
-                ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(runProcess, "运行",TIME_OUT);
-                executeMessageList.add(executeMessage);
+                Process runProcess = processBuilder.start();
+                // 内存限制即最大堆，未指定时按默认堆大小限制
+                ProcessMeasurement measurement = processMonitor.watch(runProcess, statFile, timeLimit,
+                        jvmProfile.getHeapLimit(context.getMemoryLimit()));
+                ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(runProcess, "运行",
+                        getWallTimeLimit(timeLimit), measurement, context.getOutputBudget(), comparator);
+                // 与Docker实现一致，输出去掉首尾空白
+                if (executeMessage.getMessage() != null) {
+                    executeMessage.setMessage(executeMessage.getMessage().trim());
+                }
+                if (ExecuteCodeStatusEnum.OUTPUT_LIMIT_EXCEEDED.getValue().equals(executeMessage.getStatus())) {
+                    executeMessage.setErrorMessage("输出超出限制（" + sandboxProperties.getOutputLimit() + "字节）");
+                }
+                applyVerdict(executeMessage, comparator);
+                results[i] = executeMessage;
+                onCaseFinished(context, i, executeMessage);
                 System.out.println(executeMessage);
             } catch (IOException e) {
                 throw new RuntimeException("运行异常",e);
             }
         }
-        return executeMessageList;
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 在预启动的JVM中运行一个用例
+     * @param worker 预启动的JVM
+     * @param context 运行上下文
+     * @param codeDir 代码目录
+     * @param index 用例下标
+     * @param comparator 输出比较器
+     * @return 执行结果
+     */
+    private ExecuteMessage executeInWorker(NativeWorker worker, ExecuteContext context, File codeDir, int index,
+                                           OutputComparator comparator) {
+        Long timeLimit = context.getTimeLimit();
+        long wallTimeLimit = getWallTimeLimit(timeLimit);
+        TestCaseInput input = context.getInputList().get(index);
+        try {
+            String[] args = new String[0];
+            String stdinPath = "";
+            if (isStdinInput()) {
+                stdinPath = getInputFile(codeDir, index, input).getAbsolutePath();
+            } else {
+                args = splitArgs(input);
+            }
+            worker.getConnection().loadClasses(context.getClasses(), NativeWorkerPool.RESPONSE_SLACK);
+            CaseResult caseResult = worker.getConnection().runCase(index, args, stdinPath,
+                    timeLimit == null ? -1 : timeLimit, wallTimeLimit, context.getOutputBudget().getRemaining(),
+                    wallTimeLimit + NativeWorkerPool.RESPONSE_SLACK);
+            context.getOutputBudget().acquire(caseResult.stdout.length + caseResult.stderr.length);
+            return toExecuteMessage(caseResult, comparator);
+        } catch (IOException e) {
+            log.error("判题JVM{}执行失败", worker.getName(), e);
+            ExecuteMessage message = new ExecuteMessage();
+            message.setStatus(ExecuteCodeStatusEnum.RUNTIME_ERROR.getValue());
+            message.setErrorMessage("执行失败: " + e.getMessage());
+            return message;
+        } finally {
+            nativeWorkerPool.release(worker);
+        }
     }
 }
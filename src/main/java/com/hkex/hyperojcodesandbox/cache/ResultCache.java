@@ -0,0 +1,63 @@
+package com.hkex.hyperojcodesandbox.cache;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.hkex.hyperojcodesandbox.config.ResultCacheProperties;
+import com.hkex.hyperojcodesandbox.model.ExecuteCodeRequest;
+import com.hkex.hyperojcodesandbox.model.ExecuteMessage;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+/**
+ * 用例结果缓存
+ * 以（代码，输入，限制，运行环境）为键缓存单个用例的执行结果，重判时只执行未缓存的用例；
+ * 只缓存成功运行的结果，超时、输出超限等受负载与整体预算影响的结果每次重新执行
+ */
+@Component
+public class ResultCache {
+
+    @Resource
+    private ResultCacheProperties resultCacheProperties;
+
+    private LRUCache<String, ExecuteMessage> cache;
+
+    /**
+     * 创建带过期时间的LRU缓存
+     */
+    @PostConstruct
+    public void init() {
+        this.cache = CacheUtil.newLRUCache(resultCacheProperties.getMaxEntries(), resultCacheProperties.getTtl());
+    }
+
+    /**
+     * 是否启用
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return resultCacheProperties.isEnabled();
+    }
+
+    /**
+     * 计算用例的缓存键
+     * @param codeHash 代码哈希
+     * @param input 用例输入标识（输入内容或测试数据仓库中的文件路径）
+     * @param request 执行请求（取其中的限制）
+     * @param environmentId 运行环境标识
+     * @return 缓存键
+     */
+    public String key(String codeHash, String input, ExecuteCodeRequest request, String environmentId) {
+        return DigestUtil.sha256Hex(codeHash + '\0' + environmentId + '\0' + request.getTimeLimit() + '\0'
+                + request.getMemoryLimit() + '\0' + input);
+    }
+
+    public ExecuteMessage get(String key) {
+        return cache.get(key, false);
+    }
+
+    public void put(String key, ExecuteMessage executeMessage) {
+        cache.put(key, executeMessage);
+    }
+}
@@ -0,0 +1,147 @@
+package com.hkex.hyperojcodesandbox.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.hkex.hyperojcodesandbox.CaseResultListener;
+import com.hkex.hyperojcodesandbox.model.CaseJudgeInfo;
+import com.hkex.hyperojcodesandbox.model.CompileDiagnostic;
+import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import com.hkex.hyperojcodesandbox.model.JudgeInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 相同提交的合并执行
+ * 内容相同的请求同时到达时只执行一次，后到的请求等待正在进行的执行并共用其结果；
+ * 各请求的用例结论监听都会收到全部用例结论，加入时先补发已得出的结论。执行结束后即移除，不缓存结果
+ */
+@Component
+@Slf4j
+public class SingleFlight {
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong(0);
+
+    private final AtomicLong joined = new AtomicLong(0);
+
+    /**
+     * 执行或加入正在进行的相同执行
+     * @param key 请求内容的哈希
+     * @param listener 用例结论监听，可为空
+     * @param execution 实际执行，参数为需要回调的用例结论监听
+     * @return 执行结果的深拷贝，各请求可以分别修改
+     */
+    public ExecuteCodeResponse execute(String key, CaseResultListener listener,
+                                       Function<CaseResultListener, ExecuteCodeResponse> execution) {
+        Flight flight = new Flight();
+        Flight running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            joined.incrementAndGet();
+            log.info("相同的提交正在执行，等待共用结果");
+            running.attach(listener);
+            try {
+                return copy(running.result.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        executions.incrementAndGet();
+        flight.attach(listener);
+        try {
+            ExecuteCodeResponse response = execution.apply(flight);
+            flights.remove(key, flight);
+            flight.result.complete(response);
+            return copy(response);
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 合并执行的次数
+     * @return 后到请求共用结果的次数
+     */
+    public long getJoined() {
+        return joined.get();
+    }
+
+    /**
+     * 实际执行的次数
+     * @return 执行次数
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * 复制执行结果，列表与嵌套的判题信息也复制，共用同一次执行的请求之间互不影响
+     * @param response 执行结果
+     * @return 副本
+     */
+    private ExecuteCodeResponse copy(ExecuteCodeResponse response) {
+        if (response == null) {
+            return null;
+        }
+        ExecuteCodeResponse copy = BeanUtil.copyProperties(response, ExecuteCodeResponse.class);
+        copy.setOutputList(response.getOutputList() == null ? null : new ArrayList<>(response.getOutputList()));
+        copy.setJudgeInfo(response.getJudgeInfo() == null ? null
+                : BeanUtil.copyProperties(response.getJudgeInfo(), JudgeInfo.class));
+        copy.setDiagnostics(BeanUtil.copyToList(response.getDiagnostics(), CompileDiagnostic.class));
+        copy.setCaseResults(BeanUtil.copyToList(response.getCaseResults(), CaseJudgeInfo.class));
+        return copy;
+    }
+
+    /**
+     * 一次正在进行的执行，把用例结论转发给所有加入的请求
+     */
+    private static final class Flight implements CaseResultListener {
+
+        private final CompletableFuture<ExecuteCodeResponse> result = new CompletableFuture<>();
+
+        private final List<CaseResultListener> listeners = new ArrayList<>();
+
+        /**
+         * 已得出的用例结论，按得出顺序
+         */
+        private final Map<Integer, CaseJudgeInfo> decided = new LinkedHashMap<>();
+
+        private synchronized void attach(CaseResultListener listener) {
+            if (listener == null) {
+                return;
+            }
+            for (Map.Entry<Integer, CaseJudgeInfo> entry : decided.entrySet()) {
+                notify(listener, entry.getKey(), entry.getValue());
+            }
+            listeners.add(listener);
+        }
+
+        @Override
+        public synchronized void onCaseResult(int index, CaseJudgeInfo caseResult) {
+            decided.put(index, caseResult);
+            for (CaseResultListener listener : listeners) {
+                notify(listener, index, caseResult);
+            }
+        }
+
+        private void notify(CaseResultListener listener, int index, CaseJudgeInfo caseResult) {
+            try {
+                // 每个监听收到各自的副本
+                listener.onCaseResult(index, BeanUtil.copyProperties(caseResult, CaseJudgeInfo.class));
+            } catch (Exception e) {
+                log.warn("用例{}结论通知失败", index, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+/**
+ * 简单的字节队列，保存规范化后尚未比较的字节
+ */
+class ByteQueue {
+
+    private byte[] data = new byte[64];
+
+    private int head;
+
+    private int tail;
+
+    void add(byte b) {
+        if (tail == data.length) {
+            if (head > 0) {
+                System.arraycopy(data, head, data, 0, tail - head);
+                tail -= head;
+                head = 0;
+            }
+            if (tail == data.length) {
+                byte[] grown = new byte[data.length * 2];
+                System.arraycopy(data, 0, grown, 0, tail);
+                data = grown;
+            }
+        }
+        data[tail++] = b;
+    }
+
+    boolean isEmpty() {
+        return head == tail;
+    }
+
+    byte poll() {
+        byte b = data[head++];
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+        return b;
+    }
+
+    void clear() {
+        head = 0;
+        tail = 0;
+    }
+}
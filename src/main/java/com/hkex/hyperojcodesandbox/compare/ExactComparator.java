@@ -0,0 +1,130 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 逐字节比较，双方都经过{@link LineNormalizer}规范化（忽略行尾空白与末尾空行）
+ */
+class ExactComparator extends OutputComparator {
+
+    /**
+     * 差异说明中保留的已匹配内容长度
+     */
+    private static final int CONTEXT_LENGTH = 16;
+
+    private final ByteBuffer expected;
+
+    private final LineNormalizer expectedNormalizer = new LineNormalizer();
+
+    private final ByteQueue expectedBytes = new ByteQueue();
+
+    private final LineNormalizer actualNormalizer = new LineNormalizer();
+
+    private final ByteQueue actualBytes = new ByteQueue();
+
+    /**
+     * 最近匹配的字节（环形），用于差异说明
+     */
+    private final byte[] context = new byte[CONTEXT_LENGTH];
+
+    private long matched;
+
+    private long line = 1;
+
+    ExactComparator(ByteBuffer expected) {
+        this.expected = expected;
+    }
+
+    @Override
+    protected void consume(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            actualNormalizer.push(data[i], actualBytes);
+            while (!actualBytes.isEmpty()) {
+                byte actual = actualBytes.poll();
+                int expectedByte = nextExpected();
+                if (expectedByte != (actual & 0xff)) {
+                    int restLength = Math.min(offset + length - i - 1, EXCERPT_LENGTH);
+                    byte[] actualExcerpt = new byte[restLength + 1];
+                    actualExcerpt[0] = actual;
+                    System.arraycopy(data, i + 1, actualExcerpt, 1, restLength);
+                    fail(expectedByte < 0
+                            ? String.format("第%d行输出过长，多出“%s”", line, excerpt(actualExcerpt, 0, actualExcerpt.length))
+                            : mismatch(expectedByte, actualExcerpt));
+                    return;
+                }
+                context[(int) (matched++ % CONTEXT_LENGTH)] = actual;
+                if (actual == '\n') {
+                    line++;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void complete() {
+        int expectedByte = nextExpected();
+        if (expectedByte >= 0) {
+            fail(String.format("第%d行输出过短，期望还有“%s”", line, excerpt(expectedExcerpt(expectedByte))));
+        }
+    }
+
+    private String mismatch(int expectedByte, byte[] actualExcerpt) {
+        String prefix = excerpt(matchedContext());
+        return String.format("第%d行不一致：期望“%s%s”，实际“%s%s”", line, prefix,
+                excerpt(expectedExcerpt(expectedByte)), prefix, excerpt(actualExcerpt, 0, actualExcerpt.length));
+    }
+
+    /**
+     * 从当前期望字节开始取一段期望输出
+     */
+    private byte[] expectedExcerpt(int first) {
+        byte[] buf = new byte[EXCERPT_LENGTH + 1];
+        buf[0] = (byte) first;
+        int size = 1;
+        int next;
+        while (size < buf.length && (next = nextExpected()) >= 0) {
+            buf[size++] = (byte) next;
+        }
+        byte[] result = new byte[size];
+        System.arraycopy(buf, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * 当前行已匹配的最后一段内容
+     */
+    private byte[] matchedContext() {
+        int size = (int) Math.min(matched, CONTEXT_LENGTH);
+        byte[] result = new byte[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = context[(int) ((matched - size + i) % CONTEXT_LENGTH)];
+        }
+        int lineStart = 0;
+        for (int i = 0; i < size; i++) {
+            if (result[i] == '\n') {
+                lineStart = i + 1;
+            }
+        }
+        byte[] currentLine = new byte[size - lineStart];
+        System.arraycopy(result, lineStart, currentLine, 0, currentLine.length);
+        return currentLine;
+    }
+
+    /**
+     * 读取下一个规范化后的期望字节
+     * @return 字节，期望输出结束时返回-1
+     */
+    private int nextExpected() {
+        while (expectedBytes.isEmpty()) {
+            if (!expected.hasRemaining()) {
+                return -1;
+            }
+            expectedNormalizer.push(expected.get(), expectedBytes);
+        }
+        return expectedBytes.poll() & 0xff;
+    }
+
+    private static String excerpt(byte[] data) {
+        return excerpt(data, 0, data.length);
+    }
+}
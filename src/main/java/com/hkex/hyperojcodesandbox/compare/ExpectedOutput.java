@@ -0,0 +1,101 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 期望输出：请求中携带的文本、测试数据仓库中的文件（内存映射读取）或输出的SHA-256
+ */
+public class ExpectedOutput {
+
+    private final String content;
+
+    private final File file;
+
+    private final String storePath;
+
+    private final String hash;
+
+    /**
+     * 文件的只读映射，首次使用时建立，多个用例共享
+     */
+    private ByteBuffer mapped;
+
+    private ExpectedOutput(String content, File file, String storePath, String hash) {
+        this.content = content;
+        this.file = file;
+        this.storePath = storePath;
+        this.hash = hash;
+    }
+
+    public static ExpectedOutput ofContent(String content) {
+        return new ExpectedOutput(content, null, null, null);
+    }
+
+    /**
+     * 测试数据仓库中的期望输出文件
+     * @param file 文件
+     * @param storePath 相对仓库输出目录的路径
+     * @return 期望输出
+     */
+    public static ExpectedOutput ofStoreFile(File file, String storePath) {
+        return new ExpectedOutput(null, file, storePath, null);
+    }
+
+    /**
+     * 只知道规范化后输出的SHA-256（十六进制）
+     * @param hash 哈希
+     * @return 期望输出
+     */
+    public static ExpectedOutput ofHash(String hash) {
+        return new ExpectedOutput(null, null, null, hash.toLowerCase());
+    }
+
+    public boolean isHash() {
+        return hash != null;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * 获取期望输出内容，每次返回独立的读取位置
+     * @return 内容
+     */
+    public ByteBuffer openBuffer() {
+        if (hash != null) {
+            throw new IllegalStateException("期望输出只有哈希");
+        }
+        if (file == null) {
+            return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return map().duplicate();
+    }
+
+    private synchronized ByteBuffer map() {
+        if (mapped == null) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new RuntimeException("读取期望输出失败：" + storePath, e);
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * 用于结果缓存键的标识
+     * @return 标识
+     */
+    public String getCacheKey() {
+        if (hash != null) {
+            return "hash:" + hash;
+        }
+        return file == null ? "content:" + content : "store:" + storePath;
+    }
+}
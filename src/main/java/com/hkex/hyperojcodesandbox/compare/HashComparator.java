@@ -0,0 +1,68 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import cn.hutool.core.util.HexUtil;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 只给出期望输出哈希时的比较：计算规范化后输出的SHA-256
+ * 精确模式下规范化与{@link ExactComparator}相同，记号模式下为各记号以单个空格连接；
+ * 只能在输出结束后得出结论
+ */
+class HashComparator extends OutputComparator {
+
+    private final String expectedHash;
+
+    private final boolean tokenMode;
+
+    private final MessageDigest digest;
+
+    private final LineNormalizer normalizer = new LineNormalizer();
+
+    private final ByteQueue normalized = new ByteQueue();
+
+    private boolean inToken;
+
+    private boolean hasToken;
+
+    HashComparator(String expectedHash, boolean tokenMode) {
+        this.expectedHash = expectedHash;
+        this.tokenMode = tokenMode;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void consume(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = data[i];
+            if (!tokenMode) {
+                normalizer.push(b, normalized);
+                while (!normalized.isEmpty()) {
+                    digest.update(normalized.poll());
+                }
+            } else if (TokenComparator.isSpace(b)) {
+                inToken = false;
+            } else {
+                if (!inToken && hasToken) {
+                    digest.update((byte) ' ');
+                }
+                inToken = true;
+                hasToken = true;
+                digest.update(b);
+            }
+        }
+    }
+
+    @Override
+    protected void complete() {
+        String actualHash = HexUtil.encodeHexStr(digest.digest());
+        if (!actualHash.equals(expectedHash)) {
+            fail("输出哈希不一致：期望" + expectedHash + "，实际" + actualHash);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+/**
+ * 逐字节的输出规范化：去掉每行行尾的空白与输出末尾的空行
+ * 空白与换行先暂存，遇到下一个可见字符时才确定需要输出
+ */
+class LineNormalizer {
+
+    private final ByteQueue pendingWhitespace = new ByteQueue();
+
+    private int pendingNewlines;
+
+    /**
+     * 输入一个字节
+     * @param b 字节
+     * @param out 规范化后确定的字节
+     */
+    void push(byte b, ByteQueue out) {
+        if (b == ' ' || b == '\t' || b == '\r') {
+            pendingWhitespace.add(b);
+        } else if (b == '\n') {
+            pendingWhitespace.clear();
+            pendingNewlines++;
+        } else {
+            for (; pendingNewlines > 0; pendingNewlines--) {
+                out.add((byte) '\n');
+            }
+            while (!pendingWhitespace.isEmpty()) {
+                out.add(pendingWhitespace.poll());
+            }
+            out.add(b);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import com.hkex.hyperojcodesandbox.model.enums.CompareModeEnum;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式输出比较
+ * 用户程序的标准输出边产生边与期望输出比较，一旦确定不一致即可终止程序，无需收集完整输出；
+ * 不一致时只保留一段简短的差异说明
+ */
+public abstract class OutputComparator {
+
+    /**
+     * 浮点比较的默认误差（绝对误差或相对误差）
+     */
+    public static final double DEFAULT_FLOAT_TOLERANCE = 1e-6;
+
+    /**
+     * 差异说明中每段内容的最大字符数
+     */
+    protected static final int EXCERPT_LENGTH = 32;
+
+    private boolean diverged;
+
+    private boolean finished;
+
+    private String diff;
+
+    /**
+     * 创建比较器
+     * @param expected 期望输出
+     * @param compareMode 比较方式，为空时按EXACT
+     * @param floatTolerance 浮点误差，为空时使用默认值
+     * @return 比较器
+     */
+    public static OutputComparator create(ExpectedOutput expected, CompareModeEnum compareMode, Double floatTolerance) {
+        CompareModeEnum mode = compareMode == null ? CompareModeEnum.EXACT : compareMode;
+        if (expected.isHash()) {
+            if (mode == CompareModeEnum.FLOAT) {
+                throw new RuntimeException("浮点比较不支持以哈希给出期望输出");
+            }
+            return new HashComparator(expected.getHash(), mode == CompareModeEnum.TOKEN);
+        }
+        if (mode == CompareModeEnum.EXACT) {
+            return new ExactComparator(expected.openBuffer());
+        }
+        return new TokenComparator(expected.openBuffer(), mode == CompareModeEnum.FLOAT,
+                floatTolerance == null ? DEFAULT_FLOAT_TOLERANCE : floatTolerance);
+    }
+
+    /**
+     * 写入一段标准输出
+     * @param data 数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否仍可能一致，返回false表示已确定不一致，可以终止程序
+     */
+    public synchronized boolean write(byte[] data, int offset, int length) {
+        if (!diverged && !finished) {
+            consume(data, offset, length);
+        }
+        return !diverged;
+    }
+
+    /**
+     * 输出结束，完成比较
+     * @return 是否一致
+     */
+    public synchronized boolean finish() {
+        if (!diverged && !finished) {
+            finished = true;
+            complete();
+        }
+        return !diverged;
+    }
+
+    /**
+     * 是否在输出过程中已确定不一致
+     * @return 是否不一致
+     */
+    public synchronized boolean isDiverged() {
+        return diverged;
+    }
+
+    /**
+     * 不一致时的差异说明
+     * @return 差异说明，一致时为null
+     */
+    public synchronized String getDiff() {
+        return diff;
+    }
+
+    /**
+     * 处理一段输出，确定不一致时调用{@link #fail(String)}
+     */
+    protected abstract void consume(byte[] data, int offset, int length);
+
+    /**
+     * 处理输出结束，确定不一致时调用{@link #fail(String)}
+     */
+    protected abstract void complete();
+
+    protected void fail(String diff) {
+        this.diverged = true;
+        this.diff = diff;
+    }
+
+    /**
+     * 把一段字节转换为可读的差异片段
+     */
+    protected static String excerpt(byte[] data, int offset, int length) {
+        String text = new String(data, offset, length, StandardCharsets.UTF_8);
+        if (text.length() > EXCERPT_LENGTH) {
+            text = text.substring(0, EXCERPT_LENGTH) + "...";
+        }
+        return text.replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t");
+    }
+}
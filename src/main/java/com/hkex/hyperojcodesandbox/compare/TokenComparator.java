@@ -0,0 +1,185 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * 按记号比较，记号之间的空白（空格、制表符、换行等）不参与比较
+ * 精确模式下记号逐字节比较，第一个不同的字节即可确定不一致；
+ * 浮点模式下不同的记号若都是十进制数，在误差范围内视为相同
+ */
+class TokenComparator extends OutputComparator {
+
+    /**
+     * 浮点模式下保存的记号最大长度，更长的记号不会是合法数值
+     */
+    private static final int MAX_TOKEN_LENGTH = 512;
+
+    private static final Pattern DECIMAL_PATTERN = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private final ByteBuffer expected;
+
+    private final boolean floatMode;
+
+    private final double tolerance;
+
+    private final byte[] token = new byte[MAX_TOKEN_LENGTH];
+
+    private int tokenLength;
+
+    private boolean inToken;
+
+    private boolean exactSoFar;
+
+    private int expectedStart;
+
+    private int expectedLength;
+
+    private long tokenIndex;
+
+    TokenComparator(ByteBuffer expected, boolean floatMode, double tolerance) {
+        this.expected = expected;
+        this.floatMode = floatMode;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    protected void consume(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = data[i];
+            if (isSpace(b)) {
+                if (inToken && !endToken()) {
+                    return;
+                }
+                continue;
+            }
+            if (!inToken && !startToken(data, i, offset + length)) {
+                return;
+            }
+            if (tokenLength < token.length) {
+                token[tokenLength] = b;
+            }
+            if (exactSoFar && (tokenLength >= expectedLength || expected.get(expectedStart + tokenLength) != b)) {
+                exactSoFar = false;
+            }
+            tokenLength++;
+            if (!exactSoFar && (!floatMode || tokenLength > token.length)) {
+                fail(mismatch(data, i + 1, offset + length));
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected void complete() {
+        if (inToken && !endToken()) {
+            return;
+        }
+        if (nextExpectedToken()) {
+            fail(String.format("输出过短，缺少第%d个记号“%s”", tokenIndex + 1, expectedExcerpt()));
+        }
+    }
+
+    /**
+     * 开始一个新的实际记号，并定位对应的期望记号
+     */
+    private boolean startToken(byte[] data, int from, int end) {
+        if (!nextExpectedToken()) {
+            fail(String.format("输出过长，多出第%d个记号“%s”", tokenIndex + 1, excerpt(data, from, tokenEnd(data, from, end) - from)));
+            return false;
+        }
+        tokenIndex++;
+        inToken = true;
+        tokenLength = 0;
+        exactSoFar = true;
+        return true;
+    }
+
+    /**
+     * 实际记号结束，比较整个记号
+     */
+    private boolean endToken() {
+        inToken = false;
+        if (exactSoFar && tokenLength == expectedLength) {
+            return true;
+        }
+        if (floatMode && tokenLength <= token.length && floatEquals()) {
+            return true;
+        }
+        fail(mismatch(token, 0, 0));
+        return false;
+    }
+
+    private boolean floatEquals() {
+        String actualText = new String(token, 0, tokenLength, StandardCharsets.US_ASCII);
+        byte[] expectedToken = new byte[expectedLength];
+        for (int i = 0; i < expectedLength; i++) {
+            expectedToken[i] = expected.get(expectedStart + i);
+        }
+        String expectedText = new String(expectedToken, StandardCharsets.US_ASCII);
+        if (!DECIMAL_PATTERN.matcher(actualText).matches() || !DECIMAL_PATTERN.matcher(expectedText).matches()) {
+            return false;
+        }
+        double actual = Double.parseDouble(actualText);
+        double expectedValue = Double.parseDouble(expectedText);
+        return Math.abs(actual - expectedValue) <= tolerance * Math.max(1.0, Math.abs(expectedValue));
+    }
+
+    /**
+     * 期望输出中定位下一个记号
+     * @return 是否还有记号
+     */
+    private boolean nextExpectedToken() {
+        int position = expected.position();
+        int limit = expected.limit();
+        while (position < limit && isSpace(expected.get(position))) {
+            position++;
+        }
+        if (position == limit) {
+            expected.position(limit);
+            return false;
+        }
+        expectedStart = position;
+        while (position < limit && !isSpace(expected.get(position))) {
+            position++;
+        }
+        expectedLength = position - expectedStart;
+        expected.position(position);
+        return true;
+    }
+
+    /**
+     * 当前记号的差异说明，实际记号取已收到的部分加上本段输出中的后续内容
+     */
+    private String mismatch(byte[] data, int from, int end) {
+        int stored = Math.min(tokenLength, token.length);
+        int restEnd = tokenEnd(data, from, end);
+        byte[] actualToken = new byte[stored + restEnd - from];
+        System.arraycopy(token, 0, actualToken, 0, stored);
+        System.arraycopy(data, from, actualToken, stored, restEnd - from);
+        return String.format("第%d个记号不一致：期望“%s”，实际“%s”", tokenIndex, expectedExcerpt(),
+                excerpt(actualToken, 0, actualToken.length));
+    }
+
+    private String expectedExcerpt() {
+        byte[] expectedToken = new byte[Math.min(expectedLength, EXCERPT_LENGTH + 1)];
+        for (int i = 0; i < expectedToken.length; i++) {
+            expectedToken[i] = expected.get(expectedStart + i);
+        }
+        return excerpt(expectedToken, 0, expectedToken.length);
+    }
+
+    private static int tokenEnd(byte[] data, int from, int end) {
+        int limit = Math.min(end, from + EXCERPT_LENGTH + 1);
+        int i = from;
+        while (i < limit && !isSpace(data[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    static boolean isSpace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+    }
+}
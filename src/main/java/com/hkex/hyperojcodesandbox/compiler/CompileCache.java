@@ -0,0 +1,279 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.hkex.hyperojcodesandbox.config.CompileCacheProperties;
+import com.hkex.hyperojcodesandbox.model.CompileDiagnostic;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内容寻址的编译缓存
+ * 以源码与编译参数的哈希为键，缓存编译出的类或编译错误；
+ * 内存层按字节数上限做LRU淘汰，可选的磁盘层在重启后仍可命中
+ */
+@Component
+@Slf4j
+public class CompileCache {
+
+    /**
+     * 估算每个条目的固定开销（键、映射节点等）
+     */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    /**
+     * 每写入多少个磁盘条目检查一次磁盘条目数
+     */
+    private static final int DISK_CLEAN_INTERVAL = 100;
+
+    private static final String DISK_SUFFIX = ".bin";
+
+    @Resource
+    private CompileCacheProperties compileCacheProperties;
+
+    private final LinkedHashMap<String, CompileResult> memoryCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryBytes = 0;
+
+    private File diskDir;
+
+    private final AtomicLong memoryHits = new AtomicLong(0);
+
+    private final AtomicLong diskHits = new AtomicLong(0);
+
+    private final AtomicLong misses = new AtomicLong(0);
+
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    private final AtomicInteger diskWrites = new AtomicInteger(0);
+
+    /**
+     * 创建磁盘缓存目录
+     */
+    @PostConstruct
+    public void init() {
+        if (compileCacheProperties.isEnabled() && compileCacheProperties.isDiskEnabled()) {
+            this.diskDir = FileUtil.mkdir(new File(System.getProperty("user.dir"), compileCacheProperties.getDiskDir()));
+        }
+    }
+
+    /**
+     * 计算缓存键
+     * @param code 源码
+     * @param compilerFlags 编译器标识与参数
+     * @return 缓存键
+     */
+    public String key(String code, String compilerFlags) {
+        return DigestUtil.sha256Hex(compilerFlags + '\0' + code);
+    }
+
+    /**
+     * 查询缓存
+     * @param key 缓存键
+     * @return 编译结果，未命中时为null
+     */
+    public CompileResult get(String key) {
+        if (!compileCacheProperties.isEnabled()) {
+            return null;
+        }
+        synchronized (memoryCache) {
+            CompileResult result = memoryCache.get(key);
+            if (result != null) {
+                memoryHits.incrementAndGet();
+                return result;
+            }
+        }
+        CompileResult result = readDisk(key);
+        if (result != null) {
+            diskHits.incrementAndGet();
+            putMemory(key, result);
+            return result;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入缓存
+     * @param key 缓存键
+     * @param result 编译结果
+     */
+    public void put(String key, CompileResult result) {
+        if (!compileCacheProperties.isEnabled()) {
+            return;
+        }
+        putMemory(key, result);
+        writeDisk(key, result);
+    }
+
+    /**
+     * 获取缓存统计
+     * @return 统计信息
+     */
+    public CompileCacheStats getStats() {
+        CompileCacheStats stats = new CompileCacheStats();
+        stats.setMemoryHits(memoryHits.get());
+        stats.setDiskHits(diskHits.get());
+        stats.setMisses(misses.get());
+        stats.setEvictions(evictions.get());
+        synchronized (memoryCache) {
+            stats.setMemoryEntries(memoryCache.size());
+            stats.setMemoryBytes(memoryBytes);
+        }
+        return stats;
+    }
+
+    private void putMemory(String key, CompileResult result) {
+        long size = sizeOf(result);
+        if (size > compileCacheProperties.getMemoryLimit()) {
+            return;
+        }
+        synchronized (memoryCache) {
+            CompileResult previous = memoryCache.put(key, result);
+            if (previous != null) {
+                memoryBytes -= sizeOf(previous);
+            }
+            memoryBytes += size;
+            Iterator<Map.Entry<String, CompileResult>> iterator = memoryCache.entrySet().iterator();
+            while (memoryBytes > compileCacheProperties.getMemoryLimit() && iterator.hasNext()) {
+                Map.Entry<String, CompileResult> eldest = iterator.next();
+                memoryBytes -= sizeOf(eldest.getValue());
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static long sizeOf(CompileResult result) {
+        long size = ENTRY_OVERHEAD;
+        for (Map.Entry<String, byte[]> entry : result.getClasses().entrySet()) {
+            size += entry.getKey().length() * 2L + entry.getValue().length;
+        }
+        if (result.getMessage() != null) {
+            size += result.getMessage().length() * 2L;
+        }
+        if (result.getDiagnostics() != null) {
+            for (CompileDiagnostic diagnostic : result.getDiagnostics()) {
+                size += ENTRY_OVERHEAD + (diagnostic.getMessage() == null ? 0 : diagnostic.getMessage().length() * 2L);
+            }
+        }
+        return size;
+    }
+
+    private CompileResult readDisk(String key) {
+        if (diskDir == null) {
+            return null;
+        }
+        File file = new File(diskDir, key + DISK_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CompileResult result = new CompileResult();
+            result.setSuccess(in.readBoolean());
+            result.setMessage(in.readBoolean() ? in.readUTF() : null);
+            int classCount = in.readInt();
+            Map<String, byte[]> classes = new LinkedHashMap<>(classCount * 2);
+            for (int i = 0; i < classCount; i++) {
+                String name = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                classes.put(name, bytes);
+            }
+            result.setClasses(classes);
+            int diagnosticCount = in.readInt();
+            if (diagnosticCount >= 0) {
+                List<CompileDiagnostic> diagnostics = new ArrayList<>(diagnosticCount);
+                for (int i = 0; i < diagnosticCount; i++) {
+                    diagnostics.add(CompileDiagnostic.builder()
+                            .kind(in.readUTF())
+                            .line(in.readLong())
+                            .column(in.readLong())
+                            .message(in.readUTF())
+                            .build());
+                }
+                result.setDiagnostics(diagnostics);
+            }
+            return result;
+        } catch (IOException e) {
+            log.warn("读取编译缓存{}失败，删除该条目", key, e);
+            FileUtil.del(file);
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, CompileResult result) {
+        if (diskDir == null) {
+            return;
+        }
+        File file = new File(diskDir, key + DISK_SUFFIX);
+        File tmpFile = new File(diskDir, key + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeBoolean(result.isSuccess());
+                out.writeBoolean(result.getMessage() != null);
+                if (result.getMessage() != null) {
+                    out.writeUTF(truncate(result.getMessage()));
+                }
+                out.writeInt(result.getClasses().size());
+                for (Map.Entry<String, byte[]> entry : result.getClasses().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+                List<CompileDiagnostic> diagnostics = result.getDiagnostics();
+                out.writeInt(diagnostics == null ? -1 : diagnostics.size());
+                if (diagnostics != null) {
+                    for (CompileDiagnostic diagnostic : diagnostics) {
+                        out.writeUTF(diagnostic.getKind());
+                        out.writeLong(diagnostic.getLine());
+                        out.writeLong(diagnostic.getColumn());
+                        out.writeUTF(truncate(diagnostic.getMessage()));
+                    }
+                }
+            }
+            // 先写临时文件再改名，其他线程不会读到写了一半的条目
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("写入编译缓存{}失败", key, e);
+            FileUtil.del(tmpFile);
+            return;
+        }
+        if (diskWrites.incrementAndGet() % DISK_CLEAN_INTERVAL == 0) {
+            cleanDisk();
+        }
+    }
+
+    /**
+     * 删除最早写入的条目，使磁盘条目数不超过上限
+     */
+    private void cleanDisk() {
+        File[] files = diskDir.listFiles((dir, name) -> name.endsWith(DISK_SUFFIX));
+        if (files == null || files.length <= compileCacheProperties.getDiskMaxEntries()) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - compileCacheProperties.getDiskMaxEntries(); i++) {
+            FileUtil.del(files[i]);
+        }
+    }
+
+    /**
+     * writeUTF最多写入65535字节，超长的编译信息截断保存
+     */
+    private static String truncate(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() > 16384 ? value.substring(0, 16384) : value;
+    }
+}
@@ -0,0 +1,25 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import lombok.Data;
+
+/**
+ * 编译缓存统计
+ */
+@Data
+public class CompileCacheStats {
+
+    private long memoryHits;
+
+    private long diskHits;
+
+    private long misses;
+
+    /**
+     * 因超出内存上限被淘汰的条目数
+     */
+    private long evictions;
+
+    private int memoryEntries;
+
+    private long memoryBytes;
+}
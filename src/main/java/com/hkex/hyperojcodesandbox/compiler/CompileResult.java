@@ -0,0 +1,36 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import com.hkex.hyperojcodesandbox.model.CompileDiagnostic;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存编译结果
+ */
+@Data
+public class CompileResult {
+
+    private boolean success;
+
+    /**
+     * 类名到字节码的映射，编译失败时为空
+     */
+    private Map<String, byte[]> classes;
+
+    /**
+     * 编译器输出的错误信息
+     */
+    private String message;
+
+    /**
+     * 编译器诊断信息（错误与警告）
+     */
+    private List<CompileDiagnostic> diagnostics;
+
+    /**
+     * 编译耗时（毫秒）
+     */
+    private long time;
+}
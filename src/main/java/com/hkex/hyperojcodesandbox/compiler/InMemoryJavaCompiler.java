@@ -0,0 +1,174 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import com.hkex.hyperojcodesandbox.config.CompilerProperties;
+import com.hkex.hyperojcodesandbox.model.CompileDiagnostic;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.tools.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 进程内Java编译器
+ * 复用同一个JavaCompiler实例与池化的文件管理器，源码与类文件都只在内存中，
+ * 省去每次提交启动javac进程的JVM启动与冷JIT开销
+ */
+@Component
+@Slf4j
+public class InMemoryJavaCompiler {
+
+    private static final String WARMUP_CODE = "import java.util.*;\n"
+            + "public class Main { public static void main(String[] args) {"
+            + " List<Integer> list = new ArrayList<>(); list.add(args.length); System.out.println(list); } }";
+
+    @Resource
+    private CompilerProperties compilerProperties;
+
+    private JavaCompiler compiler;
+
+    /**
+     * 空闲的文件管理器，个数即编译并发上限
+     */
+    private BlockingQueue<StandardJavaFileManager> fileManagers;
+
+    private ExecutorService compileExecutor;
+
+    /**
+     * 获取系统编译器并在后台预热
+     */
+    @PostConstruct
+    public void init() {
+        if (!compilerProperties.isInMemory()) {
+            return;
+        }
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            log.warn("当前运行环境没有系统Java编译器，退回javac进程编译");
+            return;
+        }
+        int concurrency = compilerProperties.getConcurrency();
+        this.fileManagers = new ArrayBlockingQueue<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            fileManagers.offer(compiler.getStandardFileManager(null, Locale.getDefault(), StandardCharsets.UTF_8));
+        }
+        this.compileExecutor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "java-compile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compileExecutor.execute(() -> {
+            try {
+                CompileResult result = compile(WARMUP_CODE);
+                log.info("编译器预热完成，耗时{}ms", result.getTime());
+            } catch (Exception e) {
+                log.warn("编译器预热失败：{}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 是否可用进程内编译
+     * @return 是否可用
+     */
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * 编译主类Main的源码
+     * @param code 源码
+     * @return 编译结果
+     */
+    public CompileResult compile(String code) {
+        long start = System.currentTimeMillis();
+        Future<CompileResult> future = compileExecutor.submit(() -> doCompile(code));
+        try {
+            CompileResult result = future.get(compilerProperties.getTimeout(), TimeUnit.MILLISECONDS);
+            result.setTime(System.currentTimeMillis() - start);
+            return result;
+        } catch (TimeoutException e) {
+            // javac不响应中断，文件管理器在编译真正结束后才归还
+            future.cancel(true);
+            throw new RuntimeException("编译超时（超过" + compilerProperties.getTimeout() + "ms）");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("编译被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("编译异常", e.getCause());
+        }
+    }
+
+    private CompileResult doCompile(String code) throws InterruptedException {
+        StandardJavaFileManager fileManager = fileManagers.take();
+        try {
+            MemoryFileManager memoryFileManager = new MemoryFileManager(fileManager);
+            DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+            Boolean success = compiler.getTask(null, memoryFileManager, collector, compilerProperties.getOptions(),
+                    null, Collections.singletonList(new MemoryJavaSource("Main", code))).call();
+
+            CompileResult result = new CompileResult();
+            result.setSuccess(Boolean.TRUE.equals(success));
+            result.setClasses(result.isSuccess() ? memoryFileManager.getClasses() : Collections.emptyMap());
+            List<CompileDiagnostic> diagnostics = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+                diagnostics.add(CompileDiagnostic.builder()
+                        .kind(diagnostic.getKind().name())
+                        .line(diagnostic.getLineNumber())
+                        .column(diagnostic.getColumnNumber())
+                        .message(diagnostic.getMessage(Locale.getDefault()))
+                        .build());
+            }
+            result.setDiagnostics(diagnostics);
+            result.setMessage(formatDiagnostics(diagnostics));
+            return result;
+        } finally {
+            fileManagers.offer(fileManager);
+        }
+    }
+
+    /**
+     * 编译器标识，作为编译缓存键的一部分
+     * @return 编译器标识与参数
+     */
+    public String getCompilerFlags() {
+        return "javax.tools:" + System.getProperty("java.version") + ":" + String.join(" ", compilerProperties.getOptions());
+    }
+
+    /**
+     * 按javac的格式拼接编译诊断信息
+     * @param diagnostics 编译诊断信息
+     * @return 错误信息
+     */
+    private static String formatDiagnostics(List<CompileDiagnostic> diagnostics) {
+        StringBuilder builder = new StringBuilder();
+        for (CompileDiagnostic diagnostic : diagnostics) {
+            builder.append("Main.java:").append(diagnostic.getLine()).append(": ")
+                    .append(diagnostic.getKind().toLowerCase()).append(": ").append(diagnostic.getMessage()).append('\n');
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * 关闭编译线程与文件管理器
+     */
+    @PreDestroy
+    public void destroy() {
+        if (compileExecutor == null) {
+            return;
+        }
+        compileExecutor.shutdownNow();
+        for (StandardJavaFileManager fileManager : fileManagers) {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                log.debug("关闭文件管理器失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+/**
+ * 编译器输出到内存中的类文件
+ */
+class MemoryClassFile extends SimpleJavaFileObject {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    MemoryClassFile(String className) {
+        super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+        return bytes;
+    }
+
+    byte[] getBytes() {
+        return bytes.toByteArray();
+    }
+}
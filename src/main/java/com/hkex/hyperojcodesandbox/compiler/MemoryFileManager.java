@@ -0,0 +1,48 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 把编译产物收集到内存的文件管理器
+ * 平台类的查找委托给池化复用的StandardJavaFileManager，其内部缓存随之保持热状态
+ */
+class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final Map<String, MemoryClassFile> classFiles = new LinkedHashMap<>();
+
+    MemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                               FileObject sibling) {
+        MemoryClassFile classFile = new MemoryClassFile(className);
+        classFiles.put(className, classFile);
+        return classFile;
+    }
+
+    /**
+     * 获取编译出的所有类
+     * @return 类名到字节码的映射
+     */
+    Map<String, byte[]> getClasses() {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (Map.Entry<String, MemoryClassFile> entry : classFiles.entrySet()) {
+            classes.put(entry.getKey(), entry.getValue().getBytes());
+        }
+        return classes;
+    }
+
+    /**
+     * 被委托的文件管理器需要归还到池中复用，这里不关闭它
+     */
+    @Override
+    public void close() {
+    }
+}
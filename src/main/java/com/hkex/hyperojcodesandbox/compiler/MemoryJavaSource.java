@@ -0,0 +1,22 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+
+/**
+ * 内存中的Java源码
+ */
+class MemoryJavaSource extends SimpleJavaFileObject {
+
+    private final String code;
+
+    MemoryJavaSource(String className, String code) {
+        super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+        this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+    }
+}
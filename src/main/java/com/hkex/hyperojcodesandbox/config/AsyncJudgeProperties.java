@@ -0,0 +1,39 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 异步判题配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.async")
+public class AsyncJudgeProperties {
+
+    /**
+     * 判题线程数，即异步接口同时判题的最大提交数
+     */
+    private int poolSize = 4;
+
+    /**
+     * 等待判题线程的最大提交数，超出时拒绝
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 异步执行接口等待结果的最长时间（毫秒），超时返回503，判题仍在后台完成
+     */
+    private long requestTimeout = 60 * 1000L;
+
+    /**
+     * 提交任务保留的最多个数，超出后淘汰最久未使用的
+     */
+    private int maxJobs = 10000;
+
+    /**
+     * 提交任务的保留时间（毫秒），超出后无法查询
+     */
+    private long jobTtl = 10 * 60 * 1000L;
+}
@@ -0,0 +1,36 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 编译缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.compiler.cache")
+public class CompileCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 内存缓存的最大字节数（按类字节码与诊断信息估算）
+     */
+    private long memoryLimit = 64 * 1024 * 1024L;
+
+    /**
+     * 是否启用磁盘缓存，重启后仍可命中
+     */
+    private boolean diskEnabled = false;
+
+    /**
+     * 磁盘缓存目录
+     */
+    private String diskDir = "tmpCode/compile-cache";
+
+    /**
+     * 磁盘缓存最多保留的条目数，超出后删除最早写入的条目
+     */
+    private int diskMaxEntries = 10000;
+}
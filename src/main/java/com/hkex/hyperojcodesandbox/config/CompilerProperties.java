@@ -0,0 +1,38 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 编译配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.compiler")
+public class CompilerProperties {
+
+    /**
+     * 是否在进程内用javax.tools编译，关闭或运行在JRE上时退回javac进程
+     */
+    private boolean inMemory = true;
+
+    /**
+     * 同时进行的编译数
+     */
+    private int concurrency = 4;
+
+    /**
+     * 单次编译（含排队）的超时时间（毫秒）
+     */
+    private long timeout = 10000L;
+
+    /**
+     * 编译参数
+     */
+    private List<String> options = new ArrayList<>(Arrays.asList("-source", "8", "-target", "8", "-proc:none", "-Xlint:-options"));
+}
@@ -0,0 +1,51 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * 容器池配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.docker.pool")
+public class ContainerPoolProperties {
+
+    /**
+     * 常驻的最少容器数
+     */
+    private int minSize = 2;
+
+    /**
+     * 允许同时存在的最多容器数
+     */
+    private int maxSize = 8;
+
+    /**
+     * 租借容器的最长等待时间（毫秒）
+     */
+    private long leaseTimeout = 10000L;
+
+    /**
+     * 后台健康检查的间隔（毫秒），检查后也会补足创建失败的容器
+     */
+    private long maintainInterval = 30000L;
+
+    /**
+     * 单个容器最多被租借的次数，超过后销毁重建
+     */
+    private int maxUses = 200;
+
+    /**
+     * 容器工作目录的根目录（相对于user.dir）
+     */
+    private String workspaceRoot = "tmpCode" + File.separator + "pool";
+
+    /**
+     * 判题运行器类的导出目录（相对于user.dir），只读挂载到容器内的/runner
+     */
+    private String runnerDir = "tmpCode" + File.separator + "runner";
+}
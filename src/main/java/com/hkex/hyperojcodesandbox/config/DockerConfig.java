@@ -0,0 +1,19 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DockerClientBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DockerConfig {
+
+    /**
+     * Docker客户端（全局单例复用）
+     * @return Docker客户端
+     */
+    @Bean
+    public DockerClient dockerClient() {
+        return DockerClientBuilder.getInstance().build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import com.hkex.hyperojcodesandbox.model.enums.RunModeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Docker沙箱配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.docker")
+public class DockerSandboxProperties {
+
+    /**
+     * 单次提交最多同时运行的用例数，每个并发用例独占一个池化容器，1表示顺序执行
+     */
+    private int parallelism = 1;
+
+    /**
+     * 用例运行方式：EXEC每个用例启动一个JVM，BATCH一个JVM内依次运行所有用例，AGENT由容器内常驻JVM运行用例
+     */
+    private RunModeEnum runMode = RunModeEnum.EXEC;
+
+    /**
+     * 宿主机cgroup v2挂载点，用于按用例统计资源
+     */
+    private String cgroupRoot = "/sys/fs/cgroup";
+}
@@ -0,0 +1,57 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 运行用户程序的JVM参数配置（面向短时运行程序）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.jvm")
+public class JvmProfileProperties {
+
+    /**
+     * 是否启用短时程序参数，关闭时只保留堆大小限制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 分层编译的最高层级，1表示只用C1编译，启动更快；为空时不限制
+     */
+    private Integer tieredStopAtLevel = 1;
+
+    /**
+     * 使用串行GC，启动与内存开销最小，也是JDK8下CDS唯一支持的GC
+     */
+    private boolean serialGc = true;
+
+    /**
+     * 线程栈大小（-Xss），递归较深的题目需要较大的栈
+     */
+    private String stackSize = "64m";
+
+    /**
+     * 请求未指定内存限制时的最大堆（MB）
+     */
+    private long defaultHeap = 256;
+
+    /**
+     * 是否使用类共享归档（CDS）减少类加载开销
+     */
+    private boolean cdsEnabled = true;
+
+    /**
+     * 类共享归档的存放目录
+     */
+    private String cdsDir = "tmpCode/cds";
+
+    /**
+     * 附加的JVM参数
+     */
+    private List<String> extraOptions = new ArrayList<>();
+}
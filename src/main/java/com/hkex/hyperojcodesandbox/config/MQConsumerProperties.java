@@ -0,0 +1,89 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import com.hkex.hyperojcodesandbox.model.enums.SubmissionLaneEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 代码执行队列的消费配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.mq")
+public class MQConsumerProperties {
+
+    /**
+     * 最少消费者数
+     */
+    private int concurrency = 1;
+
+    /**
+     * 最多消费者数，即本节点同时判题的最大提交数（各通道合计）
+     */
+    private int maxConcurrency = 4;
+
+    /**
+     * 每个消费者预取的消息数，为1时消费者在判完当前提交前不会再取消息
+     */
+    private int prefetch = 1;
+
+    /**
+     * 按空闲容量调整消费者数的检查间隔（毫秒）
+     */
+    private long capacityCheckInterval = 1000L;
+
+    /**
+     * 单次提交预计占用的内存（MB），用于按可用内存估算容量
+     */
+    private long memoryPerExecution = 256L;
+
+    /**
+     * 为系统与沙箱自身保留的内存（MB），不计入可用容量
+     */
+    private long memoryReserve = 512L;
+
+    /**
+     * 比赛通道
+     */
+    private Lane contest = new Lane(3, 1);
+
+    /**
+     * 练习通道
+     */
+    private Lane practice = new Lane(1, 0);
+
+    /**
+     * 获取通道配置
+     * @param lane 通道
+     * @return 通道配置
+     */
+    public Lane getLane(SubmissionLaneEnum lane) {
+        return lane == SubmissionLaneEnum.CONTEST ? contest : practice;
+    }
+
+    /**
+     * 通道配置
+     */
+    @Data
+    public static class Lane {
+
+        /**
+         * 权重，多个通道都有积压时按权重分配空闲容量
+         */
+        private int weight;
+
+        /**
+         * 为本通道预留的判题数，其他通道不能占用
+         */
+        private int reserved;
+
+        public Lane() {
+        }
+
+        public Lane(int weight, int reserved) {
+            this.weight = weight;
+            this.reserved = reserved;
+        }
+    }
+}
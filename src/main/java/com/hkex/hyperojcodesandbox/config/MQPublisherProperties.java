@@ -0,0 +1,44 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 执行结果的发布配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.mq-publisher")
+public class MQPublisherProperties {
+
+    /**
+     * 待发布消息的缓冲区容量
+     */
+    private int bufferSize = 10000;
+
+    /**
+     * 每批发布的最大消息数，一批只等待一次确认
+     */
+    private int batchSize = 64;
+
+    /**
+     * 缓冲区满时发送方等待的最长时间（毫秒），超时后丢弃该消息
+     */
+    private long offerTimeout = 1000L;
+
+    /**
+     * 等待一批消息被确认的最长时间（毫秒）
+     */
+    private long confirmTimeout = 5000L;
+
+    /**
+     * 一批消息最多发布的次数，均未被确认时丢弃
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * 发布失败后重试的间隔（毫秒）
+     */
+    private long retryInterval = 500L;
+}
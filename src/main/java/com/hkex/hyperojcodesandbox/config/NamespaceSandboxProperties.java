@@ -0,0 +1,54 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 命名空间沙箱配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.namespace")
+public class NamespaceSandboxProperties {
+
+    /**
+     * 是否启用命名空间沙箱，未启用时不会在宿主机上创建cgroup节点或开启控制器
+     */
+    private boolean enabled = false;
+
+    /**
+     * 用户程序使用的JDK目录，只读挂载到沙箱内/jdk，为空时使用沙箱自身的java.home
+     */
+    private String jdkHome;
+
+    /**
+     * 宿主机cgroup v2挂载点
+     */
+    private String cgroupRoot = "/sys/fs/cgroup";
+
+    /**
+     * 每次执行的cgroup叶子节点所在的父节点（相对cgroupRoot）
+     */
+    private String cgroupParent = "hyperoj-sandbox";
+
+    /**
+     * 单次执行最多进程/线程数(pids.max)
+     */
+    private long pidsMax = 64L;
+
+    /**
+     * CPU带宽限制(cpu.max)，格式为"配额 周期"（微秒），默认限制为一个CPU
+     */
+    private String cpuMax = "100000 100000";
+
+    /**
+     * 最大堆之外允许的JVM开销(MB)，与最大堆之和作为memory.max
+     */
+    private long memoryOverhead = 64L;
+
+    /**
+     * 沙箱内根目录与/tmp的tmpfs大小
+     */
+    private String tmpSize = "16m";
+}
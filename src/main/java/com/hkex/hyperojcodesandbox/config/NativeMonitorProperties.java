@@ -0,0 +1,24 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地沙箱进程监控配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.native-monitor")
+public class NativeMonitorProperties {
+
+    /**
+     * 采样间隔（毫秒）
+     */
+    private long sampleInterval = 10L;
+
+    /**
+     * 内存限制之外允许的JVM自身开销(MB)，最大堆已按内存限制设置，常驻内存超过两者之和时结束进程
+     */
+    private long memoryOverhead = 64L;
+}
@@ -0,0 +1,36 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * 本地沙箱预启动判题JVM池配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.native-worker")
+public class NativeWorkerProperties {
+
+    /**
+     * 是否启用，关闭时本地沙箱为每个用例启动一个JVM
+     */
+    private boolean enabled = false;
+
+    /**
+     * 保持的预启动JVM数
+     */
+    private int size = 4;
+
+    /**
+     * 后台补充与健康检查的间隔（毫秒）
+     */
+    private long maintainInterval = 30000L;
+
+    /**
+     * 判题运行器类的导出目录（相对于user.dir）
+     */
+    private String runnerDir = "tmpCode" + File.separator + "native-runner";
+}
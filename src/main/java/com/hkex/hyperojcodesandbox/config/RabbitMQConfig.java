@@ -1,6 +1,9 @@
 package com.hkex.hyperojcodesandbox.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
@@ -14,6 +17,15 @@ public class RabbitMQConfig {
     public static final String CODE_EXECUTE_QUEUE = "code.execute.producer";
     public static final String CODE_EXECUTE_RESULT_QUEUE = "code.execute.consumer";
 
+    // 比赛提交队列名称与路由键，路由键不以code.execute开头，不会同时进入练习队列
+    public static final String CODE_EXECUTE_CONTEST_QUEUE = "code.execute.contest";
+    public static final String CODE_EXECUTE_CONTEST_ROUTING = "code.contest.#";
+
+    // 代码执行请求监听容器的ID与容器工厂名称
+    public static final String CODE_EXECUTE_LISTENER_ID = "codeExecuteListener";
+    public static final String CODE_EXECUTE_CONTEST_LISTENER_ID = "codeExecuteContestListener";
+    public static final String CODE_EXECUTE_LISTENER_FACTORY = "codeExecuteListenerFactory";
+
     /**
      * 代码执行队列
      * @return 代码执行队列
@@ -24,6 +36,15 @@ public class RabbitMQConfig {
         return QueueBuilder.durable(CODE_EXECUTE_QUEUE).build();
     }
 
+    /**
+     * 比赛提交队列
+     * @return 比赛提交队列
+     */
+    @Bean
+    public Queue codeExecuteContestQueue() {
+        return QueueBuilder.durable(CODE_EXECUTE_CONTEST_QUEUE).build();
+    }
+
     /**
      * 队列结果队列
      * @return 队列结果队列
@@ -43,6 +64,26 @@ public class RabbitMQConfig {
         return new Jackson2JsonMessageConverter();
     }
 
+    /**
+     * 代码执行请求的监听容器工厂，各通道的监听容器共用
+     * 消费者数在concurrency~maxConcurrency之间，由CapacityGovernor按节点空闲容量与通道权重调整；预取数较小，避免把处理不了的消息取到本节点
+     * @param configurer spring.rabbitmq.listener.simple.*配置
+     * @param connectionFactory 连接工厂
+     * @param mqConsumerProperties 消费配置
+     * @return 容器工厂
+     */
+    @Bean(CODE_EXECUTE_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory codeExecuteListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            MQConsumerProperties mqConsumerProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(mqConsumerProperties.getConcurrency());
+        factory.setMaxConcurrentConsumers(mqConsumerProperties.getMaxConcurrency());
+        factory.setPrefetchCount(mqConsumerProperties.getPrefetch());
+        return factory;
+    }
+
     /**
      * 创建交换机
      * @return 创建交换机
@@ -62,4 +103,15 @@ public class RabbitMQConfig {
     public Binding codeEventBiding(Queue codeExecuteQueue, TopicExchange codeEventExchange){
         return BindingBuilder.bind(codeExecuteQueue).to(codeEventExchange).with("code.execute.#");
     }
+
+    /**
+     * 绑定比赛提交队列和交换机
+     * @param codeExecuteContestQueue 比赛提交队列
+     * @param codeEventExchange 交换机
+     * @return 绑定
+     */
+    @Bean
+    public Binding codeContestBiding(Queue codeExecuteContestQueue, TopicExchange codeEventExchange) {
+        return BindingBuilder.bind(codeExecuteContestQueue).to(codeEventExchange).with(CODE_EXECUTE_CONTEST_ROUTING);
+    }
 }
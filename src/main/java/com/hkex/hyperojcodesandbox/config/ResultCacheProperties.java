@@ -0,0 +1,29 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用例结果缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.result-cache")
+public class ResultCacheProperties {
+
+    /**
+     * 是否启用（默认关闭，重判时按需开启）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 最多缓存的用例结果数，超出后淘汰最久未使用的
+     */
+    private int maxEntries = 10000;
+
+    /**
+     * 结果的有效期（毫秒）
+     */
+    private long ttl = 60 * 60 * 1000L;
+}
@@ -0,0 +1,46 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import com.hkex.hyperojcodesandbox.model.enums.CaseOrderEnum;
+import com.hkex.hyperojcodesandbox.model.enums.InputModeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 沙箱通用配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox")
+public class SandboxProperties {
+
+    /**
+     * 单次提交允许的最大输出字节数（所有用例的标准输出与错误输出合计）
+     */
+    private long outputLimit = 16 * 1024 * 1024L;
+
+    /**
+     * 用例输入方式：ARGS作为程序参数，STDIN作为标准输入
+     */
+    private InputModeEnum inputMode = InputModeEnum.ARGS;
+
+    /**
+     * 默认是否快速失败：有用例失败后不再执行其余用例，可由请求覆盖
+     */
+    private boolean failFast = false;
+
+    /**
+     * 默认用例执行顺序，可由请求覆盖
+     */
+    private CaseOrderEnum caseOrder = CaseOrderEnum.INPUT;
+
+    /**
+     * 保留历史执行统计的用例数
+     */
+    private int caseHistorySize = 100000;
+
+    /**
+     * 是否合并执行内容相同的并发请求：后到的请求等待正在进行的执行并共用结果
+     */
+    private boolean singleFlight = true;
+}
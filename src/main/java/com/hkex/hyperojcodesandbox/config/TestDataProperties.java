@@ -0,0 +1,19 @@
+package com.hkex.hyperojcodesandbox.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 测试数据仓库配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox.test-data")
+public class TestDataProperties {
+
+    /**
+     * 仓库根目录（相对工作目录），重启后保留
+     */
+    private String dir = "testData";
+}
@@ -1,16 +1,35 @@
 package com.hkex.hyperojcodesandbox.controller;
 
 import com.hkex.hyperojcodesandbox.JavaDockerCodeSandBoxTemplateImpl;
+import com.hkex.hyperojcodesandbox.compiler.CompileCache;
+import com.hkex.hyperojcodesandbox.compiler.CompileCacheStats;
+import com.hkex.hyperojcodesandbox.config.AsyncJudgeProperties;
+import com.hkex.hyperojcodesandbox.job.JudgeJobService;
+import com.hkex.hyperojcodesandbox.listener.CapacityGovernor;
+import com.hkex.hyperojcodesandbox.listener.LaneStats;
 import com.hkex.hyperojcodesandbox.model.ExecuteCodeRequest;
 import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import com.hkex.hyperojcodesandbox.model.JudgeJob;
+import com.hkex.hyperojcodesandbox.testdata.TestDataStore;
+import com.hkex.hyperojcodesandbox.testdata.TestDataVersion;
+import com.hkex.hyperojcodesandbox.utils.MQPublisherStats;
+import com.hkex.hyperojcodesandbox.utils.MQUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController("/")
 public class MainController {
@@ -22,11 +41,56 @@ public class MainController {
     @Resource
     private JavaDockerCodeSandBoxTemplateImpl javaCodeSandBox;
 
+    @Resource
+    private CompileCache compileCache;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private MQUtils mqUtils;
+
+    @Resource
+    private CapacityGovernor capacityGovernor;
+
+    @Resource
+    private JudgeJobService judgeJobService;
+
+    @Resource
+    private AsyncJudgeProperties asyncJudgeProperties;
+
     @GetMapping("/health")
     public String health() {
         return "OK";
     }
 
+    /**
+     * 编译缓存命中统计
+     * @return 统计信息
+     */
+    @GetMapping("/compileCache/stats")
+    public CompileCacheStats compileCacheStats() {
+        return compileCache.getStats();
+    }
+
+    /**
+     * 结果发布统计
+     * @return 统计信息
+     */
+    @GetMapping("/mq/publisher/stats")
+    public MQPublisherStats mqPublisherStats() {
+        return mqUtils.getStats();
+    }
+
+    /**
+     * 各通道的消费与排队时间统计
+     * @return 统计信息
+     */
+    @GetMapping("/mq/lanes/stats")
+    public List<LaneStats> mqLaneStats() {
+        return capacityGovernor.getLaneStats();
+    }
+
     /**
      * 执行代码接口
      * @param executeCodeRequest
@@ -35,9 +99,7 @@ public class MainController {
     @PostMapping("/executeCode")
     ExecuteCodeResponse executeCode(@RequestBody ExecuteCodeRequest executeCodeRequest, HttpServletRequest request,
                                     HttpServletResponse response) {
-        String authHeader = request.getHeader(AUTH_REQUEST_HEADER);
-        if(!authHeader.equals(AUTH_REQUEST_SECRET)){
-            response.setStatus(403);
+        if(!checkAuth(request, response)){
             return null;
         }
         if(executeCodeRequest == null){
@@ -45,4 +107,128 @@ public class MainController {
         }
         return javaCodeSandBox.executeCode(executeCodeRequest);
     }
+
+    /**
+     * 异步执行代码接口，与/executeCode的请求和结果相同，判题在判题线程中进行，不占用请求线程
+     * 超过sandbox.async.request-timeout仍未完成时返回503
+     * @param executeCodeRequest 执行代码请求
+     * @return 执行结果
+     */
+    @PostMapping("/executeCode/async")
+    DeferredResult<ExecuteCodeResponse> executeCodeAsync(@RequestBody ExecuteCodeRequest executeCodeRequest,
+                                                         HttpServletRequest request, HttpServletResponse response) {
+        if(!checkAuth(request, response)){
+            return null;
+        }
+        if(executeCodeRequest == null){
+            throw new RuntimeException("参数为空");
+        }
+        DeferredResult<ExecuteCodeResponse> deferredResult = new DeferredResult<>(asyncJudgeProperties.getRequestTimeout());
+        judgeJobService.execute(executeCodeRequest).whenComplete((executeCodeResponse, e) -> {
+            if (e != null) {
+                deferredResult.setErrorResult(e.getCause() != null ? e.getCause() : e);
+            } else {
+                deferredResult.setResult(executeCodeResponse);
+            }
+        });
+        return deferredResult;
+    }
+
+    /**
+     * 提交判题任务，立即返回任务ID，之后通过GET /executeCode/jobs/{jobId}查询结果
+     * @param executeCodeRequest 执行代码请求
+     * @return 任务
+     */
+    @PostMapping("/executeCode/jobs")
+    JudgeJob submitJob(@RequestBody ExecuteCodeRequest executeCodeRequest, HttpServletRequest request,
+                       HttpServletResponse response) {
+        if(!checkAuth(request, response)){
+            return null;
+        }
+        if(executeCodeRequest == null){
+            throw new RuntimeException("参数为空");
+        }
+        return judgeJobService.submit(executeCodeRequest);
+    }
+
+    /**
+     * 查询判题任务，任务不存在或已过期时返回404
+     * @param jobId 任务ID
+     * @return 任务
+     */
+    @GetMapping("/executeCode/jobs/{jobId}")
+    JudgeJob getJob(@PathVariable String jobId, HttpServletRequest request, HttpServletResponse response) {
+        if(!checkAuth(request, response)){
+            return null;
+        }
+        JudgeJob job = judgeJobService.getJob(jobId);
+        if (job == null) {
+            response.setStatus(404);
+        }
+        return job;
+    }
+
+    /**
+     * 上传题目测试数据，内容相同的上传返回已有版本
+     * @param problemId 题目ID
+     * @param inputs 各用例输入文件（按用例顺序）
+     * @param outputs 各用例期望输出文件（按用例顺序），可选
+     * @return 版本信息
+     */
+    @PostMapping("/testData/{problemId}")
+    TestDataVersion uploadTestData(@PathVariable String problemId, @RequestParam("inputs") MultipartFile[] inputs,
+                                   @RequestParam(value = "outputs", required = false) MultipartFile[] outputs,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if(!checkAuth(request, response)){
+            return null;
+        }
+        List<InputStream> inputStreams = new ArrayList<>();
+        List<InputStream> outputStreams = new ArrayList<>();
+        try {
+            for (MultipartFile input : inputs) {
+                inputStreams.add(input.getInputStream());
+            }
+            if (outputs != null) {
+                for (MultipartFile output : outputs) {
+                    outputStreams.add(output.getInputStream());
+                }
+            }
+            return testDataStore.save(problemId, inputStreams, outputStreams);
+        } finally {
+            for (InputStream in : inputStreams) {
+                in.close();
+            }
+            for (InputStream out : outputStreams) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * 查询题目测试数据版本
+     * @param problemId 题目ID
+     * @param version 版本号，为空时查询最新版本
+     * @return 版本信息
+     */
+    @GetMapping("/testData/{problemId}")
+    TestDataVersion getTestData(@PathVariable String problemId, @RequestParam(value = "version", required = false) String version,
+                                HttpServletRequest request, HttpServletResponse response) {
+        if(!checkAuth(request, response)){
+            return null;
+        }
+        return testDataStore.getVersion(problemId, version);
+    }
+
+    /**
+     * 校验鉴权请求头，不通过时返回403
+     * @return 是否通过
+     */
+    private boolean checkAuth(HttpServletRequest request, HttpServletResponse response) {
+        String authHeader = request.getHeader(AUTH_REQUEST_HEADER);
+        if(!AUTH_REQUEST_SECRET.equals(authHeader)){
+            response.setStatus(403);
+            return false;
+        }
+        return true;
+    }
 }
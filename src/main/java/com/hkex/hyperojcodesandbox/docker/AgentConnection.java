@@ -0,0 +1,331 @@
+package com.hkex.hyperojcodesandbox.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.hkex.hyperojcodesandbox.runner.CaseResult;
+import com.hkex.hyperojcodesandbox.runner.JudgeAgent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 与常驻判题代理（JudgeAgent）的连接
+ * 容器内的代理通过docker attach复用容器1号进程的标准输入输出，本地预启动的代理直接使用子进程的管道，
+ * 一问一答，同一时刻只处理一个请求
+ * 请求超时或响应无法解析时连接标记为不可用，由所在的池销毁对应容器或进程
+ */
+@Slf4j
+public class AgentConnection implements Closeable {
+
+    private final String containerId;
+
+    private final BlockingQueueInputStream stdin = new BlockingQueueInputStream();
+
+    private final BlockingQueue<byte[]> responses = new LinkedBlockingQueue<>();
+
+    /**
+     * 尚未凑成完整帧的标准输出数据
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    /**
+     * docker attach的回调，本地进程时为null
+     */
+    private final ResultCallback.Adapter<Frame> callback;
+
+    /**
+     * 本地代理进程的标准输入，容器时为null
+     */
+    private final OutputStream processStdin;
+
+    private volatile boolean broken = false;
+
+    private AgentConnection(DockerClient dockerClient, String containerId) {
+        this.containerId = containerId;
+        this.processStdin = null;
+        this.callback = dockerClient.attachContainerCmd(containerId)
+                .withStdIn(stdin)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withFollowStream(true)
+                .exec(new ResultCallback.Adapter<Frame>() {
+                    @Override
+                    public void onNext(Frame frame) {
+                        if (frame.getStreamType() == StreamType.STDERR) {
+                            log.warn("判题代理{}错误输出：{}", containerId,
+                                    new String(frame.getPayload(), StandardCharsets.UTF_8).trim());
+                        } else {
+                            onStdout(frame.getPayload());
+                        }
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        broken = true;
+                        super.onComplete();
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        broken = true;
+                        super.onError(throwable);
+                    }
+                });
+    }
+
+    private AgentConnection(Process process, String name) {
+        this.containerId = name;
+        this.callback = null;
+        this.processStdin = process.getOutputStream();
+        Thread stdoutReader = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try (InputStream in = process.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    onStdout(Arrays.copyOf(buffer, read));
+                }
+            } catch (IOException e) {
+                log.debug("读取判题代理{}输出失败", name, e);
+            } finally {
+                broken = true;
+            }
+        }, "agent-reader-" + name);
+        stdoutReader.setDaemon(true);
+        stdoutReader.start();
+        Thread stderrReader = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.warn("判题代理{}错误输出：{}", name, line);
+                }
+            } catch (IOException e) {
+                log.debug("读取判题代理{}错误输出失败", name, e);
+            }
+        }, "agent-stderr-" + name);
+        stderrReader.setDaemon(true);
+        stderrReader.start();
+    }
+
+    /**
+     * 连接本地启动的判题代理进程
+     * @param process 运行JudgeAgent的进程
+     * @param name 代理名称（用于日志）
+     * @return 连接
+     */
+    public static AgentConnection connect(Process process, String name) {
+        return new AgentConnection(process, name);
+    }
+
+    /**
+     * 附加到容器内的判题代理
+     * @param dockerClient docker客户端
+     * @param containerId 容器ID
+     * @return 连接
+     */
+    public static AgentConnection attach(DockerClient dockerClient, String containerId) {
+        return new AgentConnection(dockerClient, containerId);
+    }
+
+    /**
+     * 连接是否可用
+     * @return 是否可用
+     */
+    public boolean isAvailable() {
+        return !broken;
+    }
+
+    /**
+     * 探测代理是否存活
+     * @param timeout 超时时间（毫秒）
+     * @return 是否存活
+     */
+    public boolean ping(long timeout) {
+        try {
+            DataInputStream response = request(new byte[]{JudgeAgent.TYPE_PING}, timeout);
+            return response.readByte() == JudgeAgent.TYPE_OK;
+        } catch (IOException e) {
+            log.debug("判题代理{}探测失败：{}", containerId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 提交结束后检查代理能否继续复用，同时释放本次提交加载的类
+     * @param timeout 超时时间（毫秒）
+     * @return 不能复用的原因，可以复用时为null
+     */
+    public String checkClean(long timeout) {
+        try {
+            DataInputStream response = request(new byte[]{JudgeAgent.TYPE_CHECK}, timeout);
+            expectType(response, JudgeAgent.TYPE_OK);
+            String reason = response.readUTF();
+            return reason.isEmpty() ? null : reason;
+        } catch (IOException e) {
+            return "状态检查失败：" + e.getMessage();
+        }
+    }
+
+    /**
+     * 加载用户代码的所有类，之后的用例都在新的类加载器中使用这些类
+     * @param classes 类名到字节码的映射
+     * @param timeout 超时时间（毫秒）
+     */
+    public void loadClasses(Map<String, byte[]> classes, long timeout) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(JudgeAgent.TYPE_LOAD);
+        out.writeInt(classes.size());
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+        out.flush();
+        expectType(request(buffer.toByteArray(), timeout), JudgeAgent.TYPE_OK);
+    }
+
+    /**
+     * 运行一个用例
+     * @param index 用例下标
+     * @param args 程序参数
+     * @param stdinPath 容器内作为标准输入的文件路径，为空串时没有标准输入
+     * @param timeLimit CPU时间限制（毫秒），-1表示不限制
+     * @param wallTimeLimit 墙钟时间限制（毫秒）
+     * @param outputLimit 输出上限（字节）
+     * @param timeout 等待响应的超时时间（毫秒）
+     * @return 用例结果
+     */
+    public CaseResult runCase(int index, String[] args, String stdinPath, long timeLimit, long wallTimeLimit,
+                              long outputLimit, long timeout) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(JudgeAgent.TYPE_RUN);
+        out.writeInt(index);
+        out.writeLong(timeLimit);
+        out.writeLong(wallTimeLimit);
+        out.writeLong(outputLimit);
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.writeUTF(stdinPath);
+        out.flush();
+        DataInputStream response = request(buffer.toByteArray(), timeout);
+        expectType(response, JudgeAgent.TYPE_RESULT);
+        return CaseResult.readFields(response);
+    }
+
+    /**
+     * 发送请求并等待响应
+     * @param payload 请求内容
+     * @param timeout 超时时间（毫秒）
+     * @return 响应内容
+     */
+    private synchronized DataInputStream request(byte[] payload, long timeout) throws IOException {
+        if (broken) {
+            throw new IOException("判题代理连接不可用");
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 4);
+        DataOutputStream out = new DataOutputStream(frame);
+        out.writeInt(payload.length);
+        out.write(payload);
+        if (processStdin != null) {
+            try {
+                frame.writeTo(processStdin);
+                processStdin.flush();
+            } catch (IOException e) {
+                broken = true;
+                throw e;
+            }
+        } else {
+            stdin.offer(frame.toByteArray());
+        }
+        byte[] response;
+        try {
+            response = responses.poll(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            broken = true;
+            throw new IOException("等待判题代理响应被中断", e);
+        }
+        if (response == null) {
+            // 超时后迟到的响应会错位，连接不能再使用
+            broken = true;
+            throw new IOException("等待判题代理响应超时");
+        }
+        return new DataInputStream(new ByteArrayInputStream(response));
+    }
+
+    private void expectType(DataInputStream response, byte expected) throws IOException {
+        byte type = response.readByte();
+        if (type == JudgeAgent.TYPE_ERROR) {
+            throw new IOException("判题代理处理失败：" + response.readUTF());
+        }
+        if (type != expected) {
+            broken = true;
+            throw new IOException("判题代理响应类型错误：" + type);
+        }
+    }
+
+    /**
+     * 按长度前缀切分标准输出中的响应帧
+     * @param data 标准输出数据
+     */
+    private void onStdout(byte[] data) {
+        // 回调线程独占pending，不能与等待响应的request共用同一把锁
+        synchronized (pending) {
+            splitFrames(data);
+        }
+    }
+
+    private void splitFrames(byte[] data) {
+        pending.write(data, 0, data.length);
+        byte[] buffered = pending.toByteArray();
+        int offset = 0;
+        while (buffered.length - offset >= 4) {
+            int length = ((buffered[offset] & 0xff) << 24) | ((buffered[offset + 1] & 0xff) << 16)
+                    | ((buffered[offset + 2] & 0xff) << 8) | (buffered[offset + 3] & 0xff);
+            if (length < 0) {
+                // 用户程序绕过重定向直接写了标准输出，协议已被破坏
+                broken = true;
+                log.warn("判题代理{}输出了无法解析的数据", containerId);
+                pending.reset();
+                return;
+            }
+            if (buffered.length - offset - 4 < length) {
+                break;
+            }
+            byte[] response = new byte[length];
+            System.arraycopy(buffered, offset + 4, response, 0, length);
+            responses.offer(response);
+            offset += 4 + length;
+        }
+        pending.reset();
+        pending.write(buffered, offset, buffered.length - offset);
+    }
+
+    @Override
+    public void close() {
+        broken = true;
+        try {
+            if (processStdin != null) {
+                // 代理读到标准输入结束后自行退出
+                processStdin.close();
+            } else {
+                stdin.close();
+                callback.close();
+            }
+        } catch (IOException e) {
+            log.debug("关闭判题代理{}连接失败", containerId, e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hkex.hyperojcodesandbox.docker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 由队列驱动的输入流，写入方任意线程offer数据块，读取方阻塞等待
+ * 用于向docker attach的标准输入持续写入数据（PipedInputStream要求写线程存活，不适合多线程写入）
+ */
+public class BlockingQueueInputStream extends InputStream {
+
+    private static final byte[] EOF = new byte[0];
+
+    private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+    private byte[] current;
+
+    private int position;
+
+    private volatile boolean closed;
+
+    /**
+     * 写入一块数据
+     * @param chunk 数据
+     */
+    public void offer(byte[] chunk) throws IOException {
+        if (closed) {
+            throw new IOException("输入流已关闭");
+        }
+        if (chunk.length > 0) {
+            chunks.offer(chunk);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (current == null || position >= current.length) {
+            try {
+                current = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("读取被中断", e);
+            }
+            position = 0;
+        }
+        if (current == EOF) {
+            chunks.offer(EOF);
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null || current == EOF ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            chunks.offer(EOF);
+        }
+    }
+}
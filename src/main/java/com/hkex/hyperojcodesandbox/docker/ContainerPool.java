@@ -0,0 +1,617 @@
+package com.hkex.hyperojcodesandbox.docker;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.*;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.exception.NotModifiedException;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.PullResponseItem;
+import com.github.dockerjava.api.model.Volume;
+import com.hkex.hyperojcodesandbox.config.ContainerPoolProperties;
+import com.hkex.hyperojcodesandbox.config.DockerSandboxProperties;
+import com.hkex.hyperojcodesandbox.jvm.CdsArchiveManager;
+import com.hkex.hyperojcodesandbox.jvm.JvmProfile;
+import com.hkex.hyperojcodesandbox.model.enums.RunModeEnum;
+import com.hkex.hyperojcodesandbox.runner.JudgeAgent;
+import com.hkex.hyperojcodesandbox.utils.RunnerClassUtils;
+import com.hkex.hyperojcodesandbox.testdata.TestDataStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Docker容器池
+ * 预先创建并启动好资源受限的容器，判题时租借、用完重置后归还，
+ * 容器的创建/销毁都放在后台线程完成，不占用请求耗时
+ */
+@Component
+@Slf4j
+public class ContainerPool {
+
+    public static final String IMAGE = "openjdk:8-jdk-alpine3.9";
+
+    /**
+     * 容器内代码目录
+     */
+    public static final String CONTAINER_CODE_PATH = "/code";
+
+    /**
+     * 容器内判题运行器目录
+     */
+    public static final String CONTAINER_RUNNER_PATH = "/runner";
+
+    /**
+     * 容器内类共享归档目录
+     */
+    public static final String CONTAINER_CDS_PATH = "/cds";
+
+    /**
+     * 容器内测试数据输入目录（只读）
+     */
+    public static final String CONTAINER_TEST_DATA_PATH = "/testdata";
+
+    private static final long MEMORY_LIMIT = 100 * 1000 * 1000L;
+
+    /**
+     * 容器内JVM的最大堆（MB），需为元空间、线程栈等堆外内存留出余量
+     */
+    public static final long MAX_HEAP = 64;
+
+    /**
+     * 重置容器时清理进程的超时时间（毫秒）
+     */
+    private static final long RESET_TIME_OUT = 3000L;
+
+    /**
+     * 等待判题代理JVM启动完成的超时时间（毫秒）
+     */
+    private static final long AGENT_START_TIME_OUT = 10000L;
+
+    @Resource
+    private DockerClient dockerClient;
+
+    @Resource
+    private ContainerPoolProperties poolProperties;
+
+    @Resource
+    private DockerSandboxProperties dockerSandboxProperties;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    @Resource
+    private TestDataStore testDataStore;
+
+    @Resource
+    private JvmProfile jvmProfile;
+
+    private String seccompProfile;
+
+    private File runnerDir;
+
+    /**
+     * 空闲容器（后进先出，优先复用刚归还的容器）
+     */
+    private final BlockingDeque<PooledContainer> idleContainers = new LinkedBlockingDeque<>();
+
+    /**
+     * 当前存在的容器总数（空闲+租借中+创建中）
+     */
+    private final AtomicInteger totalCount = new AtomicInteger(0);
+
+    /**
+     * 容器池的目标容器数，从minSize开始，租借时没有空闲容器则加一，最多到maxSize
+     */
+    private final AtomicInteger targetSize = new AtomicInteger(0);
+
+    private ScheduledExecutorService maintainExecutor;
+
+    private ExecutorService recycleExecutor;
+
+    private volatile boolean imageReady = false;
+
+    private volatile boolean cdsPrepared = false;
+
+    private volatile String imageId;
+
+    private volatile boolean closed = false;
+
+    /**
+     * 加载安全配置并启动后台维护任务
+     */
+    @PostConstruct
+    public void init() {
+        this.seccompProfile = ResourceUtil.readUtf8Str("profile.json");
+        if (this.seccompProfile.isEmpty()) {
+            throw new RuntimeException("安全配置文件profile.json为空");
+        }
+        this.runnerDir = RunnerClassUtils.export(new File(System.getProperty("user.dir"), poolProperties.getRunnerDir()));
+        this.maintainExecutor = Executors.newSingleThreadScheduledExecutor(r -> newDaemonThread(r, "container-pool-maintain"));
+        this.recycleExecutor = Executors.newFixedThreadPool(2, r -> newDaemonThread(r, "container-pool-recycle"));
+        this.targetSize.set(Math.min(poolProperties.getMinSize(), poolProperties.getMaxSize()));
+        maintainExecutor.scheduleWithFixedDelay(this::maintain, 0,
+                poolProperties.getMaintainInterval(), TimeUnit.MILLISECONDS);
+        log.info("Docker容器池初始化完成，镜像:{}，容量:{}~{}", IMAGE,
+                poolProperties.getMinSize(), poolProperties.getMaxSize());
+    }
+
+    /**
+     * 租借一个容器
+     * 只从空闲队列中取；没有空闲容器时调高目标容器数，由后台创建新容器，同时等待新建或归还的容器
+     * @return 容器
+     */
+    public PooledContainer lease() {
+        PooledContainer container = idleContainers.pollFirst();
+        if (container == null) {
+            growTarget();
+            try {
+                container = idleContainers.pollFirst(poolProperties.getLeaseTimeout(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待容器被中断", e);
+            }
+            if (container == null) {
+                throw new RuntimeException("容器池已耗尽，等待容器超时");
+            }
+        }
+        container.markLeased();
+        log.debug("租借容器{}，第{}次使用", container.getContainerId(), container.getUseCount());
+        return container;
+    }
+
+    /**
+     * 尝试租借一个空闲容器，没有空闲容器时立即返回null
+     * @return 容器
+     */
+    public PooledContainer tryLease() {
+        PooledContainer container = idleContainers.pollFirst();
+        if (container != null) {
+            container.markLeased();
+        }
+        return container;
+    }
+
+    /**
+     * 归还容器，在后台重置后放回空闲队列
+     * @param container 容器
+     */
+    public void release(PooledContainer container) {
+        recycleExecutor.execute(() -> {
+            if (container.getUseCount() >= poolProperties.getMaxUses() || !resetContainer(container)) {
+                destroyContainer(container);
+                return;
+            }
+            container.markReturned();
+            idleContainers.offerFirst(container);
+        });
+    }
+
+    /**
+     * 把编译好的代码放入容器工作目录
+     * @param container 容器
+     * @param codeDir 代码所在目录
+     */
+    public void loadCode(PooledContainer container, File codeDir) {
+        FileUtil.copyContent(codeDir, container.getWorkspace(), true);
+    }
+
+    /**
+     * 杀死容器内除1号进程外的所有进程
+     * @param containerId 容器ID
+     * @return 是否成功
+     */
+    public boolean killProcesses(String containerId) {
+        try {
+            ExecCreateCmdResponse cmdResponse = dockerClient.execCreateCmd(containerId)
+                    .withCmd("sh", "-c", "kill -9 -1")
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            return dockerClient.execStartCmd(cmdResponse.getId())
+                    .exec(new ResultCallback.Adapter<Frame>())
+                    .awaitCompletion(RESET_TIME_OUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("清理容器{}内进程失败", containerId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 判题镜像的ID（内容摘要）
+     * @return 镜像ID，镜像尚未就绪时为null
+     */
+    public String getImageId() {
+        return imageId;
+    }
+
+    /**
+     * 当前空闲容器数
+     * @return 空闲容器数
+     */
+    public int getIdleCount() {
+        return idleContainers.size();
+    }
+
+    /**
+     * 还能租借的容器数：空闲容器加上尚可新建的容器
+     * @return 空闲容量
+     */
+    public int getFreeCapacity() {
+        return poolProperties.getMaxSize() - totalCount.get() + idleContainers.size();
+    }
+
+    /**
+     * 当前容器总数
+     * @return 容器总数
+     */
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * 后台维护：拉取镜像、生成类共享归档、健康检查、补足最少容器数
+     */
+    private void maintain() {
+        try {
+            if (!imageReady) {
+                pullImage();
+                imageId = dockerClient.inspectImageCmd(IMAGE).exec().getId();
+                imageReady = true;
+            }
+            if (!cdsPrepared) {
+                // 归档生成失败也不再重试，用户程序退回不使用CDS运行
+                cdsArchiveManager.buildDockerArchive(runnerDir);
+                cdsPrepared = true;
+            }
+            checkIdleContainers();
+            replenish();
+        } catch (Exception e) {
+            log.warn("容器池维护失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 目标容器数加一（不超过maxSize），并在后台补足容器
+     */
+    private void growTarget() {
+        targetSize.getAndUpdate(target -> Math.min(target + 1, poolProperties.getMaxSize()));
+        replenish();
+    }
+
+    /**
+     * 容器总数不足目标时，在后台线程中创建容器补足
+     * 创建失败只释放名额，由下一次维护或销毁时再补
+     */
+    private void replenish() {
+        if (!imageReady || closed) {
+            return;
+        }
+        while (totalCount.get() < targetSize.get() && tryReserve()) {
+            try {
+                recycleExecutor.execute(() -> {
+                    try {
+                        PooledContainer container = createPooledContainer();
+                        if (closed) {
+                            destroyContainer(container);
+                        } else {
+                            idleContainers.offerLast(container);
+                        }
+                    } catch (RuntimeException e) {
+                        totalCount.decrementAndGet();
+                        log.warn("补充容器失败：{}", e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 容器池正在关闭
+                totalCount.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 检查空闲容器是否仍在运行，剔除异常容器
+     */
+    private void checkIdleContainers() {
+        List<PooledContainer> snapshot = new ArrayList<>(idleContainers);
+        for (PooledContainer container : snapshot) {
+            // 已被租走的容器不检查
+            if (!idleContainers.remove(container)) {
+                continue;
+            }
+            if (isHealthy(container)) {
+                idleContainers.offerLast(container);
+            } else {
+                log.warn("容器{}健康检查失败，准备销毁", container.getContainerId());
+                destroyContainer(container);
+            }
+        }
+    }
+
+    private boolean tryReserve() {
+        while (true) {
+            int current = totalCount.get();
+            if (current >= poolProperties.getMaxSize()) {
+                return false;
+            }
+            if (totalCount.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 重置容器：杀死残留进程、清空工作目录
+     * AGENT模式下用户代码运行在作为1号进程的代理JVM内（用户代码不能执行程序，不会有其他进程），代理JVM继续复用；
+     * 只有代理检查发现残留线程、被改动的全局状态或无法回收的堆内存，或连接已不可用时，才停止容器后重新启动代理
+     * @param container 容器
+     * @return 是否重置成功
+     */
+    private boolean resetContainer(PooledContainer container) {
+        AgentConnection connection = container.getAgentConnection();
+        if (connection != null) {
+            String reason = connection.checkClean(RESET_TIME_OUT);
+            if (reason == null) {
+                return FileUtil.clean(container.getWorkspace());
+            }
+            log.info("容器{}的判题代理不能复用（{}），重启代理", container.getContainerId(), reason);
+            return stopContainer(container) && FileUtil.clean(container.getWorkspace()) && restartAgent(container);
+        }
+        if (!killProcesses(container.getContainerId())) {
+            return false;
+        }
+        return FileUtil.clean(container.getWorkspace()) && isHealthy(container);
+    }
+
+    /**
+     * 关闭代理连接并立即停止容器（不等待进程自行退出）
+     * @param container 容器
+     * @return 是否已停止
+     */
+    private boolean stopContainer(PooledContainer container) {
+        container.getAgentConnection().close();
+        try {
+            dockerClient.stopContainerCmd(container.getContainerId()).withTimeout(0).exec();
+            return true;
+        } catch (NotModifiedException e) {
+            // 容器已经停止
+            return true;
+        } catch (Exception e) {
+            log.warn("停止容器{}失败", container.getContainerId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 重新附加并启动已停止的容器，等待新的判题代理就绪
+     * @param container 容器
+     * @return 代理是否就绪
+     */
+    private boolean restartAgent(PooledContainer container) {
+        String containerId = container.getContainerId();
+        try {
+            // 先attach再启动，代理启动后的输出不会丢失
+            container.setAgentConnection(AgentConnection.attach(dockerClient, containerId));
+            dockerClient.startContainerCmd(containerId).exec();
+        } catch (Exception e) {
+            log.warn("重启容器{}的判题代理失败", containerId, e);
+            return false;
+        }
+        return container.getAgentConnection().ping(AGENT_START_TIME_OUT);
+    }
+
+    /**
+     * 容器仍在运行，且AGENT模式下判题代理能正常响应
+     * @param container 容器
+     * @return 是否健康
+     */
+    private boolean isHealthy(PooledContainer container) {
+        AgentConnection connection = container.getAgentConnection();
+        if (connection != null && !connection.ping(RESET_TIME_OUT)) {
+            return false;
+        }
+        return isRunning(container.getContainerId());
+    }
+
+    private boolean isRunning(String containerId) {
+        try {
+            InspectContainerResponse response = dockerClient.inspectContainerCmd(containerId).exec();
+            return Boolean.TRUE.equals(response.getState().getRunning());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建并启动一个池化容器
+     * @return 容器
+     */
+    private PooledContainer createPooledContainer() {
+        String workspacePath = System.getProperty("user.dir") + File.separator
+                + poolProperties.getWorkspaceRoot() + File.separator + UUID.randomUUID();
+        File workspace = FileUtil.mkdir(workspacePath);
+        boolean agent = dockerSandboxProperties.getRunMode() == RunModeEnum.AGENT;
+        String containerId = null;
+        AgentConnection connection = null;
+        try {
+            containerId = createContainer(workspace.getAbsolutePath(), agent);
+            if (agent) {
+                // 先attach再启动，代理启动后的输出不会丢失
+                connection = AgentConnection.attach(dockerClient, containerId);
+            }
+            dockerClient.startContainerCmd(containerId).exec();
+            if (connection != null && !connection.ping(AGENT_START_TIME_OUT)) {
+                throw new RuntimeException("判题代理未能启动");
+            }
+        } catch (Exception e) {
+            if (connection != null) {
+                connection.close();
+            }
+            if (containerId != null) {
+                removeContainer(containerId);
+            }
+            FileUtil.del(workspace);
+            throw new RuntimeException("启动容器失败", e);
+        }
+        log.info("容器{}已加入容器池", containerId);
+        PooledContainer container = new PooledContainer(containerId, workspace);
+        container.setAgentConnection(connection);
+        return container;
+    }
+
+    /**
+     * 创建容器
+     * @param workspacePath 宿主机工作目录
+     * @param agent 是否以判题代理作为1号进程
+     * @return 容器ID
+     */
+    private String createContainer(String workspacePath, boolean agent) {
+        try {
+            HostConfig hostConfig = new HostConfig();
+            //挂载
+            List<Bind> binds = new ArrayList<>();
+            binds.add(new Bind(workspacePath, new Volume(CONTAINER_CODE_PATH)));
+            binds.add(new Bind(runnerDir.getAbsolutePath(), new Volume(CONTAINER_RUNNER_PATH), AccessMode.ro));
+            if (cdsArchiveManager.getDockerDir() != null) {
+                binds.add(new Bind(cdsArchiveManager.getDockerDir().getAbsolutePath(), new Volume(CONTAINER_CDS_PATH), AccessMode.ro));
+            }
+            binds.add(new Bind(testDataStore.getInputRoot().getAbsolutePath(), new Volume(CONTAINER_TEST_DATA_PATH), AccessMode.ro));
+            hostConfig.withBinds(binds);
+            //内存限制
+            hostConfig.withMemory(MEMORY_LIMIT);
+            //内存限制交换区
+            hostConfig.withMemorySwap(0L);
+            //创建安全策略
+            hostConfig.withSecurityOpts(Arrays.asList("seccomp=" + seccompProfile));
+            //cpu限制（CpuCount仅对Windows容器生效，Linux下需用NanoCPUs限制为1核）
+            hostConfig.withCpuCount(1L);
+            hostConfig.withNanoCPUs(1000000000L);
+            hostConfig.withReadonlyRootfs(true);
+            CreateContainerCmd containerCmd = dockerClient.createContainerCmd(IMAGE)
+                    .withHostConfig(hostConfig)
+                    .withNetworkDisabled(true)
+                    .withAttachStdin(true)
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .withStdinOpen(true)
+                    .withTty(!agent);
+            if (agent) {
+                // 代理通过标准输入输出传输二进制帧，不能分配tty
+                List<String> cmd = new ArrayList<>();
+                cmd.add("java");
+                cmd.addAll(jvmProfile.dockerOptions(null));
+                cmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", CONTAINER_RUNNER_PATH, JudgeAgent.class.getName()));
+                containerCmd.withStdInOnce(false).withCmd(cmd);
+            }
+
+            CreateContainerResponse containerResponse = containerCmd.exec();
+            String containerId = containerResponse.getId();
+            log.info("创建容器成功，ID:{}", containerId);
+            return containerId;
+        } catch (Exception e) {
+            throw new RuntimeException("创建容器失败", e);
+        }
+    }
+
+    /**
+     * 拉取镜像
+     */
+    private void pullImage() {
+        try {
+            ListImagesCmd listImagesCmd = dockerClient.listImagesCmd().withImageNameFilter(IMAGE);
+            if (!listImagesCmd.exec().isEmpty()) {
+                log.info("镜像{}已存在，无需拉取", IMAGE);
+                return;
+            }
+            //拉取镜像
+            PullImageCmd pullImageCmd = dockerClient.pullImageCmd(IMAGE);
+            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback() {
+                @Override
+                public void onNext(PullResponseItem item) {
+                    log.debug("镜像下载" + item.getStatus());
+                    super.onNext(item);
+                }
+            };
+            pullImageCmd
+                    .exec(pullImageResultCallback)
+                    .awaitCompletion();
+            log.info("下载完成");
+        } catch (InterruptedException e) {
+            log.error("拉取镜像异常");
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 销毁容器并释放名额，随后在后台补充新容器
+     * @param container 容器
+     */
+    private void destroyContainer(PooledContainer container) {
+        totalCount.decrementAndGet();
+        if (container.getAgentConnection() != null) {
+            container.getAgentConnection().close();
+        }
+        removeContainer(container.getContainerId());
+        FileUtil.del(container.getWorkspace());
+        replenish();
+    }
+
+    private void removeContainer(String containerId) {
+        try {
+            // 强制删除会直接杀死容器，无需先stop等待
+            dockerClient.removeContainerCmd(containerId)
+                    .withForce(true)
+                    .exec();
+            log.debug("容器{}已删除", containerId);
+        } catch (NotFoundException e) {
+            log.warn("容器{}不存在，无需删除", containerId);
+        } catch (Exception e) {
+            log.error("删除容器{}失败", containerId, e);
+        }
+    }
+
+    private static Thread newDaemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 关闭时销毁所有空闲容器
+     */
+    @PreDestroy
+    public void destroy() {
+        closed = true;
+        maintainExecutor.shutdownNow();
+        recycleExecutor.shutdown();
+        try {
+            recycleExecutor.awaitTermination(RESET_TIME_OUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PooledContainer container;
+        while ((container = idleContainers.pollFirst()) != null) {
+            destroyContainer(container);
+        }
+    }
+}
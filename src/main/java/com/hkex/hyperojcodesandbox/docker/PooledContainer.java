@@ -0,0 +1,55 @@
+package com.hkex.hyperojcodesandbox.docker;
+
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * 容器池中的容器
+ */
+@Getter
+public class PooledContainer {
+
+    /**
+     * 容器ID
+     */
+    private final String containerId;
+
+    /**
+     * 宿主机上的工作目录（挂载到容器内的/code）
+     */
+    private final File workspace;
+
+    /**
+     * 已被租借的次数
+     */
+    private int useCount;
+
+    /**
+     * 最近一次归还的时间
+     */
+    private long lastReturnTime;
+
+    /**
+     * 常驻判题代理的连接（仅AGENT模式）
+     */
+    private AgentConnection agentConnection;
+
+    public PooledContainer(String containerId, File workspace) {
+        this.containerId = containerId;
+        this.workspace = workspace;
+        this.lastReturnTime = System.currentTimeMillis();
+    }
+
+    void setAgentConnection(AgentConnection agentConnection) {
+        this.agentConnection = agentConnection;
+    }
+
+    void markLeased() {
+        useCount++;
+    }
+
+    void markReturned() {
+        lastReturnTime = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,139 @@
+package com.hkex.hyperojcodesandbox.job;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.bean.BeanUtil;
+import com.hkex.hyperojcodesandbox.JavaDockerCodeSandBoxTemplateImpl;
+import com.hkex.hyperojcodesandbox.config.AsyncJudgeProperties;
+import com.hkex.hyperojcodesandbox.model.ExecuteCodeRequest;
+import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import com.hkex.hyperojcodesandbox.model.JudgeJob;
+import com.hkex.hyperojcodesandbox.model.enums.JudgeJobStatusEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步判题
+ * 在独立的判题线程池中执行，HTTP线程提交后即返回；线程池与等待队列都有上限，满时直接拒绝而不是无限排队。
+ * 提交的任务按ID保留一段时间供查询结果
+ */
+@Component
+@Slf4j
+public class JudgeJobService {
+
+    @Resource
+    private JavaDockerCodeSandBoxTemplateImpl codeSandBox;
+
+    @Resource
+    private AsyncJudgeProperties asyncJudgeProperties;
+
+    private ThreadPoolExecutor judgeExecutor;
+
+    private LRUCache<String, JudgeJob> jobs;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        judgeExecutor = new ThreadPoolExecutor(asyncJudgeProperties.getPoolSize(), asyncJudgeProperties.getPoolSize(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(asyncJudgeProperties.getQueueCapacity()), r -> {
+            Thread thread = new Thread(r, "judge-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        jobs = CacheUtil.newLRUCache(asyncJudgeProperties.getMaxJobs(), asyncJudgeProperties.getJobTtl());
+    }
+
+    /**
+     * 在判题线程中执行代码
+     * @param executeCodeRequest 执行代码请求
+     * @return 执行结果，判题队列已满时以异常结束
+     */
+    public CompletableFuture<ExecuteCodeResponse> execute(ExecuteCodeRequest executeCodeRequest) {
+        try {
+            return CompletableFuture.supplyAsync(() -> codeSandBox.executeCode(executeCodeRequest), judgeExecutor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<ExecuteCodeResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(new RuntimeException("判题队列已满", e));
+            return future;
+        }
+    }
+
+    /**
+     * 提交判题任务，稍后按任务ID查询结果
+     * @param executeCodeRequest 执行代码请求
+     * @return 任务，判题队列已满时状态为FAILED
+     */
+    public JudgeJob submit(ExecuteCodeRequest executeCodeRequest) {
+        JudgeJob job = new JudgeJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setStatus(JudgeJobStatusEnum.QUEUED);
+        job.setSubmitTime(System.currentTimeMillis());
+        jobs.put(job.getJobId(), job);
+        try {
+            judgeExecutor.execute(() -> runJob(job, executeCodeRequest));
+        } catch (RejectedExecutionException e) {
+            finishJob(job, null, "判题队列已满");
+        }
+        return copy(job);
+    }
+
+    /**
+     * 查询判题任务
+     * @param jobId 任务ID
+     * @return 任务，不存在或已过期时返回null
+     */
+    public JudgeJob getJob(String jobId) {
+        JudgeJob job = jobs.get(jobId, false);
+        return job == null ? null : copy(job);
+    }
+
+    private void runJob(JudgeJob job, ExecuteCodeRequest executeCodeRequest) {
+        synchronized (job) {
+            job.setStatus(JudgeJobStatusEnum.RUNNING);
+        }
+        try {
+            finishJob(job, codeSandBox.executeCode(executeCodeRequest), null);
+        } catch (Exception e) {
+            log.error("判题任务{}执行失败", job.getJobId(), e);
+            finishJob(job, null, e.getMessage());
+        }
+    }
+
+    private void finishJob(JudgeJob job, ExecuteCodeResponse response, String message) {
+        synchronized (job) {
+            job.setStatus(response != null ? JudgeJobStatusEnum.FINISHED : JudgeJobStatusEnum.FAILED);
+            job.setResponse(response);
+            job.setMessage(message);
+            job.setFinishTime(System.currentTimeMillis());
+        }
+        // 完成后重新放入，保留时间从完成时算起
+        jobs.put(job.getJobId(), job);
+    }
+
+    /**
+     * 复制任务的当前状态，判题线程之后的修改不影响返回值
+     * @param job 任务
+     * @return 副本
+     */
+    private JudgeJob copy(JudgeJob job) {
+        synchronized (job) {
+            return BeanUtil.copyProperties(job, JudgeJob.class);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        judgeExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,221 @@
+package com.hkex.hyperojcodesandbox.jvm;
+
+import cn.hutool.core.io.FileUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.WaitContainerResultCallback;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Volume;
+import com.hkex.hyperojcodesandbox.config.JvmProfileProperties;
+import com.hkex.hyperojcodesandbox.docker.ContainerPool;
+import com.hkex.hyperojcodesandbox.runner.CdsWarmup;
+import com.hkex.hyperojcodesandbox.utils.RunnerClassUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 类共享归档（CDS）管理
+ * 启动时分别为本地JVM和判题镜像内的JVM生成归档：先运行预热程序导出常用类列表，再据此dump归档，
+ * 生成失败时退回JDK默认类列表，验证能以-Xshare:on加载后才交给运行参数使用
+ */
+@Component
+@Slf4j
+public class CdsArchiveManager {
+
+    public static final String ARCHIVE_NAME = "judge.jsa";
+
+    /**
+     * 生成归档的超时时间（毫秒）
+     */
+    private static final long BUILD_TIME_OUT = 120000L;
+
+    @Resource
+    private JvmProfileProperties jvmProfileProperties;
+
+    @Resource
+    private DockerClient dockerClient;
+
+    private File nativeDir;
+
+    private File dockerDir;
+
+    private volatile String nativeArchive;
+
+    private volatile boolean dockerArchiveReady = false;
+
+    /**
+     * 在后台生成本地JVM使用的归档，不阻塞启动
+     */
+    @PostConstruct
+    public void init() {
+        if (!jvmProfileProperties.isCdsEnabled()) {
+            return;
+        }
+        File root = new File(System.getProperty("user.dir"), jvmProfileProperties.getCdsDir());
+        this.nativeDir = FileUtil.mkdir(new File(root, "native"));
+        this.dockerDir = FileUtil.mkdir(new File(root, "docker"));
+        Thread thread = new Thread(this::buildNativeArchive, "cds-archive-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 本地JVM可用的归档路径
+     * @return 归档路径，尚未生成或生成失败时为null
+     */
+    public String getNativeArchive() {
+        return nativeArchive;
+    }
+
+    /**
+     * 判题镜像的归档是否可用
+     * @return 是否可用
+     */
+    public boolean isDockerArchiveReady() {
+        return dockerArchiveReady;
+    }
+
+    /**
+     * 宿主机上存放判题镜像归档的目录，挂载到容器内
+     * @return 目录，未启用CDS时为null
+     */
+    public File getDockerDir() {
+        return dockerDir;
+    }
+
+    /**
+     * 用判题镜像启动一个临时容器生成归档，需在镜像拉取完成后调用
+     * @param runnerDir 判题运行器类目录（包含预热程序）
+     */
+    public void buildDockerArchive(File runnerDir) {
+        if (dockerDir == null) {
+            return;
+        }
+        String cds = ContainerPool.CONTAINER_CDS_PATH;
+        String archive = cds + "/" + ARCHIVE_NAME;
+        String gc = String.join(" ", gcOptions());
+        String script = "rm -f " + archive
+                + " && (java " + gc + " -Xshare:off -XX:DumpLoadedClassList=" + cds + "/classlist.raw"
+                + " -cp " + ContainerPool.CONTAINER_RUNNER_PATH + " " + CdsWarmup.class.getName()
+                + " && grep -v hkex " + cds + "/classlist.raw > " + cds + "/classlist"
+                + " && java " + gc + " -Xshare:dump -XX:SharedClassListFile=" + cds + "/classlist"
+                + " -XX:SharedArchiveFile=" + archive
+                + " || java " + gc + " -Xshare:dump -XX:SharedArchiveFile=" + archive + ")"
+                + " && java " + gc + " -Xshare:on -XX:SharedArchiveFile=" + archive + " -version";
+        String containerId = null;
+        try {
+            HostConfig hostConfig = new HostConfig();
+            hostConfig.setBinds(new Bind(runnerDir.getAbsolutePath(), new Volume(ContainerPool.CONTAINER_RUNNER_PATH), AccessMode.ro),
+                    new Bind(dockerDir.getAbsolutePath(), new Volume(cds)));
+            containerId = dockerClient.createContainerCmd(ContainerPool.IMAGE)
+                    .withHostConfig(hostConfig)
+                    .withNetworkDisabled(true)
+                    .withCmd("sh", "-c", script)
+                    .exec()
+                    .getId();
+            dockerClient.startContainerCmd(containerId).exec();
+            Integer exitCode = dockerClient.waitContainerCmd(containerId)
+                    .exec(new WaitContainerResultCallback())
+                    .awaitStatusCode(BUILD_TIME_OUT, TimeUnit.MILLISECONDS);
+            dockerArchiveReady = exitCode != null && exitCode == 0;
+            if (dockerArchiveReady) {
+                log.info("判题镜像类共享归档生成完成");
+            } else {
+                log.warn("判题镜像类共享归档生成失败，退出码：{}", exitCode);
+            }
+        } catch (Exception e) {
+            log.warn("判题镜像类共享归档生成失败：{}", e.getMessage());
+        } finally {
+            if (containerId != null) {
+                try {
+                    dockerClient.removeContainerCmd(containerId).withForce(true).exec();
+                } catch (Exception e) {
+                    log.debug("删除归档容器{}失败", containerId, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成本地JVM使用的归档
+     */
+    private void buildNativeArchive() {
+        try {
+            File runnerDir = RunnerClassUtils.export(new File(nativeDir, "runner"));
+            File rawList = new File(nativeDir, "classlist.raw");
+            File classList = new File(nativeDir, "classlist");
+            File archive = new File(nativeDir, ARCHIVE_NAME);
+            File logFile = new File(nativeDir, "build.log");
+            FileUtil.del(archive);
+            FileUtil.del(logFile);
+            boolean dumped = runJava(logFile, "-Xshare:off", "-XX:DumpLoadedClassList=" + rawList.getAbsolutePath(),
+                    "-cp", runnerDir.getAbsolutePath(), CdsWarmup.class.getName())
+                    && filterClassList(rawList, classList)
+                    && runJava(logFile, "-Xshare:dump", "-XX:SharedClassListFile=" + classList.getAbsolutePath(),
+                    "-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            if (!dumped) {
+                dumped = runJava(logFile, "-Xshare:dump", "-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            }
+            if (dumped && runJava(logFile, "-Xshare:on", "-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-version")) {
+                nativeArchive = archive.getAbsolutePath();
+                log.info("本地类共享归档生成完成：{}", nativeArchive);
+            } else {
+                log.warn("本地类共享归档生成失败，详见{}", logFile.getAbsolutePath());
+            }
+        } catch (Exception e) {
+            log.warn("本地类共享归档生成失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 去掉预热程序自身的类，归档只包含JDK的类，不受用户程序classpath影响
+     */
+    private boolean filterClassList(File rawList, File classList) {
+        if (!rawList.isFile()) {
+            return false;
+        }
+        List<String> lines = FileUtil.readLines(rawList, StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.contains("hkex"))
+                .collect(Collectors.toList());
+        FileUtil.writeLines(lines, classList, StandardCharsets.UTF_8);
+        return !lines.isEmpty();
+    }
+
+    private boolean runJava(File logFile, String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(gcOptions());
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile))
+                .start();
+        if (!process.waitFor(BUILD_TIME_OUT, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            return false;
+        }
+        return process.exitValue() == 0;
+    }
+
+    /**
+     * 归档与运行时须使用相同的GC
+     */
+    private List<String> gcOptions() {
+        List<String> options = new ArrayList<>();
+        if (jvmProfileProperties.isEnabled() && jvmProfileProperties.isSerialGc()) {
+            options.add("-XX:+UseSerialGC");
+        }
+        return options;
+    }
+}
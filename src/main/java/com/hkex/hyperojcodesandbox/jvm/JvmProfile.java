@@ -0,0 +1,87 @@
+package com.hkex.hyperojcodesandbox.jvm;
+
+import com.hkex.hyperojcodesandbox.JavaNamespaceCodeSandBoxImpl;
+import com.hkex.hyperojcodesandbox.config.JvmProfileProperties;
+import com.hkex.hyperojcodesandbox.docker.ContainerPool;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 短时运行程序的JVM参数
+ * 判题程序通常只运行几百毫秒，JIT与GC的启动开销会计入运行时间，这里统一降低编译层级、
+ * 使用串行GC、关闭性能计数文件，并按请求的内存限制设置堆大小、挂上类共享归档
+ */
+@Component
+public class JvmProfile {
+
+    @Resource
+    private JvmProfileProperties jvmProfileProperties;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    /**
+     * 本地运行用户程序的JVM参数
+     * @param memoryLimit 内存限制（MB），为空时使用默认堆大小
+     * @return JVM参数
+     */
+    public List<String> nativeOptions(Long memoryLimit) {
+        return buildOptions(getHeapLimit(memoryLimit), cdsArchiveManager.getNativeArchive());
+    }
+
+    /**
+     * 命名空间沙箱内运行用户程序的JVM参数，归档目录挂载在沙箱内的固定位置
+     * @param memoryLimit 内存限制（MB），为空时使用默认堆大小
+     * @param cdsMounted 本地归档目录是否已挂载到沙箱内
+     * @return JVM参数
+     */
+    public List<String> namespaceOptions(Long memoryLimit, boolean cdsMounted) {
+        String archive = cdsMounted ? JavaNamespaceCodeSandBoxImpl.SANDBOX_CDS_PATH + "/" + CdsArchiveManager.ARCHIVE_NAME : null;
+        return buildOptions(getHeapLimit(memoryLimit), archive);
+    }
+
+    /**
+     * 用户程序的最大堆
+     * @param memoryLimit 内存限制（MB），为空时使用默认堆大小
+     * @return 最大堆（MB）
+     */
+    public long getHeapLimit(Long memoryLimit) {
+        return memoryLimit != null ? memoryLimit : jvmProfileProperties.getDefaultHeap();
+    }
+
+    /**
+     * 容器内运行用户程序的JVM参数，堆大小不超过容器可用内存
+     * @param memoryLimit 内存限制（MB），为空时使用默认堆大小
+     * @return JVM参数
+     */
+    public List<String> dockerOptions(Long memoryLimit) {
+        long heap = getHeapLimit(memoryLimit);
+        String archive = cdsArchiveManager.isDockerArchiveReady()
+                ? ContainerPool.CONTAINER_CDS_PATH + "/" + CdsArchiveManager.ARCHIVE_NAME : null;
+        return buildOptions(Math.min(heap, ContainerPool.MAX_HEAP), archive);
+    }
+
+    private List<String> buildOptions(long heap, String archive) {
+        List<String> options = new ArrayList<>();
+        options.add("-Xmx" + heap + "m");
+        if (jvmProfileProperties.isEnabled()) {
+            if (jvmProfileProperties.getTieredStopAtLevel() != null) {
+                options.add("-XX:TieredStopAtLevel=" + jvmProfileProperties.getTieredStopAtLevel());
+            }
+            if (jvmProfileProperties.isSerialGc()) {
+                options.add("-XX:+UseSerialGC");
+            }
+            options.add("-XX:-UsePerfData");
+            options.add("-Xss" + jvmProfileProperties.getStackSize());
+        }
+        if (jvmProfileProperties.isCdsEnabled() && archive != null) {
+            options.add("-Xshare:auto");
+            options.add("-XX:SharedArchiveFile=" + archive);
+        }
+        options.addAll(jvmProfileProperties.getExtraOptions());
+        return options;
+    }
+}
@@ -0,0 +1,304 @@
+package com.hkex.hyperojcodesandbox.listener;
+
+import com.hkex.hyperojcodesandbox.config.DockerSandboxProperties;
+import com.hkex.hyperojcodesandbox.config.MQConsumerProperties;
+import com.hkex.hyperojcodesandbox.docker.ContainerPool;
+import com.hkex.hyperojcodesandbox.model.enums.SubmissionLaneEnum;
+import com.hkex.hyperojcodesandbox.monitor.ProcStat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按节点空闲容量调整各通道代码执行队列的消费者
+ * 空闲容量取容器池可租借的容器数（按单次提交的并行度折算）与可用内存能容纳的提交数中较小者，且各通道合计不超过maxConcurrency；
+ * 空闲容量先补足各通道的预留，其余按权重分给有积压的通道（都没有积压时分给所有通道）。
+ * 每个通道的消费者数保持为正在判题的提交数加分到的容量，分不到容量且没有在判题的通道暂停消费，恢复后重新启动
+ */
+@Component
+@Slf4j
+public class CapacityGovernor {
+
+    @Resource
+    private RabbitListenerEndpointRegistry rabbitListenerEndpointRegistry;
+
+    @Resource
+    private AmqpAdmin amqpAdmin;
+
+    @Resource
+    private ContainerPool containerPool;
+
+    @Resource
+    private DockerSandboxProperties dockerSandboxProperties;
+
+    @Resource
+    private MQConsumerProperties mqConsumerProperties;
+
+    private final Map<SubmissionLaneEnum, LaneState> lanes = new EnumMap<>(SubmissionLaneEnum.class);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mq-capacity");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CapacityGovernor() {
+        for (SubmissionLaneEnum lane : SubmissionLaneEnum.values()) {
+            lanes.put(lane, new LaneState());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (LaneState state : lanes.values()) {
+            state.consumers = mqConsumerProperties.getConcurrency();
+        }
+        long interval = mqConsumerProperties.getCapacityCheckInterval();
+        scheduler.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开始处理一条消息
+     * @param lane 通道
+     * @param enqueuedAt 消息的时间戳，为空时不统计排队时间
+     */
+    public void onStart(SubmissionLaneEnum lane, Date enqueuedAt) {
+        LaneState state = lanes.get(lane);
+        state.inFlight.incrementAndGet();
+        state.received.incrementAndGet();
+        if (enqueuedAt != null) {
+            long waitTime = Math.max(0, System.currentTimeMillis() - enqueuedAt.getTime());
+            state.waitSamples.incrementAndGet();
+            state.totalWaitTime.addAndGet(waitTime);
+            state.maxWaitTime.accumulateAndGet(waitTime, Math::max);
+            state.lastWaitTime = waitTime;
+        }
+    }
+
+    /**
+     * 一条消息处理完成，容量释放后立即重新调整
+     * @param lane 通道
+     */
+    public void onFinish(SubmissionLaneEnum lane) {
+        lanes.get(lane).inFlight.decrementAndGet();
+        scheduler.execute(this::adjust);
+    }
+
+    /**
+     * 当前还能接收的提交数
+     * @return 空闲容量
+     */
+    public int getFreeCapacity() {
+        int free = containerPool.getFreeCapacity() / Math.max(1, dockerSandboxProperties.getParallelism());
+        long memAvailable = ProcStat.readMemAvailable();
+        if (memAvailable >= 0) {
+            long headroom = memAvailable / 1024 - mqConsumerProperties.getMemoryReserve();
+            free = (int) Math.min(free, headroom / mqConsumerProperties.getMemoryPerExecution());
+        }
+        return Math.max(0, free);
+    }
+
+    /**
+     * 获取各通道的统计
+     * @return 通道统计
+     */
+    public List<LaneStats> getLaneStats() {
+        List<LaneStats> statsList = new ArrayList<>();
+        for (SubmissionLaneEnum lane : SubmissionLaneEnum.values()) {
+            LaneState state = lanes.get(lane);
+            LaneStats stats = new LaneStats();
+            stats.setLane(lane);
+            stats.setInFlight(state.inFlight.get());
+            stats.setConsumers(state.consumers);
+            stats.setReserved(mqConsumerProperties.getLane(lane).getReserved());
+            stats.setQueueDepth(state.queueDepth);
+            stats.setReceived(state.received.get());
+            long samples = state.waitSamples.get();
+            stats.setWaitSamples(samples);
+            stats.setAvgWaitTime(samples == 0 ? 0 : state.totalWaitTime.get() / samples);
+            stats.setMaxWaitTime(state.maxWaitTime.get());
+            stats.setLastWaitTime(state.lastWaitTime);
+            statsList.add(stats);
+        }
+        return statsList;
+    }
+
+    /**
+     * 分配空闲容量，调整各通道的消费者数，暂停或恢复消费
+     */
+    private void adjust() {
+        try {
+            Map<SubmissionLaneEnum, Integer> running = new EnumMap<>(SubmissionLaneEnum.class);
+            Map<SubmissionLaneEnum, Long> queueDepths = new EnumMap<>(SubmissionLaneEnum.class);
+            int totalRunning = 0;
+            for (SubmissionLaneEnum lane : SubmissionLaneEnum.values()) {
+                int count = lanes.get(lane).inFlight.get();
+                running.put(lane, count);
+                totalRunning += count;
+                long queueDepth = readQueueDepth(lane);
+                lanes.get(lane).queueDepth = queueDepth;
+                queueDepths.put(lane, queueDepth);
+            }
+            int free = Math.min(getFreeCapacity(), mqConsumerProperties.getMaxConcurrency() - totalRunning);
+            Map<SubmissionLaneEnum, Integer> grants = allocate(Math.max(0, free), running, queueDepths);
+            for (SubmissionLaneEnum lane : SubmissionLaneEnum.values()) {
+                applyTarget(lane, running.get(lane), running.get(lane) + grants.get(lane));
+            }
+        } catch (Exception e) {
+            log.warn("调整消费者数失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 把空闲容量分给各通道：先补足预留，再按权重分给有积压的通道
+     * @param free 空闲容量
+     * @param running 各通道正在判题的提交数
+     * @param queueDepths 各通道队列中的消息数，-1表示未知
+     * @return 各通道分到的容量
+     */
+    Map<SubmissionLaneEnum, Integer> allocate(int free, Map<SubmissionLaneEnum, Integer> running,
+                                              Map<SubmissionLaneEnum, Long> queueDepths) {
+        Map<SubmissionLaneEnum, Integer> grants = new EnumMap<>(SubmissionLaneEnum.class);
+        for (SubmissionLaneEnum lane : SubmissionLaneEnum.values()) {
+            int unused = Math.max(0, mqConsumerProperties.getLane(lane).getReserved() - running.get(lane));
+            int grant = Math.min(free, unused);
+            grants.put(lane, grant);
+            free -= grant;
+        }
+        List<SubmissionLaneEnum> candidates = new ArrayList<>();
+        for (SubmissionLaneEnum lane : SubmissionLaneEnum.values()) {
+            if (queueDepths.get(lane) != 0 && mqConsumerProperties.getLane(lane).getWeight() > 0) {
+                candidates.add(lane);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (SubmissionLaneEnum lane : SubmissionLaneEnum.values()) {
+                if (mqConsumerProperties.getLane(lane).getWeight() > 0) {
+                    candidates.add(lane);
+                }
+            }
+        }
+        // 加权轮转：每次分给按权重折算后分得最少的通道，权重相同时靠前的通道优先
+        Map<SubmissionLaneEnum, Integer> shares = new EnumMap<>(SubmissionLaneEnum.class);
+        for (; free > 0 && !candidates.isEmpty(); free--) {
+            SubmissionLaneEnum next = null;
+            double nextShare = Double.MAX_VALUE;
+            for (SubmissionLaneEnum lane : candidates) {
+                double share = shares.getOrDefault(lane, 0) / (double) mqConsumerProperties.getLane(lane).getWeight();
+                if (share < nextShare) {
+                    next = lane;
+                    nextShare = share;
+                }
+            }
+            shares.merge(next, 1, Integer::sum);
+            grants.merge(next, 1, Integer::sum);
+        }
+        return grants;
+    }
+
+    /**
+     * 按目标调整一个通道的消费者数
+     * @param lane 通道
+     * @param running 正在判题的提交数
+     * @param target 目标消费者数
+     */
+    private void applyTarget(SubmissionLaneEnum lane, int running, int target) {
+        MessageListenerContainer listenerContainer = rabbitListenerEndpointRegistry.getListenerContainer(lane.getListenerId());
+        if (!(listenerContainer instanceof SimpleMessageListenerContainer)) {
+            return;
+        }
+        SimpleMessageListenerContainer container = (SimpleMessageListenerContainer) listenerContainer;
+        LaneState state = lanes.get(lane);
+        if (target <= running) {
+            if (running == 0 && container.isRunning()) {
+                // 没有在处理的消息，停止消费者不会等待
+                log.info("{}通道没有分到空闲容量，暂停消费代码执行请求", lane);
+                state.paused = true;
+                state.consumers = 0;
+                container.stop();
+            } else if (running > 0) {
+                // 只保留正在判题的消费者，空闲的消费者不再预取
+                setConsumers(container, running);
+                state.consumers = running;
+            }
+            return;
+        }
+        setConsumers(container, target);
+        state.consumers = target;
+        if (state.paused && !container.isRunning()) {
+            log.info("{}通道分到空闲容量{}，继续消费代码执行请求", lane, target - running);
+            state.paused = false;
+            container.start();
+        }
+    }
+
+    /**
+     * 查询队列积压的消息数
+     * @param lane 通道
+     * @return 消息数，查询失败时为-1
+     */
+    private long readQueueDepth(SubmissionLaneEnum lane) {
+        try {
+            QueueInformation queueInfo = amqpAdmin.getQueueInfo(lane.getQueue());
+            return queueInfo == null ? -1 : queueInfo.getMessageCount();
+        } catch (Exception e) {
+            log.debug("查询队列{}积压失败：{}", lane.getQueue(), e.getMessage());
+            return -1;
+        }
+    }
+
+    private void setConsumers(SimpleMessageListenerContainer container, int count) {
+        int consumers = Math.max(1, count);
+        // 先放宽上限再调整消费者数，缩减时顺序相反，始终满足消费者数不超过上限
+        container.setMaxConcurrentConsumers(Math.max(consumers, mqConsumerProperties.getMaxConcurrency()));
+        container.setConcurrentConsumers(consumers);
+        container.setMaxConcurrentConsumers(consumers);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 通道的运行状态
+     */
+    private static final class LaneState {
+
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+
+        private final AtomicLong received = new AtomicLong(0);
+
+        private final AtomicLong waitSamples = new AtomicLong(0);
+
+        private final AtomicLong totalWaitTime = new AtomicLong(0);
+
+        private final AtomicLong maxWaitTime = new AtomicLong(0);
+
+        private volatile long lastWaitTime;
+
+        private volatile long queueDepth = -1;
+
+        private volatile int consumers;
+
+        private volatile boolean paused = false;
+    }
+}
@@ -1,15 +1,24 @@
 package com.hkex.hyperojcodesandbox.listener;
 
+import cn.hutool.core.util.StrUtil;
+import com.hkex.hyperojcodesandbox.CaseResultListener;
 import com.hkex.hyperojcodesandbox.JavaDockerCodeSandBoxTemplateImpl;
 import com.hkex.hyperojcodesandbox.config.RabbitMQConfig;
+import com.hkex.hyperojcodesandbox.model.CaseResultEvent;
 import com.hkex.hyperojcodesandbox.model.ExecuteCodeRequest;
 import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import com.hkex.hyperojcodesandbox.model.enums.SubmissionLaneEnum;
 import com.hkex.hyperojcodesandbox.utils.MQUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
@@ -20,18 +29,74 @@ public class CodeExecuteMQListener {
     @Resource
     private MQUtils mqUtils;
 
+    @Resource
+    private CapacityGovernor capacityGovernor;
+
+    /**
+     * 练习通道
+     * @param request 执行代码请求
+     * @param timestamp 消息的时间戳，用于统计排队时间
+     */
+    @RabbitListener(id = RabbitMQConfig.CODE_EXECUTE_LISTENER_ID, queues = RabbitMQConfig.CODE_EXECUTE_QUEUE,
+            containerFactory = RabbitMQConfig.CODE_EXECUTE_LISTENER_FACTORY)
+    public void handleCodeExecuteRequest(ExecuteCodeRequest request,
+                                         @Header(name = AmqpHeaders.TIMESTAMP, required = false) Date timestamp) {
+        handle(SubmissionLaneEnum.PRACTICE, request, timestamp);
+    }
 
-    @RabbitListener(queues = RabbitMQConfig.CODE_EXECUTE_QUEUE)
-    public void handleCodeExecuteRequest(ExecuteCodeRequest request) {
+    /**
+     * 比赛通道
+     * @param request 执行代码请求
+     * @param timestamp 消息的时间戳，用于统计排队时间
+     */
+    @RabbitListener(id = RabbitMQConfig.CODE_EXECUTE_CONTEST_LISTENER_ID, queues = RabbitMQConfig.CODE_EXECUTE_CONTEST_QUEUE,
+            containerFactory = RabbitMQConfig.CODE_EXECUTE_LISTENER_FACTORY)
+    public void handleContestExecuteRequest(ExecuteCodeRequest request,
+                                            @Header(name = AmqpHeaders.TIMESTAMP, required = false) Date timestamp) {
+        handle(SubmissionLaneEnum.CONTEST, request, timestamp);
+    }
+
+    private void handle(SubmissionLaneEnum lane, ExecuteCodeRequest request, Date timestamp) {
         if (request == null) {
             log.error("MQ接收的代码执行请求为空");
             return;
         }
-        log.info("从MQ接收代码执行请求：{}", request);
-        // 调用沙箱执行代码
-        ExecuteCodeResponse response = codeSandBox.executeCode(request);
-        //发送结果到队列
-        mqUtils.sendExecuteResult(response);
+        log.info("从MQ{}通道接收代码执行请求：{}", lane, request);
+        capacityGovernor.onStart(lane, timestamp);
+        try {
+            // 调用沙箱执行代码，流式返回时每个用例得出结论后立即发布
+            ExecuteCodeResponse response;
+            if (Boolean.TRUE.equals(request.getStreamResults())) {
+                if (StrUtil.isBlank(request.getCorrelationId())) {
+                    request.setCorrelationId(UUID.randomUUID().toString());
+                }
+                response = codeSandBox.executeCode(request, newCaseEventPublisher(request));
+            } else {
+                response = codeSandBox.executeCode(request);
+            }
+            //发送结果到队列
+            mqUtils.sendExecuteResult(response);
+        } finally {
+            capacityGovernor.onFinish(lane);
+        }
     }
 
+    /**
+     * 按结论产生的顺序发布用例事件
+     * @param request 执行代码请求
+     * @return 用例结论监听
+     */
+    private CaseResultListener newCaseEventPublisher(ExecuteCodeRequest request) {
+        String correlationId = request.getCorrelationId();
+        AtomicInteger sequence = new AtomicInteger(0);
+        return (index, caseResult) -> mqUtils.sendCaseEvent(CaseResultEvent.builder()
+                .correlationId(correlationId)
+                .sequence(sequence.incrementAndGet())
+                .caseIndex(index)
+                .status(caseResult.getStatus())
+                .message(caseResult.getMessage())
+                .time(caseResult.getTime())
+                .memory(caseResult.getMemory())
+                .build());
+    }
 }
@@ -0,0 +1,46 @@
+package com.hkex.hyperojcodesandbox.listener;
+
+import com.hkex.hyperojcodesandbox.model.enums.SubmissionLaneEnum;
+import lombok.Data;
+
+/**
+ * 通道统计
+ */
+@Data
+public class LaneStats {
+
+    private SubmissionLaneEnum lane;
+
+    /**
+     * 正在判题的提交数
+     */
+    private int inFlight;
+
+    /**
+     * 当前消费者数，通道暂停时为0
+     */
+    private int consumers;
+
+    private int reserved;
+
+    /**
+     * 最近一次查询到的队列积压消息数，未知时为-1
+     */
+    private long queueDepth;
+
+    private long received;
+
+    /**
+     * 带有时间戳（AMQP timestamp属性）的消息数，排队时间只统计这些消息
+     */
+    private long waitSamples;
+
+    /**
+     * 平均排队时间（毫秒）
+     */
+    private long avgWaitTime;
+
+    private long maxWaitTime;
+
+    private long lastWaitTime;
+}
@@ -0,0 +1,36 @@
+package com.hkex.hyperojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个用例的结论
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseJudgeInfo {
+
+    /**
+     * 状态，取值见ExecuteCodeStatusEnum
+     */
+    private Integer status;
+
+    /**
+     * 错误信息，答案错误时为差异说明
+     */
+    private String message;
+
+    /**
+     * 消耗时间(ms)
+     */
+    private Long time;
+
+    /**
+     * 消耗空间(kb)
+     */
+    private Long memory;
+}
@@ -0,0 +1,48 @@
+package com.hkex.hyperojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个用例的结论事件，流式返回结果时每个用例发布一条，全部用例之后再发布汇总的ExecuteCodeResponse
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseResultEvent {
+
+    /**
+     * 提交的关联ID，与请求和汇总结果中的correlationId相同
+     */
+    private String correlationId;
+
+    /**
+     * 本次提交内事件的序号，从1开始按发布顺序递增
+     */
+    private Integer sequence;
+
+    /**
+     * 用例下标（输入顺序）
+     */
+    private Integer caseIndex;
+
+    /**
+     * 结论状态，取值同ExecuteCodeStatusEnum
+     */
+    private Integer status;
+
+    private String message;
+
+    /**
+     * ms
+     */
+    private Long time;
+
+    /**
+     * kb
+     */
+    private Long memory;
+}
@@ -0,0 +1,33 @@
+package com.hkex.hyperojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 编译诊断信息
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompileDiagnostic {
+
+    /**
+     * 级别：ERROR、WARNING等
+     */
+    private String kind;
+
+    /**
+     * 行号（从1开始），与具体位置无关的诊断为-1
+     */
+    private Long line;
+
+    /**
+     * 列号（从1开始），与具体位置无关的诊断为-1
+     */
+    private Long column;
+
+    private String message;
+}
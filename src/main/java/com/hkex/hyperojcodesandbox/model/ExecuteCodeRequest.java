@@ -1,5 +1,7 @@
 package com.hkex.hyperojcodesandbox.model;
 
+import com.hkex.hyperojcodesandbox.model.enums.CaseOrderEnum;
+import com.hkex.hyperojcodesandbox.model.enums.CompareModeEnum;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,4 +19,69 @@ public class ExecuteCodeRequest {
     private String code;
 
     private String language;
+
+    /**
+     * CPU时间限制(ms)，可选
+     */
+    private Long timeLimit;
+
+    /**
+     * 内存限制(MB)，可选，用于设置用户程序的最大堆
+     */
+    private Long memoryLimit;
+
+    /**
+     * 是否跳过用例结果缓存，强制全部重新执行，可选
+     */
+    private Boolean bypassCache;
+
+    /**
+     * 题目ID，可选，设置后使用测试数据仓库中该题目的输入，忽略inputList
+     */
+    private String problemId;
+
+    /**
+     * 测试数据版本，可选，为空时使用该题目的最新版本
+     */
+    private String testDataVersion;
+
+    /**
+     * 各用例的期望输出，可选，提供时在沙箱内比较输出，响应只返回各用例结论而不返回输出
+     */
+    private List<String> expectedOutputList;
+
+    /**
+     * 各用例规范化后期望输出的SHA-256，可选，用于不便传输完整期望输出的场景
+     */
+    private List<String> expectedOutputHashList;
+
+    /**
+     * 输出比较方式，可选，默认EXACT；指定题目时设置此项即使用测试数据仓库中的期望输出比较
+     */
+    private CompareModeEnum compareMode;
+
+    /**
+     * FLOAT比较的误差，可选，默认1e-6
+     */
+    private Double floatTolerance;
+
+    /**
+     * 是否快速失败，可选，默认取配置：有用例失败后不再执行其余用例，其余用例记为跳过
+     */
+    private Boolean failFast;
+
+    /**
+     * 用例执行顺序，可选，默认取配置；结果仍按输入顺序返回
+     */
+    private CaseOrderEnum caseOrder;
+
+    /**
+     * 提交的关联ID，可选，原样写回结果；流式返回时用于关联各用例事件
+     */
+    private String correlationId;
+
+    /**
+     * 是否流式返回结果，可选，仅MQ方式有效：每个用例得出结论后立即发布一条用例事件，最后再发布汇总结果
+     */
+    private Boolean streamResults;
 }
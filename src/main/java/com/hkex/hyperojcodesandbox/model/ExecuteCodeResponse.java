@@ -29,4 +29,19 @@ public class ExecuteCodeResponse {
      * 判题信息
      */
     private JudgeInfo judgeInfo;
+
+    /**
+     * 编译诊断信息（进程内编译时提供）
+     */
+    private List<CompileDiagnostic> diagnostics;
+
+    /**
+     * 各用例的结论
+     */
+    private List<CaseJudgeInfo> caseResults;
+
+    /**
+     * 提交的关联ID，与请求中的correlationId相同
+     */
+    private String correlationId;
 }
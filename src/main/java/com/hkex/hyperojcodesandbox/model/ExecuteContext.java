@@ -0,0 +1,76 @@
+package com.hkex.hyperojcodesandbox.model;
+
+import com.hkex.hyperojcodesandbox.CaseResultListener;
+import com.hkex.hyperojcodesandbox.compare.ExpectedOutput;
+import com.hkex.hyperojcodesandbox.model.enums.CompareModeEnum;
+import com.hkex.hyperojcodesandbox.output.OutputBudget;
+import com.hkex.hyperojcodesandbox.testdata.TestCaseInput;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单次提交的运行上下文
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteContext {
+
+    private List<TestCaseInput> inputList;
+
+    /**
+     * CPU时间限制(ms)，为空时只受墙钟超时约束
+     */
+    private Long timeLimit;
+
+    /**
+     * 内存限制(MB)，可选，用于设置用户程序的最大堆
+     */
+    private Long memoryLimit;
+
+    /**
+     * 本次提交剩余的输出字节预算
+     */
+    private OutputBudget outputBudget;
+
+    /**
+     * 编译出的类（类名到字节码），进程内编译时提供
+     */
+    private Map<String, byte[]> classes;
+
+    /**
+     * 各用例的期望输出，为空时不比较输出
+     */
+    private List<ExpectedOutput> expectedOutputs;
+
+    private CompareModeEnum compareMode;
+
+    private Double floatTolerance;
+
+    /**
+     * 用例执行顺序（用例下标），为空时按输入顺序
+     */
+    private int[] caseOrder;
+
+    /**
+     * 是否快速失败
+     */
+    private boolean failFast;
+
+    /**
+     * 快速失败时是否已有用例失败，置位后不再开始新的用例
+     */
+    private AtomicBoolean decided;
+
+    /**
+     * 用例结论监听，下标为inputList中的下标，为空时不回调
+     */
+    private CaseResultListener caseResultListener;
+}
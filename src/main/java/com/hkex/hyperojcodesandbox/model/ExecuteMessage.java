@@ -14,7 +14,25 @@ public class ExecuteMessage {
 
     private String errorMessage;
 
+    /**
+     * 判题使用的时间(ms)，即CPU时间，取不到时为空，不以墙钟时间代替
+     */
     private Long time;
 
+    /**
+     * CPU时间(用户态+内核态, ms)
+     */
+    private Long cpuTime;
+
+    /**
+     * 墙钟时间(ms)
+     */
+    private Long wallTime;
+
     private Long memory;
+
+    /**
+     * 执行状态，取值见ExecuteCodeStatusEnum，为空时按是否有错误输出判断
+     */
+    private Integer status;
 }
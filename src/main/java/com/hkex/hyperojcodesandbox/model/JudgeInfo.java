@@ -14,10 +14,20 @@ public class JudgeInfo {
     private String message;
 
     /**
-     * 消耗时间(ms)
+     * 消耗时间(ms)，即CPU时间
      */
     private Long time;
 
+    /**
+     * 消耗CPU时间(ms)
+     */
+    private Long cpuTime;
+
+    /**
+     * 消耗墙钟时间(ms)
+     */
+    private Long wallTime;
+
     /**
      * 消耗空间(kb)
      */
@@ -0,0 +1,32 @@
+package com.hkex.hyperojcodesandbox.model;
+
+import com.hkex.hyperojcodesandbox.model.enums.JudgeJobStatusEnum;
+import lombok.Data;
+
+/**
+ * 异步判题任务
+ */
+@Data
+public class JudgeJob {
+
+    private String jobId;
+
+    private JudgeJobStatusEnum status;
+
+    /**
+     * 提交时间（毫秒时间戳）
+     */
+    private Long submitTime;
+
+    private Long finishTime;
+
+    /**
+     * 执行结果，完成后才有
+     */
+    private ExecuteCodeResponse response;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.hkex.hyperojcodesandbox.model.enums;
+
+/**
+ * 用例执行顺序
+ */
+public enum CaseOrderEnum {
+
+    /**
+     * 按输入顺序
+     */
+    INPUT,
+
+    /**
+     * 耗时少的用例优先（按历史平均耗时，无历史时按输入大小）
+     */
+    CHEAPEST_FIRST,
+
+    /**
+     * 历史上失败次数多的用例优先，次数相同时耗时少的优先
+     */
+    FAILING_FIRST
+}
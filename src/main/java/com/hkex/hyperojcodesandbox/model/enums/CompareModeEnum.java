@@ -0,0 +1,22 @@
+package com.hkex.hyperojcodesandbox.model.enums;
+
+/**
+ * 输出比较方式
+ */
+public enum CompareModeEnum {
+
+    /**
+     * 逐字节比较，忽略行尾空白与末尾空行
+     */
+    EXACT,
+
+    /**
+     * 按空白拆分为记号逐个比较
+     */
+    TOKEN,
+
+    /**
+     * 按记号比较，数值记号在误差范围内视为相同
+     */
+    FLOAT
+}
@@ -0,0 +1,49 @@
+package com.hkex.hyperojcodesandbox.model.enums;
+
+import lombok.Getter;
+
+/**
+ * 代码执行状态
+ */
+@Getter
+public enum ExecuteCodeStatusEnum {
+
+    SUCCESS(1, "Accepted"),
+    SANDBOX_ERROR(2, "System Error"),
+    RUNTIME_ERROR(3, "Runtime Error"),
+    TIME_LIMIT_EXCEEDED(4, "Time Limit Exceeded"),
+    OUTPUT_LIMIT_EXCEEDED(5, "Output Limit Exceeded"),
+    COMPILE_ERROR(6, "Compile Error"),
+    WRONG_ANSWER(7, "Wrong Answer"),
+    SKIPPED(8, "Skipped"),
+    MEMORY_LIMIT_EXCEEDED(9, "Memory Limit Exceeded");
+
+    private final Integer value;
+
+    /**
+     * 对应的判题信息
+     */
+    private final String text;
+
+    ExecuteCodeStatusEnum(Integer value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    /**
+     * 根据值获取枚举
+     * @param value 值
+     * @return 枚举，不存在时返回null
+     */
+    public static ExecuteCodeStatusEnum getEnumByValue(Integer value) {
+        if (value == null) {
+            return null;
+        }
+        for (ExecuteCodeStatusEnum statusEnum : values()) {
+            if (statusEnum.value.equals(value)) {
+                return statusEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hkex.hyperojcodesandbox.model.enums;
+
+/**
+ * 用例输入传给用户程序的方式
+ */
+public enum InputModeEnum {
+
+    /**
+     * 按空格拆分为程序参数（args）
+     */
+    ARGS,
+
+    /**
+     * 写入文件后作为程序的标准输入，输入大小不受命令行长度限制
+     */
+    STDIN
+}
@@ -0,0 +1,24 @@
+package com.hkex.hyperojcodesandbox.model.enums;
+
+/**
+ * 异步判题任务状态
+ */
+public enum JudgeJobStatusEnum {
+
+    /**
+     * 等待判题线程
+     */
+    QUEUED,
+
+    RUNNING,
+
+    /**
+     * 已得出结果（结果本身可能是编译错误等）
+     */
+    FINISHED,
+
+    /**
+     * 沙箱异常或判题队列已满，未得出结果
+     */
+    FAILED
+}
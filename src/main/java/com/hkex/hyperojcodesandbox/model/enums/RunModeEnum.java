@@ -0,0 +1,22 @@
+package com.hkex.hyperojcodesandbox.model.enums;
+
+/**
+ * Docker沙箱运行用例的方式
+ */
+public enum RunModeEnum {
+
+    /**
+     * 每个用例docker exec一个新的JVM
+     */
+    EXEC,
+
+    /**
+     * 一次docker exec启动一个JVM，在其中依次运行所有用例
+     */
+    BATCH,
+
+    /**
+     * 容器内常驻一个判题代理JVM，用例通过attach的标准输入输出下发，不再exec
+     */
+    AGENT
+}
@@ -0,0 +1,36 @@
+package com.hkex.hyperojcodesandbox.model.enums;
+
+import com.hkex.hyperojcodesandbox.config.RabbitMQConfig;
+import lombok.Getter;
+
+/**
+ * 代码执行请求的通道，按声明顺序优先分配容量
+ */
+@Getter
+public enum SubmissionLaneEnum {
+
+    /**
+     * 比赛提交
+     */
+    CONTEST(RabbitMQConfig.CODE_EXECUTE_CONTEST_QUEUE, RabbitMQConfig.CODE_EXECUTE_CONTEST_LISTENER_ID),
+
+    /**
+     * 练习提交，沿用原有的代码执行队列
+     */
+    PRACTICE(RabbitMQConfig.CODE_EXECUTE_QUEUE, RabbitMQConfig.CODE_EXECUTE_LISTENER_ID);
+
+    /**
+     * 队列名称
+     */
+    private final String queue;
+
+    /**
+     * 监听容器的ID
+     */
+    private final String listenerId;
+
+    SubmissionLaneEnum(String queue, String listenerId) {
+        this.queue = queue;
+        this.listenerId = listenerId;
+    }
+}
@@ -0,0 +1,164 @@
+package com.hkex.hyperojcodesandbox.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次执行的cgroup资源计量（内存峰值与CPU时间）
+ * 优先使用memory.peak的按文件描述符重置（内核6.12+），否则退化为定时采样memory.current
+ */
+@Slf4j
+public class CgroupMeasurement implements Closeable {
+
+    private static final String MEMORY_PEAK = "memory.peak";
+
+    private static final String MEMORY_CURRENT = "memory.current";
+
+    private static final String CPU_STAT = "cpu.stat";
+
+    private static final String CPU_USAGE_KEY = "usage_usec";
+
+    private final File memoryCurrentFile;
+
+    private final File cpuStatFile;
+
+    /**
+     * 开始计量时cgroup累计的CPU时间(us)
+     */
+    private final long startCpuUsage;
+
+    /**
+     * 已重置的memory.peak文件描述符，不支持重置时为null
+     */
+    private FileChannel peakChannel;
+
+    /**
+     * 开始计量时的内存占用（容器内常驻进程与页缓存），计算结果时扣除
+     */
+    private final long baseline;
+
+    private volatile long sampledPeak;
+
+    private ScheduledFuture<?> samplingTask;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(32);
+
+    CgroupMeasurement(File cgroupDir, ScheduledExecutorService sampler, long sampleInterval) throws IOException {
+        this.memoryCurrentFile = new File(cgroupDir, MEMORY_CURRENT);
+        this.cpuStatFile = new File(cgroupDir, CPU_STAT);
+        this.startCpuUsage = readCpuUsage(cpuStatFile);
+        this.baseline = CgroupMonitor.readLong(memoryCurrentFile);
+        this.peakChannel = openResetPeak(new File(cgroupDir, MEMORY_PEAK));
+        this.sampledPeak = baseline;
+        if (peakChannel == null) {
+            this.samplingTask = sampler.scheduleAtFixedRate(this::sample, 0, sampleInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 结束计量，获取本次执行的内存峰值
+     * @return 内存峰值(KB)
+     */
+    public long finishMemory() throws IOException {
+        long peak;
+        if (peakChannel != null) {
+            peak = readPeak();
+        } else {
+            samplingTask.cancel(false);
+            sample();
+            peak = sampledPeak;
+        }
+        return Math.max(0, peak - baseline) / 1024;
+    }
+
+    /**
+     * 结束计量，获取本次执行消耗的CPU时间
+     * 同一容器内同时只运行一个用例，cgroup的累计增量即为该用例的CPU时间
+     * @return CPU时间(ms)
+     */
+    public long finishCpuTime() throws IOException {
+        return (readCpuUsage(cpuStatFile) - startCpuUsage) / 1000;
+    }
+
+    private void sample() {
+        try {
+            long current = CgroupMonitor.readLong(memoryCurrentFile);
+            if (current > sampledPeak) {
+                sampledPeak = current;
+            }
+        } catch (IOException e) {
+            log.debug("采样{}失败", memoryCurrentFile, e);
+        }
+    }
+
+    private long readPeak() throws IOException {
+        readBuffer.clear();
+        peakChannel.read(readBuffer, 0);
+        readBuffer.flip();
+        return Long.parseLong(StandardCharsets.US_ASCII.decode(readBuffer).toString().trim());
+    }
+
+    /**
+     * 读取cpu.stat中的usage_usec
+     * @param cpuStatFile cpu.stat文件
+     * @return 累计CPU时间(us)
+     */
+    private static long readCpuUsage(File cpuStatFile) throws IOException {
+        for (String line : Files.readAllLines(cpuStatFile.toPath(), StandardCharsets.US_ASCII)) {
+            if (line.startsWith(CPU_USAGE_KEY + " ")) {
+                return Long.parseLong(line.substring(CPU_USAGE_KEY.length() + 1).trim());
+            }
+        }
+        throw new IOException(cpuStatFile + "中没有" + CPU_USAGE_KEY);
+    }
+
+    /**
+     * 打开memory.peak并重置，重置只对当前文件描述符后续的读取生效
+     * @param peakFile memory.peak文件
+     * @return 文件描述符，不支持重置时返回null
+     */
+    private static FileChannel openResetPeak(File peakFile) {
+        if (!peakFile.exists()) {
+            return null;
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(peakFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.write(ByteBuffer.wrap("reset\n".getBytes(StandardCharsets.US_ASCII)));
+            return channel;
+        } catch (IOException | SecurityException e) {
+            closeQuietly(channel);
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        if (samplingTask != null) {
+            samplingTask.cancel(false);
+        }
+        closeQuietly(peakChannel);
+        peakChannel = null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.hkex.hyperojcodesandbox.monitor;
+
+import com.hkex.hyperojcodesandbox.config.DockerSandboxProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * cgroup v2资源监控
+ * 直接读取宿主机上容器所属cgroup的统计文件，开销远低于Docker stats流
+ */
+@Component
+@Slf4j
+public class CgroupMonitor {
+
+    /**
+     * 不支持memory.peak重置时，采样memory.current的间隔（毫秒）
+     */
+    private static final long SAMPLE_INTERVAL = 5L;
+
+    @Resource
+    private DockerSandboxProperties dockerSandboxProperties;
+
+    /**
+     * 所有执行共用一个采样线程
+     */
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cgroup-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean unavailableWarned = new AtomicBoolean(false);
+
+    /**
+     * 查找容器在宿主机上的cgroup目录
+     * 兼容systemd（system.slice/docker-<id>.scope）与cgroupfs（docker/<id>）两种驱动
+     * @param containerId 容器ID
+     * @return cgroup目录，找不到时返回null
+     */
+    public File resolveContainerCgroup(String containerId) {
+        String root = dockerSandboxProperties.getCgroupRoot();
+        File[] candidates = {
+                new File(root, "system.slice" + File.separator + "docker-" + containerId + ".scope"),
+                new File(root, "docker" + File.separator + containerId)
+        };
+        for (File candidate : candidates) {
+            if (candidate.isDirectory()) {
+                return candidate;
+            }
+        }
+        if (unavailableWarned.compareAndSet(false, true)) {
+            log.warn("未找到容器{}的cgroup目录（根目录{}），将无法统计内存与CPU时间", containerId, root);
+        }
+        return null;
+    }
+
+    /**
+     * 开始一次计量
+     * @param cgroupDir cgroup目录
+     * @return 计量，cgroup不可用时返回null
+     */
+    public CgroupMeasurement start(File cgroupDir) {
+        if (cgroupDir == null) {
+            return null;
+        }
+        try {
+            return new CgroupMeasurement(cgroupDir, sampler, SAMPLE_INTERVAL);
+        } catch (IOException e) {
+            log.warn("读取cgroup{}失败", cgroupDir, e);
+            return null;
+        }
+    }
+
+    /**
+     * 读取cgroup中的单值文件
+     * @param file 文件
+     * @return 数值
+     */
+    static long readLong(File file) throws IOException {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim();
+        return "max".equals(content) ? Long.MAX_VALUE : Long.parseLong(content);
+    }
+
+    /**
+     * 关闭采样线程
+     */
+    @PreDestroy
+    public void destroy() {
+        sampler.shutdownNow();
+    }
+}
@@ -0,0 +1,163 @@
+package com.hkex.hyperojcodesandbox.monitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * /proc/&lt;pid&gt;/stat、/proc/&lt;pid&gt;/status 与 /proc/meminfo 读取工具
+ */
+public class ProcStat {
+
+    /**
+     * 内核向用户态暴露的时钟频率(USER_HZ)，Linux上固定为100
+     */
+    private static final long CLOCK_TICKS_PER_SECOND = 100L;
+
+    /**
+     * utime在stat文件中comm字段之后的下标（第14个字段）
+     */
+    private static final int UTIME_INDEX = 11;
+
+    /**
+     * cutime在stat文件中comm字段之后的下标（第16个字段），已回收子进程的用户态时间，其后为cstime
+     */
+    private static final int CUTIME_INDEX = 13;
+
+    private ProcStat() {
+    }
+
+    /**
+     * 获取进程号
+     * Java 9+使用Process.pid()，Java 8通过反射读取UNIXProcess.pid
+     * @param process 进程
+     * @return 进程号，获取失败返回-1
+     */
+    public static long getPid(Process process) {
+        try {
+            Method pidMethod = Process.class.getMethod("pid");
+            return (Long) pidMethod.invoke(process);
+        } catch (NoSuchMethodException e) {
+            try {
+                Field pidField = process.getClass().getDeclaredField("pid");
+                pidField.setAccessible(true);
+                return pidField.getInt(process);
+            } catch (Exception ex) {
+                return -1;
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读取进程已消耗的CPU时间（用户态+内核态）
+     * @param pid 进程号
+     * @return CPU时间(ms)，进程不存在或读取失败返回-1
+     */
+    public static long readCpuTime(long pid) {
+        if (pid <= 0) {
+            return -1;
+        }
+        return readCpuTime(new File("/proc/" + pid + "/stat"), UTIME_INDEX);
+    }
+
+    /**
+     * 从保存下来的stat内容读取已回收子进程的CPU时间（cutime+cstime）
+     * @param statFile 进程在子进程被回收后写出的/proc/&lt;pid&gt;/stat内容
+     * @return CPU时间(ms)，文件不存在或读取失败返回-1
+     */
+    public static long readReapedCpuTime(File statFile) {
+        return readCpuTime(statFile, CUTIME_INDEX);
+    }
+
+    private static long readCpuTime(File statFile, int index) {
+        try {
+            String stat = new String(Files.readAllBytes(statFile.toPath()), StandardCharsets.US_ASCII).trim();
+            // comm字段可能包含空格，从最后一个右括号之后开始解析
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long ticks = Long.parseLong(fields[index]) + Long.parseLong(fields[index + 1]);
+            return ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读取进程的第一个子进程
+     * @param pid 进程号
+     * @return 子进程号，没有子进程或读取失败返回-1
+     */
+    public static long readChildPid(long pid) {
+        if (pid <= 0) {
+            return -1;
+        }
+        try {
+            String children = new String(Files.readAllBytes(
+                    new File("/proc/" + pid + "/task/" + pid + "/children").toPath()), StandardCharsets.US_ASCII).trim();
+            if (children.isEmpty()) {
+                return -1;
+            }
+            int space = children.indexOf(' ');
+            return Long.parseLong(space < 0 ? children : children.substring(0, space));
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读取进程的常驻内存峰值
+     * 优先读取VmHWM，内核未提供时退回VmRSS
+     * @param pid 进程号
+     * @return 内存(kb)，进程不存在或读取失败返回-1
+     */
+    public static long readPeakMemory(long pid) {
+        if (pid <= 0) {
+            return -1;
+        }
+        try {
+            long rss = -1;
+            for (String line : Files.readAllLines(new File("/proc/" + pid + "/status").toPath(),
+                    StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    return parseKb(line);
+                }
+                if (line.startsWith("VmRSS:")) {
+                    rss = parseKb(line);
+                }
+            }
+            return rss;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 解析形如"VmHWM:     1234 kB"的行
+     */
+    private static long parseKb(String line) {
+        String value = line.substring(line.indexOf(':') + 1).trim();
+        int space = value.indexOf(' ');
+        return Long.parseLong(space < 0 ? value : value.substring(0, space));
+    }
+
+    /**
+     * 读取系统可用内存（MemAvailable）
+     * @return 可用内存(kb)，读取失败返回-1
+     */
+    public static long readMemAvailable() {
+        try {
+            for (String line : Files.readAllLines(new File("/proc/meminfo").toPath(), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("MemAvailable:")) {
+                    return parseKb(line);
+                }
+            }
+            return -1;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.hkex.hyperojcodesandbox.monitor;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * 一个本地进程的资源计量（CPU时间与内存峰值）
+ * 进程由{@link ProcessMonitor#wrapCommand}的包装脚本启动，运行期间采样线程读取包装进程的子进程并更新计量；
+ * 结束后以包装进程回收子进程后写出的cutime/cstime作为最终的CPU时间
+ */
+public class ProcessMeasurement implements Closeable {
+
+    /**
+     * 进程被结束的原因
+     */
+    public enum KillReason {
+        CPU_TIME,
+        MEMORY
+    }
+
+    private final Process process;
+
+    private final long pid;
+
+    private final File statFile;
+
+    private final Long cpuTimeLimit;
+
+    private final Long memoryLimit;
+
+    private final ProcessMonitor monitor;
+
+    private volatile long childPid = -1;
+
+    private volatile long cpuTime = -1;
+
+    private volatile long peakMemory = -1;
+
+    private volatile KillReason killReason;
+
+    ProcessMeasurement(Process process, long pid, File statFile, Long cpuTimeLimit, Long memoryLimit,
+                       ProcessMonitor monitor) {
+        this.process = process;
+        this.pid = pid;
+        this.statFile = statFile;
+        this.cpuTimeLimit = cpuTimeLimit;
+        this.memoryLimit = memoryLimit;
+        this.monitor = monitor;
+    }
+
+    /**
+     * 采样一次，超出限制时结束进程
+     * @return 进程是否仍需监控
+     */
+    boolean sample() {
+        if (!process.isAlive()) {
+            return false;
+        }
+        if (childPid <= 0) {
+            childPid = ProcStat.readChildPid(pid);
+            if (childPid <= 0) {
+                // 包装脚本尚未启动命令
+                return true;
+            }
+        }
+        long cpu = ProcStat.readCpuTime(childPid);
+        if (cpu >= 0) {
+            cpuTime = cpu;
+        }
+        long memory = ProcStat.readPeakMemory(childPid);
+        if (memory > peakMemory) {
+            peakMemory = memory;
+        }
+        if (cpuTimeLimit != null && cpuTime > cpuTimeLimit) {
+            kill(KillReason.CPU_TIME);
+            return false;
+        }
+        if (memoryLimit != null && peakMemory > memoryLimit) {
+            kill(KillReason.MEMORY);
+            return false;
+        }
+        return true;
+    }
+
+    private void kill(KillReason reason) {
+        killReason = reason;
+        process.destroyForcibly();
+    }
+
+    /**
+     * CPU时间(ms)
+     * @return 进程正常结束并已{@link #close()}时为回收后的最终值，否则为最后一次采样的值，都没有时为null
+     */
+    public Long getCpuTime() {
+        return cpuTime < 0 ? null : cpuTime;
+    }
+
+    /**
+     * 内存峰值(kb)
+     * @return 采样到的最大VmHWM，未采样到时为null
+     */
+    public Long getPeakMemory() {
+        return peakMemory < 0 ? null : peakMemory;
+    }
+
+    /**
+     * 进程因超出限制被结束的原因
+     * @return 原因，未被结束时为null
+     */
+    public KillReason getKillReason() {
+        return killReason;
+    }
+
+    /**
+     * 停止采样，进程已结束时读取最终的CPU时间
+     * 进程被结束时包装脚本来不及写出stat，保留最后一次采样的值
+     */
+    @Override
+    public void close() {
+        monitor.unwatch(this);
+        if (!process.isAlive()) {
+            long cpu = ProcStat.readReapedCpuTime(statFile);
+            if (cpu >= 0) {
+                cpuTime = cpu;
+            }
+            statFile.delete();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.hkex.hyperojcodesandbox.monitor;
+
+import com.hkex.hyperojcodesandbox.config.NativeMonitorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地进程资源监控
+ * 所有运行中的进程共用一个采样线程，定时读取/proc/&lt;pid&gt;/stat与/proc/&lt;pid&gt;/status，
+ * 超出CPU时间或内存限制时直接结束进程
+ */
+@Component
+@Slf4j
+public class ProcessMonitor {
+
+    /**
+     * 包装脚本：运行命令并回收，再把自身的stat写入文件，被回收的命令的全部CPU时间计入其中的cutime/cstime；
+     * 命令以setpriv设置父进程死亡信号，包装进程被结束时命令随之结束
+     * 参数：stat文件 命令...
+     */
+    private static final String REAP_SCRIPT = String.join("\n",
+            "out=\"$1\"; shift",
+            "setpriv --pdeathsig KILL \"$@\"",
+            "code=$?",
+            "read -r stat < /proc/$$/stat",
+            "echo \"$stat\" > \"$out\"",
+            "exit $code");
+
+    @Resource
+    private NativeMonitorProperties nativeMonitorProperties;
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "proc-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Set<ProcessMeasurement> watched = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        long interval = nativeMonitorProperties.getSampleInterval();
+        sampler.scheduleWithFixedDelay(this::sampleAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 包装要监控的命令，使其结束后能读取到包含全部线程的最终CPU时间
+     * @param command 命令
+     * @param statFile 包装进程写出stat的文件
+     * @return 包装后的命令，可继续追加命令参数
+     */
+    public List<String> wrapCommand(List<String> command, File statFile) {
+        List<String> wrapped = new ArrayList<>(Arrays.asList("sh", "-c", REAP_SCRIPT, "proc-reap",
+                statFile.getAbsolutePath()));
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /**
+     * 开始监控进程
+     * @param process 以{@link #wrapCommand}包装的命令启动的进程
+     * @param statFile 包装命令时使用的stat文件
+     * @param cpuTimeLimit CPU时间限制(ms)，为空时不限制
+     * @param memoryLimit 内存限制(MB)，为空时不限制；实际限制额外加上配置的JVM开销
+     * @return 计量，无法获取进程号时返回null
+     */
+    public ProcessMeasurement watch(Process process, File statFile, Long cpuTimeLimit, Long memoryLimit) {
+        long pid = ProcStat.getPid(process);
+        if (pid <= 0) {
+            return null;
+        }
+        Long memoryLimitKb = memoryLimit == null ? null
+                : (memoryLimit + nativeMonitorProperties.getMemoryOverhead()) * 1024;
+        ProcessMeasurement measurement = new ProcessMeasurement(process, pid, statFile, cpuTimeLimit, memoryLimitKb,
+                this);
+        watched.add(measurement);
+        return measurement;
+    }
+
+    void unwatch(ProcessMeasurement measurement) {
+        watched.remove(measurement);
+    }
+
+    private void sampleAll() {
+        for (ProcessMeasurement measurement : watched) {
+            try {
+                if (!measurement.sample()) {
+                    watched.remove(measurement);
+                }
+            } catch (Exception e) {
+                log.warn("进程采样失败", e);
+                watched.remove(measurement);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sampler.shutdownNow();
+    }
+}
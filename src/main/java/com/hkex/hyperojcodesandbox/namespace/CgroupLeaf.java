@@ -0,0 +1,92 @@
+package com.hkex.hyperojcodesandbox.namespace;
+
+import com.hkex.hyperojcodesandbox.monitor.CgroupMeasurement;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 一次执行独占的cgroup v2叶子节点
+ * 进程启动时由启动脚本把自身写入cgroup.procs，之后派生的所有进程都受该节点的限制
+ */
+@Slf4j
+public class CgroupLeaf implements Closeable {
+
+    private static final String MEMORY_EVENTS = "memory.events";
+
+    private static final String OOM_KILL_KEY = "oom_kill";
+
+    /**
+     * 删除节点前等待进程退出的最大重试次数
+     */
+    private static final int REMOVE_RETRIES = 50;
+
+    private final File dir;
+
+    private final CgroupMeasurement measurement;
+
+    CgroupLeaf(File dir, CgroupMeasurement measurement) {
+        this.dir = dir;
+        this.measurement = measurement;
+    }
+
+    /**
+     * 节点目录
+     * @return 目录
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * 资源计量
+     * @return 计量，读取失败时为null
+     */
+    public CgroupMeasurement getMeasurement() {
+        return measurement;
+    }
+
+    /**
+     * 节点内是否发生过OOM kill
+     * @return 是否因内存超限被结束
+     */
+    public boolean isOomKilled() {
+        try {
+            for (String line : Files.readAllLines(new File(dir, MEMORY_EVENTS).toPath(), StandardCharsets.US_ASCII)) {
+                if (line.startsWith(OOM_KILL_KEY + " ")) {
+                    return Long.parseLong(line.substring(OOM_KILL_KEY.length() + 1).trim()) > 0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取{}失败", MEMORY_EVENTS, e);
+        }
+        return false;
+    }
+
+    /**
+     * 结束节点内残留的进程并删除节点
+     */
+    @Override
+    public void close() {
+        if (measurement != null) {
+            measurement.close();
+        }
+        CgroupLeafFactory.write(new File(dir, "cgroup.kill"), "1");
+        for (int i = 0; i < REMOVE_RETRIES; i++) {
+            if (dir.delete() || !dir.exists()) {
+                return;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.warn("删除cgroup节点{}失败", dir);
+    }
+}
@@ -0,0 +1,118 @@
+package com.hkex.hyperojcodesandbox.namespace;
+
+import com.hkex.hyperojcodesandbox.config.NamespaceSandboxProperties;
+import com.hkex.hyperojcodesandbox.monitor.CgroupMonitor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+/**
+ * 创建每次执行的cgroup v2叶子节点
+ * 启用命名空间沙箱后，第一次创建时才创建父节点并开启memory、pids、cpu控制器；
+ * 无法限制资源时拒绝创建，不在没有内存、进程数与CPU限制的情况下执行用户程序
+ */
+@Component
+@Slf4j
+public class CgroupLeafFactory {
+
+    private static final String CONTROLLERS = "+memory +pids +cpu";
+
+    @Resource
+    private NamespaceSandboxProperties namespaceSandboxProperties;
+
+    @Resource
+    private CgroupMonitor cgroupMonitor;
+
+    private File parentDir;
+
+    private volatile boolean available = false;
+
+    /**
+     * 创建父节点并开启控制器，成功后不再重复
+     * @return cgroup v2是否可用
+     */
+    private synchronized boolean init() {
+        if (available) {
+            return true;
+        }
+        File root = new File(namespaceSandboxProperties.getCgroupRoot());
+        if (!new File(root, "cgroup.controllers").exists()) {
+            log.warn("{}不是cgroup v2挂载点，命名空间沙箱无法限制资源", root);
+            return false;
+        }
+        parentDir = new File(root, namespaceSandboxProperties.getCgroupParent());
+        if (!parentDir.isDirectory() && !parentDir.mkdirs()) {
+            log.warn("创建cgroup父节点{}失败，命名空间沙箱无法限制资源", parentDir);
+            return false;
+        }
+        // 逐级开启控制器，已开启时写入不报错
+        write(new File(root, "cgroup.subtree_control"), CONTROLLERS);
+        if (!write(new File(parentDir, "cgroup.subtree_control"), CONTROLLERS)) {
+            log.warn("在{}开启cgroup控制器失败，命名空间沙箱无法限制资源", parentDir);
+            return false;
+        }
+        available = true;
+        return true;
+    }
+
+    /**
+     * cgroup v2是否已初始化且可用
+     * @return 是否可用
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 创建一个叶子节点并写入资源限制
+     * @param memoryMax 内存上限(字节)
+     * @return 叶子节点
+     */
+    public CgroupLeaf create(long memoryMax) {
+        if (!namespaceSandboxProperties.isEnabled()) {
+            throw new RuntimeException("命名空间沙箱未启用（sandbox.namespace.enabled）");
+        }
+        if (!init()) {
+            throw new RuntimeException("cgroup v2不可用，无法限制内存、进程数与CPU，拒绝执行");
+        }
+        File dir = new File(parentDir, UUID.randomUUID().toString());
+        if (!dir.mkdir()) {
+            throw new RuntimeException("创建cgroup节点失败：" + dir);
+        }
+        boolean limited = write(new File(dir, "memory.max"), String.valueOf(memoryMax))
+                && write(new File(dir, "pids.max"), String.valueOf(namespaceSandboxProperties.getPidsMax()))
+                && write(new File(dir, "cpu.max"), namespaceSandboxProperties.getCpuMax());
+        if (!limited) {
+            dir.delete();
+            throw new RuntimeException("写入cgroup限制失败：" + dir);
+        }
+        // 不使用交换分区，超出内存上限时直接OOM
+        File swapMax = new File(dir, "memory.swap.max");
+        if (swapMax.exists()) {
+            write(swapMax, "0");
+        }
+        return new CgroupLeaf(dir, cgroupMonitor.start(dir));
+    }
+
+    /**
+     * 写入cgroup控制文件
+     * @param file 控制文件
+     * @param value 内容
+     * @return 是否写入成功
+     */
+    static boolean write(File file, String value) {
+        try {
+            Files.write(file.toPath(), value.getBytes(StandardCharsets.US_ASCII));
+            return true;
+        } catch (IOException e) {
+            log.debug("写入{}失败", file, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hkex.hyperojcodesandbox.output;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 解码缓冲区池，避免每个用例、每个输出帧都重新分配缓冲区
+ */
+public class BufferPool {
+
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 池中最多保留的缓冲区个数，超出的直接丢弃交给GC
+     */
+    private static final int MAX_POOLED = 64;
+
+    private static final Queue<ByteBuffer> BYTE_BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private static final Queue<CharBuffer> CHAR_BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger BYTE_POOLED = new AtomicInteger(0);
+
+    private static final AtomicInteger CHAR_POOLED = new AtomicInteger(0);
+
+    private BufferPool() {
+    }
+
+    public static ByteBuffer acquireByteBuffer() {
+        ByteBuffer buffer = BYTE_BUFFERS.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        BYTE_POOLED.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public static CharBuffer acquireCharBuffer() {
+        CharBuffer buffer = CHAR_BUFFERS.poll();
+        if (buffer == null) {
+            return CharBuffer.allocate(BUFFER_SIZE);
+        }
+        CHAR_POOLED.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (BYTE_POOLED.incrementAndGet() <= MAX_POOLED) {
+            BYTE_BUFFERS.offer(buffer);
+        } else {
+            BYTE_POOLED.decrementAndGet();
+        }
+    }
+
+    public static void release(CharBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (CHAR_POOLED.incrementAndGet() <= MAX_POOLED) {
+            CHAR_BUFFERS.offer(buffer);
+        } else {
+            CHAR_POOLED.decrementAndGet();
+        }
+    }
+}
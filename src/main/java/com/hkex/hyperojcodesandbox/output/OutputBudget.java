@@ -0,0 +1,41 @@
+package com.hkex.hyperojcodesandbox.output;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单次提交的输出字节预算，所有用例的标准输出与错误输出共用
+ */
+public class OutputBudget {
+
+    private final AtomicLong remaining;
+
+    public OutputBudget(long limit) {
+        this.remaining = new AtomicLong(limit);
+    }
+
+    /**
+     * 申请写入若干字节
+     * @param bytes 字节数
+     * @return 实际允许写入的字节数，小于申请数说明预算已耗尽
+     */
+    public int acquire(int bytes) {
+        while (true) {
+            long current = remaining.get();
+            if (current <= 0) {
+                return 0;
+            }
+            int granted = (int) Math.min(current, bytes);
+            if (remaining.compareAndSet(current, current - granted)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * 剩余可写入的字节数
+     * @return 字节数
+     */
+    public long getRemaining() {
+        return Math.max(0, remaining.get());
+    }
+}
@@ -0,0 +1,122 @@
+package com.hkex.hyperojcodesandbox.output;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 流式输出收集
+ * 按字节预算截断，使用增量解码器处理跨帧被拆开的多字节字符
+ */
+public class OutputCapture implements Closeable {
+
+    private final OutputBudget budget;
+
+    private final CharsetDecoder decoder;
+
+    private final StringBuilder result = new StringBuilder();
+
+    /**
+     * 待解码字节，保存上一帧末尾不完整的多字节字符
+     */
+    private ByteBuffer pending;
+
+    private CharBuffer decoded;
+
+    private boolean overflow;
+
+    private boolean finished;
+
+    public OutputCapture(OutputBudget budget, Charset charset) {
+        this.budget = budget;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.pending = BufferPool.acquireByteBuffer();
+        this.decoded = BufferPool.acquireCharBuffer();
+    }
+
+    /**
+     * 写入一段输出
+     * @param data 数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 是否仍在预算内，返回false表示输出超限，超出部分已丢弃
+     */
+    public synchronized boolean write(byte[] data, int offset, int length) {
+        if (overflow || finished) {
+            return !overflow;
+        }
+        int granted = budget.acquire(length);
+        int end = offset + granted;
+        while (offset < end) {
+            int chunk = Math.min(pending.remaining(), end - offset);
+            pending.put(data, offset, chunk);
+            offset += chunk;
+            decodePending(false);
+        }
+        if (granted < length) {
+            overflow = true;
+        }
+        return !overflow;
+    }
+
+    /**
+     * 是否输出超限
+     * @return 是否超限
+     */
+    public synchronized boolean isOverflow() {
+        return overflow;
+    }
+
+    /**
+     * 结束收集并获取全部输出
+     * @return 输出
+     */
+    public synchronized String finish() {
+        if (!finished) {
+            decodePending(true);
+            decoder.flush(decoded);
+            drainDecoded();
+            finished = true;
+            releaseBuffers();
+        }
+        return result.toString();
+    }
+
+    private void decodePending(boolean endOfInput) {
+        pending.flip();
+        while (true) {
+            boolean overflowed = decoder.decode(pending, decoded, endOfInput).isOverflow();
+            drainDecoded();
+            if (!overflowed) {
+                break;
+            }
+        }
+        pending.compact();
+    }
+
+    private void drainDecoded() {
+        decoded.flip();
+        result.append(decoded);
+        decoded.clear();
+    }
+
+    private void releaseBuffers() {
+        BufferPool.release(pending);
+        BufferPool.release(decoded);
+        pending = null;
+        decoded = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!finished) {
+            finished = true;
+            releaseBuffers();
+        }
+    }
+}
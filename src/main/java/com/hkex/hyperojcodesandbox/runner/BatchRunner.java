@@ -0,0 +1,77 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * 批量判题入口：在一个JVM内依次运行一次提交的多个用例，只付出一次JVM启动开销
+ * 用法：BatchRunner &lt;代码目录&gt; &lt;输入清单文件&gt; &lt;CPU时间限制&gt; &lt;墙钟时间限制&gt; &lt;输出字节预算&gt; &lt;输入方式args|stdin&gt; &lt;失败后是否停止failfast|all&gt;
+ * 帧分隔符作为标准输入的第一行传入，读完即关闭标准输入，不出现在命令行中，用户代码无法得知
+ * 输入清单每行为“用例下标\t输入文件路径”
+ * 每个用例的结果以帧的形式写到标准输出，用户程序的输出已被重定向，不会混入
+ */
+public class BatchRunner {
+
+    public static void main(String[] args) throws Exception {
+        byte[] boundary = readBoundary();
+        File classDir = new File(args[0]);
+        List<String> manifest = Files.readAllLines(new File(args[1]).toPath(), StandardCharsets.UTF_8);
+        long timeLimit = Long.parseLong(args[2]);
+        long wallTimeLimit = Long.parseLong(args[3]);
+        long outputBudget = Long.parseLong(args[4]);
+        boolean stdinInput = "stdin".equals(args[5]);
+        boolean failFast = "failfast".equals(args[6]);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        // 结果帧只写到上面的流，用例之间的标准输入输出指向空流
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        System.setOut(new PrintStream(new LimitedOutputStream(0)));
+        ExitGuard.install();
+        CaseRunner caseRunner = new CaseRunner(classDir, timeLimit, wallTimeLimit);
+        for (String line : manifest) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            File inputFile = new File(line.substring(tab + 1));
+            CaseResult result;
+            if (stdinInput) {
+                try (InputStream stdin = new FileInputStream(inputFile)) {
+                    result = caseRunner.run(new String[0], stdin, outputBudget);
+                }
+            } else {
+                String input = new String(Files.readAllBytes(inputFile.toPath()), StandardCharsets.UTF_8);
+                result = caseRunner.run(input.split(" "), new ByteArrayInputStream(new byte[0]), outputBudget);
+            }
+            result.index = Integer.parseInt(line.substring(0, tab));
+            outputBudget = Math.max(0, outputBudget - result.stdout.length - result.stderr.length);
+            result.writeTo(out, boundary);
+            if (failFast && !CaseResult.STATUS_OK.equals(result.status)) {
+                break;
+            }
+        }
+        out.flush();
+        // 用户代码可能留下无法结束的线程，直接终止JVM
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * 从标准输入读取一行作为帧分隔符，读完后关闭标准输入
+     * @return 帧分隔符
+     */
+    private static byte[] readBoundary() throws IOException {
+        ByteArrayOutputStream boundary = new ByteArrayOutputStream();
+        try (InputStream in = new FileInputStream(FileDescriptor.in)) {
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                boundary.write(b);
+            }
+        }
+        if (boundary.size() == 0) {
+            throw new IOException("未收到帧分隔符");
+        }
+        return boundary.toByteArray();
+    }
+}
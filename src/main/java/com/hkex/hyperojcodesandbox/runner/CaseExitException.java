@@ -0,0 +1,18 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+/**
+ * 用户代码调用System.exit时抛出，用于结束当前用例而不是整个判题JVM
+ */
+public class CaseExitException extends SecurityException {
+
+    private final int status;
+
+    public CaseExitException(int status) {
+        super("System.exit(" + status + ")");
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
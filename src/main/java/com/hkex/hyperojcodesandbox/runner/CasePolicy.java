@@ -0,0 +1,23 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.security.Permission;
+import java.security.ProtectionDomain;
+
+/**
+ * 判题JVM的权限策略：用户代码（不是由JDK或判题程序的类加载器加载的类）没有任何权限，其余代码拥有全部权限
+ * ExitGuard只对受限的权限做栈检查，JDK在doPrivileged中代用户完成的操作（如生成lambda）不受影响
+ * Policy在Java 17中已标记为待移除，以全限定名引用，避免按Java 8编译时import产生无法抑制的警告
+ */
+@SuppressWarnings({"removal", "deprecation"})
+public class CasePolicy extends java.security.Policy {
+
+    private static final ClassLoader APP_LOADER = ClassLoader.getSystemClassLoader();
+
+    private static final ClassLoader PLATFORM_LOADER = APP_LOADER.getParent();
+
+    @Override
+    public boolean implies(ProtectionDomain domain, Permission permission) {
+        ClassLoader loader = domain.getClassLoader();
+        return loader == null || loader == APP_LOADER || loader == PLATFORM_LOADER;
+    }
+}
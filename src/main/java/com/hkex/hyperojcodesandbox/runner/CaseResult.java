@@ -0,0 +1,154 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个用例在判题JVM内的运行结果，以及结果帧的编解码
+ * 帧格式：分隔符 + 下标 + 状态 + CPU时间 + 墙钟时间 + 内存 + 退出码 + 标准输出 + 错误输出
+ */
+public class CaseResult {
+
+    public static final String STATUS_OK = "OK";
+
+    public static final String STATUS_RUNTIME_ERROR = "RE";
+
+    public static final String STATUS_TIME_LIMIT_EXCEEDED = "TLE";
+
+    public static final String STATUS_OUTPUT_LIMIT_EXCEEDED = "OLE";
+
+    public int index;
+
+    public String status;
+
+    /**
+     * CPU时间(ms)
+     */
+    public long cpuTime;
+
+    /**
+     * 墙钟时间(ms)
+     */
+    public long wallTime;
+
+    /**
+     * 堆内存峰值(KB)
+     */
+    public long memory;
+
+    public int exitCode;
+
+    public byte[] stdout = new byte[0];
+
+    public byte[] stderr = new byte[0];
+
+    /**
+     * 写出一个结果帧
+     * @param out 输出流
+     * @param boundary 帧分隔符
+     */
+    public void writeTo(DataOutputStream out, byte[] boundary) throws IOException {
+        out.write(boundary);
+        writeFields(out);
+        out.flush();
+    }
+
+    /**
+     * 写出结果的各个字段
+     * @param out 输出流
+     */
+    public void writeFields(DataOutputStream out) throws IOException {
+        out.writeInt(index);
+        out.writeUTF(status);
+        out.writeLong(cpuTime);
+        out.writeLong(wallTime);
+        out.writeLong(memory);
+        out.writeInt(exitCode);
+        out.writeInt(stdout.length);
+        out.write(stdout);
+        out.writeInt(stderr.length);
+        out.write(stderr);
+    }
+
+    /**
+     * 读取一个结果帧，帧之前的其他字节会被跳过
+     * @param in 输入流
+     * @param boundary 帧分隔符
+     * @return 结果，流结束时返回null
+     */
+    public static CaseResult readFrom(DataInputStream in, byte[] boundary) throws IOException {
+        if (!skipToBoundary(in, boundary)) {
+            return null;
+        }
+        return readFields(in);
+    }
+
+    /**
+     * 读取结果的各个字段
+     * @param in 输入流
+     * @return 结果
+     */
+    public static CaseResult readFields(DataInputStream in) throws IOException {
+        CaseResult result = new CaseResult();
+        result.index = in.readInt();
+        result.status = in.readUTF();
+        result.cpuTime = in.readLong();
+        result.wallTime = in.readLong();
+        result.memory = in.readLong();
+        result.exitCode = in.readInt();
+        result.stdout = readBytes(in);
+        result.stderr = readBytes(in);
+        return result;
+    }
+
+    /**
+     * 从完整的输出中解析所有结果帧
+     * @param data 输出
+     * @param boundary 帧分隔符
+     * @return 结果
+     */
+    public static List<CaseResult> readAll(byte[] data, byte[] boundary) throws IOException {
+        List<CaseResult> results = new ArrayList<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        CaseResult result;
+        while ((result = readFrom(in, boundary)) != null) {
+            results.add(result);
+        }
+        return results;
+    }
+
+    public String getStdoutString() {
+        return new String(stdout, StandardCharsets.UTF_8);
+    }
+
+    public String getStderrString() {
+        return new String(stderr, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static boolean skipToBoundary(InputStream in, byte[] boundary) throws IOException {
+        byte[] window = new byte[boundary.length];
+        int filled = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (filled < window.length) {
+                window[filled++] = (byte) b;
+            } else {
+                System.arraycopy(window, 1, window, 0, window.length - 1);
+                window[window.length - 1] = (byte) b;
+            }
+            if (filled == window.length && Arrays.equals(window, boundary)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,242 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在当前JVM内运行一个用例
+ * 每个用例使用独立的类加载器加载Main（静态状态互不影响），重定向标准输入输出，按CPU时间与墙钟时间中断
+ * CPU时间为用例线程组内所有线程的CPU时间之和，每隔CHECK_INTERVAL采样一次，两次采样之间结束的线程只计到上一次采样；
+ * 内存为用例运行期间堆已用量相对开始前（回收垃圾后）的最大增量，同样按间隔采样，不含JVM与判题程序自身的占用，
+ * 因此小于EXEC模式下按cgroup统计的整个JVM的内存
+ * 本包中的类会被放进判题容器运行，只能依赖JDK，且不能使用内部类/匿名类（导出时按类名逐个复制）
+ */
+public class CaseRunner {
+
+    private static final String MAIN_CLASS = "Main";
+
+    /**
+     * 用例线程组的名称，用例启动的线程都在该线程组及其子线程组中
+     */
+    public static final String CASE_GROUP_NAME = "case";
+
+    /**
+     * 等待用例时检查CPU时间的间隔（毫秒）
+     */
+    private static final long CHECK_INTERVAL = 10L;
+
+    /**
+     * 所有用例线程组的父线程组，用于识别用例线程
+     * 用例结束后未能停止的线程仍属于该线程组，仍按用例线程受限
+     * 创建该线程组时会触发线程组的访问检查，此时该字段尚为null
+     */
+    private static final ThreadGroup CASES_GROUP = new ThreadGroup("cases");
+
+    /**
+     * 用户代码所在目录，与classBytes二选一
+     */
+    private final URL[] classPath;
+
+    /**
+     * 内存中的用户类（类名 -> 字节码），与classPath二选一
+     */
+    private final Map<String, byte[]> classBytes;
+
+    /**
+     * CPU时间限制(ms)，小于等于0表示不限制
+     */
+    private final long timeLimit;
+
+    /**
+     * 墙钟时间限制(ms)
+     */
+    private final long wallTimeLimit;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    public CaseRunner(File classDir, long timeLimit, long wallTimeLimit) throws Exception {
+        this.classPath = new URL[]{classDir.toURI().toURL()};
+        this.classBytes = null;
+        this.timeLimit = timeLimit;
+        this.wallTimeLimit = wallTimeLimit;
+    }
+
+    public CaseRunner(Map<String, byte[]> classBytes, long timeLimit, long wallTimeLimit) {
+        this.classPath = null;
+        this.classBytes = classBytes;
+        this.timeLimit = timeLimit;
+        this.wallTimeLimit = wallTimeLimit;
+    }
+
+    /**
+     * 当前线程是否属于正在运行的用例
+     * @return 是否用例线程
+     */
+    public static boolean isCaseThread() {
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        return CASES_GROUP != null && group != null && CASES_GROUP.parentOf(group);
+    }
+
+    /**
+     * 是否某个用例的线程组或其子线程组（不含所有用例线程组的父线程组）
+     * 不能用getParent逐级查找，它本身会触发线程组的访问检查
+     * @param group 线程组
+     * @return 是否用例线程组
+     */
+    public static boolean isCaseGroup(ThreadGroup group) {
+        return CASES_GROUP != null && group != CASES_GROUP && CASES_GROUP.parentOf(group);
+    }
+
+    /**
+     * 运行一个用例
+     * @param args 程序参数
+     * @param stdin 标准输入
+     * @param outputLimit 标准输出与错误输出各自的字节上限
+     * @return 运行结果
+     */
+    @SuppressWarnings({"removal", "deprecation"})
+    public CaseResult run(String[] args, InputStream stdin, long outputLimit) throws Exception {
+        CaseResult result = new CaseResult();
+        LimitedOutputStream stdout = new LimitedOutputStream(outputLimit);
+        LimitedOutputStream stderr = new LimitedOutputStream(outputLimit);
+        InputStream originStdin = System.in;
+        PrintStream originOut = System.out;
+        PrintStream originErr = System.err;
+        PrintStream caseOut = new PrintStream(stdout, false, "UTF-8");
+        PrintStream caseErr = new PrintStream(stderr, true, "UTF-8");
+        // 独立类加载器的父加载器为扩展类加载器，用例看不到判题程序自身的类
+        ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        ClassLoader classLoader = classPath != null
+                ? new URLClassLoader(classPath, parent) : new MemoryClassLoader(classBytes, parent);
+        ThreadGroup group = new ThreadGroup(CASES_GROUP, CASE_GROUP_NAME);
+        // 最后一个线程结束后自动销毁，常驻代理运行大量用例也不会在CASES_GROUP下堆积空线程组
+        group.setDaemon(true);
+        long[] cpuNanos = {-1};
+        Throwable[] failure = {null};
+        int[] exitCode = {0};
+        // 线程ID -> 最近一次采样的CPU时间(ns)，线程ID不会复用
+        Map<Long, Long> threadCpuNanos = new HashMap<>();
+
+        // 回收上一个用例留下的垃圾，以此时的堆已用量为基线
+        System.gc();
+        long heapBaseline = memoryMXBean.getHeapMemoryUsage().getUsed();
+        long heapPeak = 0;
+        Thread caseThread = new Thread(group, () -> {
+            try {
+                Method main = classLoader.loadClass(MAIN_CLASS).getMethod("main", String[].class);
+                main.invoke(null, (Object) args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CaseExitException) {
+                    exitCode[0] = ((CaseExitException) cause).getStatus();
+                } else {
+                    failure[0] = cause;
+                }
+            } catch (Throwable e) {
+                failure[0] = e;
+            } finally {
+                cpuNanos[0] = threadMXBean.getCurrentThreadCpuTime();
+            }
+        }, "main");
+        caseThread.setContextClassLoader(classLoader);
+
+        long start = System.nanoTime();
+        boolean timeout = false;
+        try {
+            System.setIn(stdin);
+            System.setOut(caseOut);
+            System.setErr(caseErr);
+            caseThread.start();
+            while (caseThread.isAlive()) {
+                caseThread.join(CHECK_INTERVAL);
+                heapPeak = Math.max(heapPeak, memoryMXBean.getHeapMemoryUsage().getUsed() - heapBaseline);
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                long cpu = TimeUnit.NANOSECONDS.toMillis(sampleCpu(group, threadCpuNanos));
+                if ((timeLimit > 0 && cpu > timeLimit) || elapsed > wallTimeLimit) {
+                    timeout = true;
+                    break;
+                }
+            }
+            // 主线程结束后其他用例线程可能仍在运行，一并计入
+            sampleCpu(group, threadCpuNanos);
+        } finally {
+            // 结束用例启动的所有线程，避免影响后续用例
+            group.stop();
+            caseThread.join(CHECK_INTERVAL);
+            caseOut.flush();
+            caseErr.flush();
+            System.setIn(originStdin);
+            System.setOut(originOut);
+            System.setErr(originErr);
+            if (classLoader instanceof URLClassLoader) {
+                ((URLClassLoader) classLoader).close();
+            }
+        }
+
+        result.wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 主线程在结束前记录了自己准确的CPU时间
+        if (cpuNanos[0] >= 0) {
+            threadCpuNanos.merge(caseThread.getId(), cpuNanos[0], Math::max);
+        }
+        result.cpuTime = TimeUnit.NANOSECONDS.toMillis(sumCpu(threadCpuNanos));
+        result.memory = Math.max(heapPeak, memoryMXBean.getHeapMemoryUsage().getUsed() - heapBaseline) / 1024;
+        if (failure[0] != null && !timeout) {
+            failure[0].printStackTrace(caseErr);
+            caseErr.flush();
+            exitCode[0] = 1;
+        }
+        result.exitCode = exitCode[0];
+        result.stdout = stdout.toByteArray();
+        result.stderr = stderr.toByteArray();
+        if (timeout) {
+            result.status = CaseResult.STATUS_TIME_LIMIT_EXCEEDED;
+        } else if (stdout.isOverflow() || stderr.isOverflow()) {
+            result.status = CaseResult.STATUS_OUTPUT_LIMIT_EXCEEDED;
+        } else if (result.exitCode != 0) {
+            result.status = CaseResult.STATUS_RUNTIME_ERROR;
+        } else {
+            result.status = CaseResult.STATUS_OK;
+        }
+        return result;
+    }
+
+    /**
+     * 采样用例线程组内所有存活线程的CPU时间
+     * @param group 用例线程组
+     * @param threadCpuNanos 各线程最近一次采样的CPU时间，已结束的线程保留最后一次的值
+     * @return 用例至今的CPU时间(ns)
+     */
+    private long sampleCpu(ThreadGroup group, Map<Long, Long> threadCpuNanos) {
+        Thread[] threads = new Thread[group.activeCount() + 16];
+        int count = group.enumerate(threads, true);
+        for (int i = 0; i < count; i++) {
+            long id = threads[i].getId();
+            long cpu = threadMXBean.getThreadCpuTime(id);
+            if (cpu > 0) {
+                threadCpuNanos.merge(id, cpu, Math::max);
+            }
+        }
+        return sumCpu(threadCpuNanos);
+    }
+
+    private static long sumCpu(Map<Long, Long> threadCpuNanos) {
+        long total = 0;
+        for (long cpu : threadCpuNanos.values()) {
+            total += cpu;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,65 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * 类共享归档（CDS）预热程序
+ * 按判题程序的常见写法加载一遍输入输出与集合类，生成归档用的类列表
+ */
+public class CdsWarmup {
+
+    public static void main(String[] args) throws Exception {
+        String input = "3 1 2\nhello world\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes("UTF-8")));
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            list.add(scanner.nextInt());
+        }
+        scanner.nextLine();
+        String line = scanner.nextLine();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input.getBytes("UTF-8"))));
+        StringTokenizer tokenizer = new StringTokenizer(reader.readLine());
+        StreamTokenizer streamTokenizer = new StreamTokenizer(new StringReader(input));
+        streamTokenizer.nextToken();
+
+        Map<String, Integer> hashMap = new HashMap<>();
+        Map<Integer, Integer> treeMap = new TreeMap<>();
+        Set<Integer> hashSet = new HashSet<>(list);
+        TreeSet<Integer> treeSet = new TreeSet<>(list);
+        Deque<Integer> deque = new ArrayDeque<>(list);
+        Queue<Integer> priorityQueue = new PriorityQueue<>(Collections.reverseOrder());
+        LinkedList<Integer> linkedList = new LinkedList<>(list);
+        while (tokenizer.hasMoreTokens()) {
+            String token = tokenizer.nextToken();
+            hashMap.put(token, hashMap.getOrDefault(token, 0) + 1);
+        }
+        for (Integer value : list) {
+            treeMap.merge(value, 1, Integer::sum);
+            priorityQueue.offer(value);
+        }
+        int[] array = new int[]{3, 1, 2};
+        Arrays.sort(array);
+        Integer[] boxed = list.toArray(new Integer[0]);
+        Arrays.sort(boxed, (a, b) -> b - a);
+        Collections.sort(list);
+        long sum = list.stream().mapToLong(Integer::longValue).sum();
+
+        StringBuilder builder = new StringBuilder(line);
+        builder.append(hashSet.size()).append(treeSet.first()).append(deque.peekFirst())
+                .append(priorityQueue.poll()).append(linkedList.getLast()).append(sum)
+                .append(Math.max(array[0], boxed[0])).append(String.format("%.2f", 1.0 / 3))
+                .append(new BigInteger("123456789").multiply(BigInteger.TEN))
+                .append(new BigDecimal("1.5").add(BigDecimal.ONE))
+                .append(Integer.parseInt("42")).append(Long.parseLong("42")).append(Double.parseDouble("4.2"));
+
+        PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new ByteArrayOutputStream())));
+        writer.println(builder);
+        writer.printf("%d %s%n", treeMap.size(), hashMap);
+        writer.flush();
+        System.out.print("");
+    }
+}
@@ -0,0 +1,119 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.io.File;
+import java.io.FilePermission;
+import java.io.IOException;
+import java.lang.reflect.ReflectPermission;
+import java.nio.file.LinkPermission;
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 判题JVM的安全管理器
+ * 拦截用例线程中的System.exit；用例线程只能访问用例线程组内的线程，启动的线程都会随用例结束；
+ * 替换标准输入输出、直接读写文件描述符、绕过访问检查、修改线程、设置URL/套接字工厂、加载本地库、执行程序、创建链接与访问/proc、/dev等受限权限
+ * 只有调用栈上没有用户代码时才放行（见CasePolicy），其余权限检查一律放行
+ */
+@SuppressWarnings({"removal", "deprecation"})
+public class ExitGuard extends SecurityManager {
+
+    /**
+     * 受限的运行时权限
+     */
+    private static final Set<String> RESTRICTED_PERMISSIONS = new HashSet<>(Arrays.asList(
+            "setSecurityManager", "createSecurityManager", "setIO", "readFileDescriptor", "writeFileDescriptor",
+            "modifyThread", "modifyThreadGroup", "stopThread", "setDefaultUncaughtExceptionHandler",
+            "suppressAccessChecks", "setFactory"));
+
+    /**
+     * 用户代码不能访问的目录，其中有指向判题JVM标准输入输出的/proc/self/fd、/dev/stdout等
+     */
+    private static final String[] RESTRICTED_DIRS = {"/proc", "/dev"};
+
+    /**
+     * 设置权限策略并安装安全管理器，需在加载用户代码前调用
+     * 公共ForkJoinPool的工作线程不属于用例线程组，用例不能启动，因此不设工作线程，并行流等任务由提交的线程自己执行
+     */
+    public static void install() {
+        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "0");
+        java.security.Policy.setPolicy(new CasePolicy());
+        System.setSecurityManager(new ExitGuard());
+    }
+
+    @Override
+    public void checkPermission(Permission perm) {
+        if (isRestricted(perm)) {
+            java.security.AccessController.checkPermission(perm);
+        }
+    }
+
+    @Override
+    public void checkPermission(Permission perm, Object context) {
+        checkPermission(perm);
+    }
+
+    @Override
+    public void checkExit(int status) {
+        if (CaseRunner.isCaseThread()) {
+            throw new CaseExitException(status);
+        }
+        checkPermission(new RuntimePermission("exitVM." + status));
+    }
+
+    @Override
+    public void checkAccess(Thread t) {
+        ThreadGroup group = t.getThreadGroup();
+        if (group == null || CaseRunner.isCaseGroup(group)) {
+            return;
+        }
+        if (CaseRunner.isCaseThread()) {
+            throw new SecurityException("用例不能访问用例以外的线程：" + t.getName());
+        }
+        checkPermission(new RuntimePermission("modifyThread"));
+    }
+
+    @Override
+    public void checkAccess(ThreadGroup g) {
+        if (CaseRunner.isCaseGroup(g)) {
+            return;
+        }
+        if (CaseRunner.isCaseThread()) {
+            throw new SecurityException("用例不能访问用例以外的线程组：" + g.getName());
+        }
+        checkPermission(new RuntimePermission("modifyThreadGroup"));
+    }
+
+    private static boolean isRestricted(Permission perm) {
+        String name = perm.getName();
+        if (perm instanceof RuntimePermission || perm instanceof ReflectPermission) {
+            return RESTRICTED_PERMISSIONS.contains(name) || name.startsWith("exitVM") || name.startsWith("loadLibrary.");
+        }
+        if (perm instanceof FilePermission) {
+            return perm.getActions().contains("execute") || isRestrictedPath(name);
+        }
+        // 不能新建指向受限目录的链接
+        return perm instanceof LinkPermission;
+    }
+
+    /**
+     * 是否受限目录下的路径，按规范路径判断（/dev/fd等符号链接会被解析）
+     * @param path 路径
+     * @return 是否受限目录下的路径
+     */
+    private static boolean isRestrictedPath(String path) {
+        String canonicalPath;
+        try {
+            canonicalPath = new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            return true;
+        }
+        for (String dir : RESTRICTED_DIRS) {
+            if (canonicalPath.equals(dir) || canonicalPath.startsWith(dir + File.separator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,239 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ * 常驻判题代理
+ * 作为池化容器的1号进程长期运行，通过附加的标准输入接收请求、标准输出返回结果，
+ * 省去每个用例一次的docker exec往返与JVM启动
+ * 每个用例使用独立的类加载器与线程组，同一个代理依次服务多次提交；提交结束后由TYPE_CHECK检查是否残留了用户代码的影响，
+ * 有残留时由容器池重启代理
+ * 帧格式：4字节长度 + 内容，内容首字节为帧类型
+ */
+public class JudgeAgent {
+
+    /**
+     * 加载用户类：类个数，逐个（类名，字节码长度，字节码）
+     */
+    public static final byte TYPE_LOAD = 1;
+
+    /**
+     * 运行用例：下标，CPU时间限制，墙钟时间限制，输出上限，参数个数，逐个参数，标准输入文件路径（空串表示没有）
+     */
+    public static final byte TYPE_RUN = 2;
+
+    public static final byte TYPE_PING = 3;
+
+    /**
+     * 提交结束后的检查：释放已加载的用户类，响应TYPE_OK后跟不能复用的原因（空串表示可以复用）
+     */
+    public static final byte TYPE_CHECK = 4;
+
+    /**
+     * 用例结果：CaseResult的各个字段
+     */
+    public static final byte TYPE_RESULT = 11;
+
+    public static final byte TYPE_OK = 12;
+
+    /**
+     * 请求处理失败：错误信息
+     */
+    public static final byte TYPE_ERROR = 13;
+
+    /**
+     * 等待被停止的用例线程退出的最长时间（毫秒）
+     */
+    private static final long THREAD_EXIT_TIME_OUT = 200L;
+
+    /**
+     * 释放用户类并回收垃圾后，已用堆内存超过最大堆的该比例时视为用户代码留下了无法回收的对象
+     */
+    private static final double MAX_RETAINED_HEAP_RATIO = 0.5;
+
+    private static final int GC_ATTEMPTS = 3;
+
+    private static InputStream originIn;
+
+    private static PrintStream originOut;
+
+    private static PrintStream originErr;
+
+    private static Properties originProperties;
+
+    private static Locale originLocale;
+
+    private static Locale originDisplayLocale;
+
+    private static Locale originFormatLocale;
+
+    private static TimeZone originTimeZone;
+
+    public static void main(String[] args) throws Exception {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        // 请求与响应只走上面两个流，用例之间的标准输入输出指向空流，残留的用户代码读不到请求、也写不出响应
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        System.setOut(new PrintStream(new LimitedOutputStream(0)));
+        ExitGuard.install();
+        saveOrigin();
+        Map<String, byte[]> classes = new HashMap<>();
+        while (true) {
+            byte[] payload;
+            try {
+                payload = new byte[in.readInt()];
+            } catch (EOFException e) {
+                break;
+            }
+            in.readFully(payload);
+            DataInputStream request = new DataInputStream(new ByteArrayInputStream(payload));
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            DataOutputStream responseOut = new DataOutputStream(response);
+            try {
+                byte type = request.readByte();
+                switch (type) {
+                    case TYPE_LOAD:
+                        classes = readClasses(request);
+                        responseOut.writeByte(TYPE_OK);
+                        break;
+                    case TYPE_RUN:
+                        CaseResult result = runCase(request, classes);
+                        responseOut.writeByte(TYPE_RESULT);
+                        result.writeFields(responseOut);
+                        break;
+                    case TYPE_PING:
+                        responseOut.writeByte(TYPE_OK);
+                        break;
+                    case TYPE_CHECK:
+                        classes = new HashMap<>();
+                        responseOut.writeByte(TYPE_OK);
+                        responseOut.writeUTF(findContamination());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的帧类型：" + type);
+                }
+            } catch (Exception e) {
+                response.reset();
+                responseOut.writeByte(TYPE_ERROR);
+                responseOut.writeUTF(String.valueOf(e));
+            }
+            responseOut.flush();
+            out.writeInt(response.size());
+            response.writeTo(out);
+            out.flush();
+        }
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * 记录用户代码运行前的全局状态
+     */
+    private static void saveOrigin() {
+        originIn = System.in;
+        originOut = System.out;
+        originErr = System.err;
+        originLocale = Locale.getDefault();
+        originDisplayLocale = Locale.getDefault(Locale.Category.DISPLAY);
+        originFormatLocale = Locale.getDefault(Locale.Category.FORMAT);
+        // 首次获取默认时区时才会设置user.timezone属性，需在复制系统属性之前
+        originTimeZone = TimeZone.getDefault();
+        originProperties = (Properties) System.getProperties().clone();
+    }
+
+    /**
+     * 检查用户代码是否留下了会影响后续提交的状态：存活的用例线程、被改动的标准输入输出、系统属性、默认区域与时区，
+     * 或回收垃圾后仍占用大量堆内存
+     * @return 不能复用的原因，可以复用时为空串
+     */
+    private static String findContamination() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + THREAD_EXIT_TIME_OUT;
+        while (hasCaseThreads()) {
+            if (System.currentTimeMillis() > deadline) {
+                return "残留用例线程";
+            }
+            Thread.sleep(10L);
+        }
+        if (System.in != originIn || System.out != originOut || System.err != originErr
+                || !(System.getSecurityManager() instanceof ExitGuard)) {
+            return "标准输入输出或安全管理器被替换";
+        }
+        Properties properties = System.getProperties();
+        for (String key : properties.stringPropertyNames()) {
+            if (!properties.getProperty(key).equals(originProperties.getProperty(key))) {
+                return "系统属性" + key + "被修改";
+            }
+        }
+        if (properties.size() != originProperties.size()) {
+            return "系统属性被删除";
+        }
+        if (!originLocale.equals(Locale.getDefault())
+                || !originDisplayLocale.equals(Locale.getDefault(Locale.Category.DISPLAY))
+                || !originFormatLocale.equals(Locale.getDefault(Locale.Category.FORMAT))
+                || !originTimeZone.equals(TimeZone.getDefault())) {
+            return "默认区域或时区被修改";
+        }
+        // 刚结束的用例类可能仍被JIT编译任务等短暂引用，一次回收卸载不了时稍后再试
+        MemoryUsage heap = null;
+        for (int i = 0; i < GC_ATTEMPTS; i++) {
+            if (i > 0) {
+                Thread.sleep(50L);
+            }
+            System.gc();
+            heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            if (heap.getMax() <= 0 || heap.getUsed() <= heap.getMax() * MAX_RETAINED_HEAP_RATIO) {
+                return "";
+            }
+        }
+        return "回收后仍占用" + heap.getUsed() / 1024 / 1024 + "MB堆内存";
+    }
+
+    /**
+     * 是否还有用例启动的线程存活
+     */
+    private static boolean hasCaseThreads() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            ThreadGroup group = thread.getThreadGroup();
+            if (group != null && CaseRunner.isCaseGroup(group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, byte[]> readClasses(DataInputStream request) throws IOException {
+        int count = request.readInt();
+        Map<String, byte[]> classes = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String name = request.readUTF();
+            byte[] bytes = new byte[request.readInt()];
+            request.readFully(bytes);
+            classes.put(name, bytes);
+        }
+        return classes;
+    }
+
+    private static CaseResult runCase(DataInputStream request, Map<String, byte[]> classes) throws Exception {
+        int index = request.readInt();
+        long timeLimit = request.readLong();
+        long wallTimeLimit = request.readLong();
+        long outputLimit = request.readLong();
+        String[] caseArgs = new String[request.readInt()];
+        for (int i = 0; i < caseArgs.length; i++) {
+            caseArgs[i] = request.readUTF();
+        }
+        String stdinPath = request.readUTF();
+        try (InputStream stdin = stdinPath.isEmpty()
+                ? new ByteArrayInputStream(new byte[0]) : new FileInputStream(stdinPath)) {
+            CaseResult result = new CaseRunner(classes, timeLimit, wallTimeLimit).run(caseArgs, stdin, outputLimit);
+            result.index = index;
+            return result;
+        }
+    }
+}
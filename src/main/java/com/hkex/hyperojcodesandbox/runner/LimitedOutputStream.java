@@ -0,0 +1,52 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+/**
+ * 有字节上限的内存输出流，超出部分丢弃并记录超限
+ */
+public class LimitedOutputStream extends OutputStream {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private final long limit;
+
+    private volatile boolean overflow;
+
+    public LimitedOutputStream(long limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (buffer.size() >= limit) {
+            overflow = true;
+            return;
+        }
+        buffer.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int allowed = (int) Math.min(len, limit - buffer.size());
+        if (allowed < len) {
+            overflow = true;
+        }
+        if (allowed > 0) {
+            buffer.write(b, off, allowed);
+        }
+    }
+
+    public boolean isOverflow() {
+        return overflow;
+    }
+
+    public synchronized int size() {
+        return buffer.size();
+    }
+
+    public synchronized byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,25 @@
+package com.hkex.hyperojcodesandbox.runner;
+
+import java.util.Map;
+
+/**
+ * 从内存中的字节码加载用户类
+ */
+public class MemoryClassLoader extends ClassLoader {
+
+    private final Map<String, byte[]> classBytes;
+
+    public MemoryClassLoader(Map<String, byte[]> classBytes, ClassLoader parent) {
+        super(parent);
+        this.classBytes = classBytes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classBytes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
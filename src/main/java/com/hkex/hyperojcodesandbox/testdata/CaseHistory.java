@@ -0,0 +1,128 @@
+package com.hkex.hyperojcodesandbox.testdata;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.hkex.hyperojcodesandbox.config.SandboxProperties;
+import com.hkex.hyperojcodesandbox.model.enums.CaseOrderEnum;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 用例的历史执行统计（平均耗时、失败次数），用于安排用例执行顺序
+ * 只保存在内存中，按用例输入标识做LRU淘汰
+ */
+@Component
+public class CaseHistory {
+
+    @Resource
+    private SandboxProperties sandboxProperties;
+
+    private LRUCache<String, CaseStats> stats;
+
+    @PostConstruct
+    public void init() {
+        this.stats = CacheUtil.newLRUCache(sandboxProperties.getCaseHistorySize());
+    }
+
+    /**
+     * 记录一次执行
+     * @param input 用例输入
+     * @param time 耗时(ms)，未知时为null
+     * @param failed 是否失败
+     */
+    public void record(TestCaseInput input, Long time, boolean failed) {
+        String key = key(input);
+        CaseStats caseStats = stats.get(key, false);
+        if (caseStats == null) {
+            caseStats = new CaseStats();
+            stats.put(key, caseStats);
+        }
+        caseStats.record(time, failed);
+    }
+
+    /**
+     * 安排执行顺序
+     * @param inputs 用例输入
+     * @param caseOrder 顺序策略
+     * @return 按执行顺序排列的用例下标
+     */
+    public int[] order(List<TestCaseInput> inputs, CaseOrderEnum caseOrder) {
+        List<Integer> indexes = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            indexes.add(i);
+        }
+        if (caseOrder != null && caseOrder != CaseOrderEnum.INPUT) {
+            long[] costs = new long[inputs.size()];
+            long[] failures = new long[inputs.size()];
+            for (int i = 0; i < inputs.size(); i++) {
+                CaseStats caseStats = stats.get(key(inputs.get(i)), false);
+                costs[i] = caseStats != null && caseStats.getAverageTime() >= 0
+                        ? caseStats.getAverageTime() : estimateCost(inputs.get(i));
+                failures[i] = caseStats == null ? 0 : caseStats.getFailures();
+            }
+            Comparator<Integer> cheapest = Comparator.comparingLong(i -> costs[i]);
+            if (caseOrder == CaseOrderEnum.FAILING_FIRST) {
+                Comparator<Integer> failing = Comparator.comparingLong(i -> -failures[i]);
+                indexes.sort(failing.thenComparing(cheapest));
+            } else {
+                indexes.sort(cheapest);
+            }
+        }
+        int[] order = new int[indexes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = indexes.get(i);
+        }
+        return order;
+    }
+
+    /**
+     * 没有历史记录时以输入大小估计耗时，排在有记录的用例之后
+     */
+    private static long estimateCost(TestCaseInput input) {
+        long size = input.isStoreFile() ? input.getFile().length() : input.getContent().length();
+        return Integer.MAX_VALUE + size;
+    }
+
+    private static String key(TestCaseInput input) {
+        return input.isStoreFile() ? input.getCacheKey() : DigestUtil.sha256Hex(input.getCacheKey());
+    }
+
+    /**
+     * 单个用例的统计
+     */
+    private static class CaseStats {
+
+        private long runs;
+
+        private long totalTime;
+
+        private long timedRuns;
+
+        private long failures;
+
+        synchronized void record(Long time, boolean failed) {
+            runs++;
+            if (time != null) {
+                totalTime += time;
+                timedRuns++;
+            }
+            if (failed) {
+                failures++;
+            }
+        }
+
+        synchronized long getAverageTime() {
+            return timedRuns == 0 ? -1 : totalTime / timedRuns;
+        }
+
+        synchronized long getFailures() {
+            return failures;
+        }
+    }
+}
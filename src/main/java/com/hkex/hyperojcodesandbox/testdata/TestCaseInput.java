@@ -0,0 +1,86 @@
+package com.hkex.hyperojcodesandbox.testdata;
+
+import cn.hutool.core.io.FileUtil;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 用例输入：请求中直接携带的文本，或测试数据仓库中的文件
+ */
+public class TestCaseInput {
+
+    private final String content;
+
+    private final File file;
+
+    /**
+     * 文件输入在仓库中的相对路径
+     */
+    private final String storePath;
+
+    private TestCaseInput(String content, File file, String storePath) {
+        this.content = content;
+        this.file = file;
+        this.storePath = storePath;
+    }
+
+    /**
+     * 请求中携带的输入
+     * @param content 输入内容
+     * @return 用例输入
+     */
+    public static TestCaseInput ofContent(String content) {
+        return new TestCaseInput(content, null, null);
+    }
+
+    /**
+     * 测试数据仓库中的输入文件
+     * @param file 文件
+     * @param storePath 相对仓库根目录的路径（使用/分隔）
+     * @return 用例输入
+     */
+    public static TestCaseInput ofStoreFile(File file, String storePath) {
+        return new TestCaseInput(null, file, storePath);
+    }
+
+    /**
+     * 是否是仓库中的文件
+     * @return 是否是文件
+     */
+    public boolean isStoreFile() {
+        return file != null;
+    }
+
+    /**
+     * 仓库中的文件，请求携带的输入为null
+     * @return 文件
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 相对仓库根目录的路径，请求携带的输入为null
+     * @return 路径
+     */
+    public String getStorePath() {
+        return storePath;
+    }
+
+    /**
+     * 读取输入内容（文件输入会整体读入内存，仅用于按参数传递的小输入）
+     * @return 输入内容
+     */
+    public String getContent() {
+        return file == null ? content : FileUtil.readString(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 用于结果缓存键的标识：仓库文件的路径中包含内容校验和，无需读取内容
+     * @return 标识
+     */
+    public String getCacheKey() {
+        return file == null ? "content:" + content : "store:" + storePath;
+    }
+}
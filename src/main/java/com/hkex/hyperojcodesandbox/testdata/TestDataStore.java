@@ -0,0 +1,254 @@
+package com.hkex.hyperojcodesandbox.testdata;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import com.hkex.hyperojcodesandbox.compare.ExpectedOutput;
+import com.hkex.hyperojcodesandbox.config.TestDataProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 节点本地的测试数据仓库
+ * 题目的输入/期望输出只上传一次，按内容校验和生成版本，目录结构为
+ * {@code <dir>/input/<problemId>/<version>/<i>}、{@code <dir>/output/<problemId>/<version>/<i>}，
+ * {@code <dir>/latest/<problemId>}记录最新版本；
+ * 版本目录写入后不再修改，执行时直接从仓库文件读取（容器内只读挂载输入目录），不经过请求体与工作目录；
+ * 期望输出单独存放，不会暴露给用户程序
+ */
+@Component
+@Slf4j
+public class TestDataStore {
+
+    private static final String INPUT_DIR = "input";
+
+    private static final String OUTPUT_DIR = "output";
+
+    private static final String LATEST_DIR = "latest";
+
+    private static final Pattern PROBLEM_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    /**
+     * 版本号取校验和的前缀长度
+     */
+    private static final int VERSION_LENGTH = 16;
+
+    @Resource
+    private TestDataProperties testDataProperties;
+
+    private File rootDir;
+
+    private File inputRoot;
+
+    private File outputRoot;
+
+    @PostConstruct
+    public void init() {
+        rootDir = new File(System.getProperty("user.dir"), testDataProperties.getDir()).getAbsoluteFile();
+        inputRoot = FileUtil.mkdir(new File(rootDir, INPUT_DIR));
+        outputRoot = FileUtil.mkdir(new File(rootDir, OUTPUT_DIR));
+        FileUtil.mkdir(new File(rootDir, LATEST_DIR));
+    }
+
+    /**
+     * 输入文件根目录，{@link TestCaseInput#getStorePath()}相对此目录
+     * @return 目录
+     */
+    public File getInputRoot() {
+        return inputRoot;
+    }
+
+    /**
+     * 保存一组测试数据，内容与已有版本相同时直接复用
+     * @param problemId 题目ID
+     * @param inputs 各用例输入
+     * @param outputs 各用例期望输出，可为空
+     * @return 版本信息
+     */
+    public TestDataVersion save(String problemId, List<InputStream> inputs, List<InputStream> outputs) throws IOException {
+        checkProblemId(problemId);
+        if (inputs == null || inputs.isEmpty()) {
+            throw new RuntimeException("测试数据输入为空");
+        }
+        boolean hasOutput = outputs != null && !outputs.isEmpty();
+        if (hasOutput && outputs.size() != inputs.size()) {
+            throw new RuntimeException("输入与输出文件数量不一致");
+        }
+        String uploadId = ".upload-" + IdUtil.fastSimpleUUID();
+        File tempInputDir = FileUtil.mkdir(new File(new File(inputRoot, problemId), uploadId));
+        File tempOutputDir = FileUtil.mkdir(new File(new File(outputRoot, problemId), uploadId));
+        try {
+            MessageDigest versionDigest = sha256();
+            for (int i = 0; i < inputs.size(); i++) {
+                versionDigest.update(writeFile(inputs.get(i), new File(tempInputDir, String.valueOf(i))));
+                if (hasOutput) {
+                    versionDigest.update(writeFile(outputs.get(i), new File(tempOutputDir, String.valueOf(i))));
+                }
+            }
+            String version = HexUtil.encodeHexStr(versionDigest.digest()).substring(0, VERSION_LENGTH);
+            File inputDir = new File(new File(inputRoot, problemId), version);
+            if (inputDir.isDirectory()) {
+                log.info("测试数据已存在：{}/{}", problemId, version);
+            } else {
+                // 先放置期望输出，输入目录出现即表示版本完整
+                publish(tempOutputDir, new File(new File(outputRoot, problemId), version));
+                publish(tempInputDir, inputDir);
+                log.info("测试数据已保存：{}/{}，用例数：{}", problemId, version, inputs.size());
+            }
+            writeLatest(problemId, version);
+            return new TestDataVersion(problemId, version, inputs.size(), hasOutput);
+        } finally {
+            FileUtil.del(tempInputDir);
+            FileUtil.del(tempOutputDir);
+        }
+    }
+
+    /**
+     * 查询版本信息
+     * @param problemId 题目ID
+     * @param version 版本号，为空时取最新版本
+     * @return 版本信息
+     */
+    public TestDataVersion getVersion(String problemId, String version) {
+        version = resolveVersion(problemId, version);
+        int caseCount = countFiles(new File(new File(inputRoot, problemId), version));
+        boolean hasOutput = caseCount > 0 && countFiles(new File(new File(outputRoot, problemId), version)) == caseCount;
+        return new TestDataVersion(problemId, version, caseCount, hasOutput);
+    }
+
+    /**
+     * 获取各用例的输入
+     * @param problemId 题目ID
+     * @param version 版本号，为空时取最新版本
+     * @return 按用例顺序排列的输入
+     */
+    public List<TestCaseInput> getInputs(String problemId, String version) {
+        version = resolveVersion(problemId, version);
+        File versionDir = new File(new File(inputRoot, problemId), version);
+        int caseCount = countFiles(versionDir);
+        List<TestCaseInput> inputs = new ArrayList<>(caseCount);
+        for (int i = 0; i < caseCount; i++) {
+            inputs.add(TestCaseInput.ofStoreFile(new File(versionDir, String.valueOf(i)), problemId + "/" + version + "/" + i));
+        }
+        return inputs;
+    }
+
+    /**
+     * 获取各用例的期望输出
+     * @param problemId 题目ID
+     * @param version 版本号，为空时取最新版本
+     * @return 按用例顺序排列的期望输出，未上传期望输出时为空列表
+     */
+    public List<ExpectedOutput> getExpectedOutputs(String problemId, String version) {
+        version = resolveVersion(problemId, version);
+        File versionDir = new File(new File(outputRoot, problemId), version);
+        int caseCount = countFiles(versionDir);
+        List<ExpectedOutput> outputs = new ArrayList<>(caseCount);
+        for (int i = 0; i < caseCount; i++) {
+            outputs.add(ExpectedOutput.ofStoreFile(new File(versionDir, String.valueOf(i)), problemId + "/" + version + "/" + i));
+        }
+        return outputs;
+    }
+
+    /**
+     * 校验版本存在，为空时取最新版本
+     */
+    private String resolveVersion(String problemId, String version) {
+        checkProblemId(problemId);
+        if (version == null || version.isEmpty()) {
+            File latest = new File(new File(rootDir, LATEST_DIR), problemId);
+            if (!latest.isFile()) {
+                throw new RuntimeException("题目不存在测试数据：" + problemId);
+            }
+            version = FileUtil.readString(latest, StandardCharsets.UTF_8).trim();
+        }
+        if (!PROBLEM_ID_PATTERN.matcher(version).matches()) {
+            throw new RuntimeException("非法的测试数据版本：" + version);
+        }
+        if (!new File(new File(inputRoot, problemId), version).isDirectory()) {
+            throw new RuntimeException("测试数据版本不存在：" + problemId + "/" + version);
+        }
+        return version;
+    }
+
+    private static void checkProblemId(String problemId) {
+        if (problemId == null || !PROBLEM_ID_PATTERN.matcher(problemId).matches()) {
+            throw new RuntimeException("非法的题目ID：" + problemId);
+        }
+    }
+
+    private static int countFiles(File versionDir) {
+        int count = 0;
+        while (new File(versionDir, String.valueOf(count)).isFile()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 边写入边计算校验和，不在内存中保留完整内容
+     */
+    private static byte[] writeFile(InputStream in, File target) throws IOException {
+        MessageDigest digest = sha256();
+        try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+            Files.copy(digestIn, target.toPath());
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 把上传的临时目录移动为版本目录
+     */
+    private static void publish(File tempDir, File versionDir) throws IOException {
+        if (versionDir.isDirectory()) {
+            return;
+        }
+        try {
+            moveAtomically(tempDir, versionDir);
+        } catch (IOException e) {
+            // 并发上传相同内容时由另一请求先完成了写入
+            if (!versionDir.isDirectory()) {
+                throw e;
+            }
+        }
+    }
+
+    private void writeLatest(String problemId, String version) throws IOException {
+        File latestDir = new File(rootDir, LATEST_DIR);
+        File temp = new File(latestDir, "." + problemId + "." + IdUtil.fastSimpleUUID());
+        FileUtil.writeString(version, temp, StandardCharsets.UTF_8);
+        moveAtomically(temp, new File(latestDir, problemId));
+    }
+
+    private static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
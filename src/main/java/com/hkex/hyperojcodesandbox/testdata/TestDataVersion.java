@@ -0,0 +1,28 @@
+package com.hkex.hyperojcodesandbox.testdata;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一个版本的测试数据
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestDataVersion {
+
+    private String problemId;
+
+    /**
+     * 版本号（全部输入输出文件的校验和）
+     */
+    private String version;
+
+    private int caseCount;
+
+    /**
+     * 是否包含期望输出
+     */
+    private boolean hasOutput;
+}
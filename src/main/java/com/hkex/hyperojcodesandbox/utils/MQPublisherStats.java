@@ -0,0 +1,42 @@
+package com.hkex.hyperojcodesandbox.utils;
+
+import lombok.Data;
+
+/**
+ * 结果发布统计
+ */
+@Data
+public class MQPublisherStats {
+
+    /**
+     * 缓冲区中等待发布的消息数
+     */
+    private int bufferDepth;
+
+    /**
+     * 缓冲区容量
+     */
+    private int bufferCapacity;
+
+    /**
+     * 缓冲区中曾经积压的最大消息数
+     */
+    private int maxBufferDepth;
+
+    /**
+     * 已被确认的消息数
+     */
+    private long confirmed;
+
+    private long batches;
+
+    /**
+     * 未被确认而重新发布的批次数
+     */
+    private long retries;
+
+    /**
+     * 因缓冲区满或多次未被确认而丢弃的消息数
+     */
+    private long dropped;
+}
@@ -1,13 +1,26 @@
 package com.hkex.hyperojcodesandbox.utils;
 
-import com.hkex.hyperojcodesandbox.config.RabbitMQConfig;
+import com.hkex.hyperojcodesandbox.config.MQPublisherProperties;
+import com.hkex.hyperojcodesandbox.model.CaseResultEvent;
 import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * MQ工具类
+ * 执行结果先放入有界缓冲区，由发布线程按批发布：一批消息在同一个信道上发出后只等待一次发布确认，
+ * 未被确认的批次整体重新发布，因此同一条消息可能被投递多次，消费方按correlationId（及用例事件的sequence）去重
  */
 @Component
 @Slf4j
@@ -15,10 +28,77 @@ public class MQUtils {
 
     private static final String RESULT_KEY = "code.execute.completed";
 
-    private final RabbitTemplate rabbitTemplate;
+    private static final String CASE_EVENT_KEY = "code.execute.case";
+
+    /**
+     * 发布线程等待新消息的间隔（毫秒），用于检查是否已停止
+     */
+    private static final long POLL_INTERVAL = 100L;
+
+    private final RabbitOperations rabbitOperations;
+
+    private final MQPublisherProperties properties;
+
+    private final BlockingQueue<PendingMessage> buffer;
+
+    private final AtomicInteger maxBufferDepth = new AtomicInteger(0);
+
+    private final AtomicLong confirmed = new AtomicLong(0);
+
+    private final AtomicLong batches = new AtomicLong(0);
+
+    private final AtomicLong retries = new AtomicLong(0);
+
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    private volatile boolean running = false;
+
+    private Thread publisherThread;
+
+    /**
+     * 连接工厂未开启发布确认时只发布不等待确认
+     */
+    private boolean confirmEnabled;
 
-    public MQUtils(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public MQUtils(RabbitOperations rabbitOperations, MQPublisherProperties properties) {
+        this.rabbitOperations = rabbitOperations;
+        this.properties = properties;
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferSize());
+    }
+
+    @PostConstruct
+    public void start() {
+        confirmEnabled = rabbitOperations.getConnectionFactory() != null
+                && rabbitOperations.getConnectionFactory().isSimplePublisherConfirms();
+        if (!confirmEnabled) {
+            log.warn("未开启发布确认（spring.rabbitmq.publisher-confirm-type: simple），执行结果只发布不确认");
+        }
+        running = true;
+        publisherThread = new Thread(this::publishLoop, "mq-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+    }
+
+    /**
+     * 停止接收新消息，等待缓冲区中的消息发布完成
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (publisherThread == null) {
+            return;
+        }
+        try {
+            publisherThread.join(properties.getConfirmTimeout() + POLL_INTERVAL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (publisherThread.isAlive()) {
+            publisherThread.interrupt();
+        }
+        if (!buffer.isEmpty()) {
+            log.warn("停止时仍有{}条执行结果未发布", buffer.size());
+        }
     }
 
     /**
@@ -26,12 +106,138 @@ public class MQUtils {
      * @param response 执行结果
      */
     public void sendExecuteResult(ExecuteCodeResponse response) {
+        enqueue(new PendingMessage(RESULT_KEY, response, response.getCorrelationId()));
+    }
+
+    /**
+     * 发送单个用例的结论事件
+     * @param event 用例结论事件
+     */
+    public void sendCaseEvent(CaseResultEvent event) {
+        enqueue(new PendingMessage(CASE_EVENT_KEY, event,
+                event.getCorrelationId() + "#" + event.getSequence()));
+    }
+
+    /**
+     * 获取发布统计
+     * @return 统计
+     */
+    public MQPublisherStats getStats() {
+        MQPublisherStats stats = new MQPublisherStats();
+        stats.setBufferDepth(buffer.size());
+        stats.setBufferCapacity(properties.getBufferSize());
+        stats.setMaxBufferDepth(maxBufferDepth.get());
+        stats.setConfirmed(confirmed.get());
+        stats.setBatches(batches.get());
+        stats.setRetries(retries.get());
+        stats.setDropped(dropped.get());
+        return stats;
+    }
+
+    /**
+     * 放入缓冲区，缓冲区满时最多等待offerTimeout
+     * @param message 待发布消息
+     */
+    private void enqueue(PendingMessage message) {
+        boolean accepted;
         try {
-            rabbitTemplate.convertAndSend(RESULT_KEY, response);
-            log.info("成功发送代码执行请求，请求内容：{}", response);
-        }catch (Exception e){
-            log.error("发送消息失败，请求内容：{}，错误信息：{}",
-                    response, e.getMessage(), e);
+            accepted = running && buffer.offer(message, properties.getOfferTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            dropped.incrementAndGet();
+            log.error("发布缓冲区已满或已停止，丢弃消息，路由键：{}，标识：{}", message.routingKey, message.id);
+            return;
+        }
+        maxBufferDepth.accumulateAndGet(buffer.size(), Math::max);
+        log.debug("执行结果进入发布缓冲区，路由键：{}，标识：{}", message.routingKey, message.id);
+    }
+
+    /**
+     * 发布线程：取出一批消息发布，直到停止且缓冲区为空
+     */
+    private void publishLoop() {
+        List<PendingMessage> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingMessage first = buffer.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, properties.getBatchSize() - 1);
+                publishWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 发布一批消息，未被确认时按间隔重试，超过最大次数后丢弃
+     * @param batch 消息批次
+     */
+    private void publishWithRetry(List<PendingMessage> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                publishBatch(batch);
+                batches.incrementAndGet();
+                confirmed.addAndGet(batch.size());
+                return;
+            } catch (Exception e) {
+                if (attempt >= properties.getMaxAttempts()) {
+                    dropped.addAndGet(batch.size());
+                    log.error("{}条消息发布{}次均未被确认，已丢弃，首条标识：{}，错误信息：{}",
+                            batch.size(), attempt, batch.get(0).id, e.getMessage(), e);
+                    return;
+                }
+                retries.incrementAndGet();
+                log.warn("{}条消息未被确认，{}ms后第{}次重试，错误信息：{}",
+                        batch.size(), properties.getRetryInterval(), attempt, e.getMessage());
+                Thread.sleep(properties.getRetryInterval());
+            }
+        }
+    }
+
+    /**
+     * 在同一个信道上发布一批消息，并等待全部确认
+     * @param batch 消息批次
+     */
+    private void publishBatch(List<PendingMessage> batch) {
+        rabbitOperations.invoke(operations -> {
+            for (PendingMessage message : batch) {
+                operations.convertAndSend(message.routingKey, message.payload);
+            }
+            if (confirmEnabled) {
+                operations.waitForConfirmsOrDie(properties.getConfirmTimeout());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 待发布消息
+     */
+    private static final class PendingMessage {
+
+        private final String routingKey;
+
+        private final Object payload;
+
+        /**
+         * 日志中标识消息，不记录消息内容
+         */
+        private final String id;
+
+        private PendingMessage(String routingKey, Object payload, String id) {
+            this.routingKey = routingKey;
+            this.payload = payload;
+            this.id = id;
         }
     }
 }
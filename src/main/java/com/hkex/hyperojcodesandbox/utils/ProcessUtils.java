@@ -1,18 +1,52 @@
 package com.hkex.hyperojcodesandbox.utils;
 
 import cn.hutool.core.util.StrUtil;
+import com.hkex.hyperojcodesandbox.compare.OutputComparator;
 import com.hkex.hyperojcodesandbox.model.ExecuteMessage;
+import com.hkex.hyperojcodesandbox.model.enums.ExecuteCodeStatusEnum;
+import com.hkex.hyperojcodesandbox.monitor.ProcessMeasurement;
+import com.hkex.hyperojcodesandbox.output.BufferPool;
+import com.hkex.hyperojcodesandbox.output.OutputBudget;
+import com.hkex.hyperojcodesandbox.output.OutputCapture;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StopWatch;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 进程工具类
  */
+@Slf4j
 public class ProcessUtils {
 
+    /**
+     * 未指定输出预算时每个流最多收集的字节数
+     */
+    public static final long DEFAULT_CAPTURE_LIMIT = 16 * 1024 * 1024L;
+
+    /**
+     * 进程结束后等待输出读取完成的最长时间（毫秒）
+     */
+    private static final long OUTPUT_DRAIN_TIME_OUT = 1000L;
+
+    /**
+     * 读取进程输出的线程，所有进程共用
+     */
+    private static final ExecutorService DRAIN_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "process-drain");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * 执行进程并获取信息
      *
@@ -21,97 +55,156 @@ public class ProcessUtils {
      * @return
      */
     public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName, Long timeLimit) {
+        return runProcessAndGetMessage(runProcess, opName, timeLimit, null, null, null);
+    }
+
+    /**
+     * 执行进程并获取信息
+     * 标准输出与错误输出在进程运行期间同时读取，子进程不会因管道写满而阻塞，输出按原样（含换行）返回；
+     * 输出按字节预算截断，超出时结束进程并判为输出超限；提供比较器时标准输出边读取边比较，不一致时立即结束进程；
+     * 提供计量时CPU时间与内存峰值取自计量，计量因超出CPU时间或内存限制结束进程时判为超时或内存超限
+     *
+     * @param runProcess 进程
+     * @param opName 操作名
+     * @param timeLimit 墙钟超时(ms)
+     * @param measurement 进程监控的计量，为空时只按墙钟超时
+     * @param budget 输出字节预算（标准输出与错误输出共用），为空时每个流最多收集{@link #DEFAULT_CAPTURE_LIMIT}字节
+     * @param comparator 输出比较器，为空时收集标准输出
+     * @return 执行信息
+     */
+    public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName, Long timeLimit,
+                                                         ProcessMeasurement measurement, OutputBudget budget,
+                                                         OutputComparator comparator) {
         ExecuteMessage executeMessage = new ExecuteMessage();
+        OutputBudget outputBudget = budget != null ? budget : new OutputBudget(DEFAULT_CAPTURE_LIMIT);
+        OutputBudget errorBudget = budget != null ? budget : new OutputBudget(DEFAULT_CAPTURE_LIMIT);
+        OutputCapture output = new OutputCapture(outputBudget, StandardCharsets.UTF_8);
+        OutputCapture error = new OutputCapture(errorBudget, StandardCharsets.UTF_8);
+        AtomicBoolean overflow = new AtomicBoolean(false);
+        Future<?> outputFuture = DRAIN_EXECUTOR.submit(() -> drain(runProcess, runProcess.getInputStream(),
+                output, comparator == null ? null : outputBudget, comparator, overflow));
+        Future<?> errorFuture = DRAIN_EXECUTOR.submit(() -> drain(runProcess, runProcess.getErrorStream(),
+                error, null, null, overflow));
         StopWatch stopWatch = new StopWatch();
-
+        stopWatch.start();
         try {
-            stopWatch.start();
-            // 等待程序执行，获取错误码
-            boolean FinishedInTime = runProcess.waitFor(timeLimit, TimeUnit.MILLISECONDS);
-            int exitValue;
-            if(FinishedInTime){
-                //未超时
-                exitValue = runProcess.exitValue();
-                executeMessage.setExitValue(exitValue);
-                // 正常退出
-                if (exitValue == 0) {
-                    System.out.println(opName + "成功");
-                    // 分批获取进程的正常输出
-                    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                    StringBuilder compileOutputStringBuilder = new StringBuilder();
-                    // 逐行读取
-                    String compileOutputLine;
-                    while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                        compileOutputStringBuilder.append(compileOutputLine);
-                    }
-                    executeMessage.setMessage(compileOutputStringBuilder.toString());
-                } else {
-                    // 异常退出
-                    System.out.println(opName + "失败，错误码： " + exitValue);
-                    // 分批获取进程的正常输出
-                    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                    StringBuilder compileOutputStringBuilder = new StringBuilder();
-                    // 逐行读取
-                    String compileOutputLine;
-                    while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                        compileOutputStringBuilder.append(compileOutputLine);
-                    }
-                    executeMessage.setMessage(compileOutputStringBuilder.toString());
-
-                    // 分批获取进程的错误输出
-                    BufferedReader errorBufferedReader = new BufferedReader(new InputStreamReader(runProcess.getErrorStream()));
-                    StringBuilder errorCompileOutputStringBuilder = new StringBuilder();
-
-                    // 逐行读取
-                    String errorCompileOutputLine;
-                    while ((errorCompileOutputLine = errorBufferedReader.readLine()) != null) {
-                        errorCompileOutputStringBuilder.append(errorCompileOutputLine);
-                    }
-                    executeMessage.setErrorMessage(errorCompileOutputStringBuilder.toString());
-                    stopWatch.stop();
-                    executeMessage.setTime(stopWatch.getTotalTimeMillis());
-                }
-            }else {
-                //超时
-                System.out.println("程序超时");
+            // 等待程序执行，期间两个流都在后台读取
+            boolean finishedInTime = runProcess.waitFor(timeLimit, TimeUnit.MILLISECONDS);
+            if (measurement != null && measurement.getKillReason() == ProcessMeasurement.KillReason.CPU_TIME) {
+                finishedInTime = false;
+            }
+            if (!finishedInTime) {
+                log.info("{}超时", opName);
+                executeMessage.setStatus(ExecuteCodeStatusEnum.TIME_LIMIT_EXCEEDED.getValue());
                 runProcess.destroyForcibly();
+            }
+            int exitValue = runProcess.waitFor();
+            stopWatch.stop();
+            executeMessage.setExitValue(exitValue);
+            ProcessMeasurement.KillReason killReason = null;
+            if (measurement != null) {
+                // 进程结束后再关闭计量，以读取最终的CPU时间
+                measurement.close();
+                executeMessage.setCpuTime(measurement.getCpuTime());
+                executeMessage.setMemory(measurement.getPeakMemory());
+                killReason = measurement.getKillReason();
+            }
+            // 进程结束后读完管道中剩余的输出（后台子进程可能仍持有管道，不无限等待）
+            awaitDrain(outputFuture);
+            awaitDrain(errorFuture);
+            executeMessage.setMessage(output.finish());
+            String errorMessage = error.finish();
+            if (overflow.get()) {
+                executeMessage.setStatus(ExecuteCodeStatusEnum.OUTPUT_LIMIT_EXCEEDED.getValue());
+                executeMessage.setErrorMessage("输出超出限制");
+            } else if (killReason == ProcessMeasurement.KillReason.MEMORY) {
+                executeMessage.setStatus(ExecuteCodeStatusEnum.MEMORY_LIMIT_EXCEEDED.getValue());
+                executeMessage.setErrorMessage("内存超出限制");
+            } else if (!finishedInTime) {
+                executeMessage.setErrorMessage(errorMessage.isEmpty() ? "超时未返回结果" : errorMessage);
+            } else if (exitValue != 0) {
+                log.info("{}失败，错误码：{}", opName, exitValue);
+                executeMessage.setErrorMessage(errorMessage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            runProcess.destroyForcibly();
+            executeMessage.setErrorMessage(opName + "被中断");
+        } finally {
+            if (measurement != null) {
+                measurement.close();
+            }
+            if (stopWatch.isRunning()) {
+                stopWatch.stop();
+            }
+            outputFuture.cancel(true);
+            errorFuture.cancel(true);
+            output.close();
+            error.close();
+            // 各种结束方式都记录时间
+            executeMessage.setWallTime(stopWatch.getTotalTimeMillis());
+            executeMessage.setTime(executeMessage.getCpuTime());
+        }
+        return executeMessage;
+    }
 
-                exitValue = runProcess.waitFor();
-                executeMessage.setExitValue(exitValue);
-
-                // 异常退出
-                System.out.println(opName + "失败，错误码： " + exitValue);
-                // 分批获取进程的正常输出
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                StringBuilder compileOutputStringBuilder = new StringBuilder();
-                // 逐行读取
-                String compileOutputLine;
-                while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                    compileOutputStringBuilder.append(compileOutputLine);
+    /**
+     * 读取进程的一个输出流直到结束
+     * 使用池化的缓冲区读取；超出预算或与期望输出不一致时结束进程，之后继续读取并丢弃，直到管道关闭
+     *
+     * @param runProcess 进程
+     * @param inputStream 输出流
+     * @param capture 输出收集
+     * @param compareBudget 比较时计入的预算，比较时输出不收集
+     * @param comparator 输出比较器，为空时收集输出
+     * @param overflow 输出超限标志
+     */
+    private static void drain(Process runProcess, InputStream inputStream, OutputCapture capture,
+                              OutputBudget compareBudget, OutputComparator comparator, AtomicBoolean overflow) {
+        ByteBuffer buffer = BufferPool.acquireByteBuffer();
+        byte[] bytes = buffer.array();
+        boolean discarding = false;
+        try (InputStream in = inputStream) {
+            int read;
+            while ((read = in.read(bytes, 0, bytes.length)) != -1) {
+                if (discarding) {
+                    continue;
                 }
-                executeMessage.setMessage(compileOutputStringBuilder.toString());
-
-                // 分批获取进程的错误输出
-                BufferedReader errorBufferedReader = new BufferedReader(new InputStreamReader(runProcess.getErrorStream()));
-                StringBuilder errorCompileOutputStringBuilder = new StringBuilder();
-
-                // 逐行读取
-                String errorCompileOutputLine;
-                while ((errorCompileOutputLine = errorBufferedReader.readLine()) != null) {
-                    errorCompileOutputStringBuilder.append(errorCompileOutputLine);
+                boolean withinLimit;
+                if (comparator != null) {
+                    if (!comparator.write(bytes, 0, read)) {
+                        discarding = true;
+                        runProcess.destroyForcibly();
+                        continue;
+                    }
+                    withinLimit = compareBudget.acquire(read) == read;
+                } else {
+                    withinLimit = capture.write(bytes, 0, read);
                 }
-                if(errorCompileOutputStringBuilder.length() > 0){
-                    executeMessage.setErrorMessage(errorCompileOutputStringBuilder.toString());
-                }else {
-                    executeMessage.setErrorMessage("超时未返回结果");
+                if (!withinLimit) {
+                    overflow.set(true);
+                    discarding = true;
+                    runProcess.destroyForcibly();
                 }
-                stopWatch.stop();
-                executeMessage.setTime(stopWatch.getTotalTimeMillis());
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (IOException e) {
+            // 进程被结束时输出流随之关闭
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 等待输出读取完成
+     *
+     * @param future 读取任务
+     */
+    private static void awaitDrain(Future<?> future) throws InterruptedException {
+        try {
+            future.get(OUTPUT_DRAIN_TIME_OUT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // 读取超时时保留已收集的部分输出
         }
-        return executeMessage;
     }
 
     /**
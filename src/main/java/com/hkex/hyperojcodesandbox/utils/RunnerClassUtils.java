@@ -0,0 +1,53 @@
+package com.hkex.hyperojcodesandbox.utils;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.hkex.hyperojcodesandbox.runner.*;
+
+import java.io.File;
+import java.io.InputStream;
+
+/**
+ * 判题运行器类导出工具
+ * 把runner包下的类文件复制到指定目录，供容器或独立JVM以-cp方式加载
+ */
+public class RunnerClassUtils {
+
+    /**
+     * runner包下所有需要导出的类
+     */
+    private static final Class<?>[] RUNNER_CLASSES = {
+            BatchRunner.class,
+            CaseRunner.class,
+            CaseResult.class,
+            CdsWarmup.class,
+            CaseExitException.class,
+            CasePolicy.class,
+            ExitGuard.class,
+            JudgeAgent.class,
+            LimitedOutputStream.class,
+            MemoryClassLoader.class
+    };
+
+    /**
+     * 导出判题运行器类
+     * @param targetDir 目标目录（作为classpath根目录）
+     * @return 目标目录
+     */
+    public static File export(File targetDir) {
+        for (Class<?> runnerClass : RUNNER_CLASSES) {
+            String resourceName = runnerClass.getName().replace('.', '/') + ".class";
+            try (InputStream in = RunnerClassUtils.class.getClassLoader().getResourceAsStream(resourceName)) {
+                if (in == null) {
+                    throw new RuntimeException("找不到判题运行器类：" + resourceName);
+                }
+                FileUtil.writeBytes(IoUtil.readBytes(in), new File(targetDir, resourceName));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("导出判题运行器失败", e);
+            }
+        }
+        return targetDir;
+    }
+}
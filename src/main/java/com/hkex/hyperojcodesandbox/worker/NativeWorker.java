@@ -0,0 +1,45 @@
+package com.hkex.hyperojcodesandbox.worker;
+
+import com.hkex.hyperojcodesandbox.docker.AgentConnection;
+
+/**
+ * 预启动的本地判题JVM（运行JudgeAgent）
+ */
+public class NativeWorker {
+
+    private final String name;
+
+    private final Process process;
+
+    private final AgentConnection connection;
+
+    NativeWorker(String name, Process process, AgentConnection connection) {
+        this.name = name;
+        this.process = process;
+        this.connection = connection;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AgentConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * 进程存活且连接可用
+     * @return 是否可用
+     */
+    boolean isAvailable() {
+        return process.isAlive() && connection.isAvailable();
+    }
+
+    /**
+     * 关闭连接并结束进程
+     */
+    void destroy() {
+        connection.close();
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,213 @@
+package com.hkex.hyperojcodesandbox.worker;
+
+import com.hkex.hyperojcodesandbox.config.NativeWorkerProperties;
+import com.hkex.hyperojcodesandbox.docker.AgentConnection;
+import com.hkex.hyperojcodesandbox.jvm.JvmProfile;
+import com.hkex.hyperojcodesandbox.runner.JudgeAgent;
+import com.hkex.hyperojcodesandbox.utils.RunnerClassUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地沙箱的预启动判题JVM池
+ * 后台预先启动若干运行JudgeAgent的JVM，判题时直接取一个空闲的发送类字节码与用例，省去JVM启动；
+ * 每个JVM只运行一个用例，用完即销毁，池在后台补足，判题请求不等待JVM启动
+ */
+@Component
+@Slf4j
+public class NativeWorkerPool {
+
+    /**
+     * 等待代理响应时在墙钟时间限制之外额外预留的时间（毫秒）
+     */
+    public static final long RESPONSE_SLACK = 2000L;
+
+    /**
+     * 等待判题代理JVM启动完成的超时时间（毫秒）
+     */
+    private static final long START_TIME_OUT = 10000L;
+
+    @Resource
+    private NativeWorkerProperties nativeWorkerProperties;
+
+    @Resource
+    private JvmProfile jvmProfile;
+
+    private File runnerDir;
+
+    /**
+     * 空闲的JVM
+     */
+    private final BlockingDeque<NativeWorker> idleWorkers = new LinkedBlockingDeque<>();
+
+    /**
+     * 当前存在的JVM总数（空闲+租借中）
+     */
+    private final AtomicInteger totalCount = new AtomicInteger(0);
+
+    private final AtomicInteger nameSequence = new AtomicInteger(0);
+
+    private ScheduledExecutorService maintainExecutor;
+
+    private ExecutorService recycleExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!nativeWorkerProperties.isEnabled()) {
+            return;
+        }
+        this.runnerDir = RunnerClassUtils.export(new File(System.getProperty("user.dir"),
+                nativeWorkerProperties.getRunnerDir()));
+        this.maintainExecutor = Executors.newSingleThreadScheduledExecutor(r -> newDaemonThread(r, "native-worker-maintain"));
+        this.recycleExecutor = Executors.newSingleThreadExecutor(r -> newDaemonThread(r, "native-worker-recycle"));
+        maintainExecutor.scheduleWithFixedDelay(this::maintain, 0,
+                nativeWorkerProperties.getMaintainInterval(), TimeUnit.MILLISECONDS);
+        log.info("本地判题JVM池初始化完成，容量:{}", nativeWorkerProperties.getSize());
+    }
+
+    /**
+     * 取一个空闲的JVM，没有空闲或内存限制与预启动JVM的最大堆不一致时立即返回null
+     * @param memoryLimit 请求的内存限制（MB）
+     * @return JVM
+     */
+    public NativeWorker tryLease(Long memoryLimit) {
+        if (!nativeWorkerProperties.isEnabled() || jvmProfile.getHeapLimit(memoryLimit) != jvmProfile.getHeapLimit(null)) {
+            return null;
+        }
+        NativeWorker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            if (worker.isAvailable()) {
+                break;
+            }
+            destroyWorker(worker);
+        }
+        if (idleWorkers.size() < nativeWorkerProperties.getSize()) {
+            maintainExecutor.execute(this::refill);
+        }
+        return worker;
+    }
+
+    /**
+     * 归还JVM，在后台销毁并补足
+     * 运行过用户代码的JVM不再复用
+     * @param worker JVM
+     */
+    public void release(NativeWorker worker) {
+        recycleExecutor.execute(() -> {
+            destroyWorker(worker);
+            maintainExecutor.execute(this::refill);
+        });
+    }
+
+    /**
+     * 当前空闲JVM数
+     * @return 空闲JVM数
+     */
+    public int getIdleCount() {
+        return idleWorkers.size();
+    }
+
+    /**
+     * 后台维护：剔除已退出的JVM并补足
+     */
+    private void maintain() {
+        List<NativeWorker> snapshot = new ArrayList<>(idleWorkers);
+        for (NativeWorker worker : snapshot) {
+            if (idleWorkers.remove(worker)) {
+                if (worker.isAvailable() && worker.getConnection().ping(RESPONSE_SLACK)) {
+                    idleWorkers.offerLast(worker);
+                } else {
+                    log.warn("判题JVM{}健康检查失败，准备销毁", worker.getName());
+                    destroyWorker(worker);
+                }
+            }
+        }
+        refill();
+    }
+
+    /**
+     * 补足JVM数，只在维护线程中执行
+     */
+    private void refill() {
+        try {
+            while (totalCount.get() < nativeWorkerProperties.getSize()) {
+                totalCount.incrementAndGet();
+                NativeWorker worker;
+                try {
+                    worker = startWorker();
+                } catch (IOException | RuntimeException e) {
+                    totalCount.decrementAndGet();
+                    throw e;
+                }
+                idleWorkers.offerLast(worker);
+            }
+        } catch (Exception e) {
+            log.warn("启动判题JVM失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 启动一个JVM并等待判题代理就绪
+     * @return JVM
+     */
+    private NativeWorker startWorker() throws IOException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("java");
+        cmd.addAll(jvmProfile.nativeOptions(null));
+        // 判题代理安装ExitGuard拦截System.exit，Java 9+需显式允许设置SecurityManager（Java 8会把该属性当作类名）
+        if (!System.getProperty("java.specification.version").startsWith("1.")) {
+            cmd.add("-Djava.security.manager=allow");
+        }
+        cmd.addAll(Arrays.asList("-Dfile.encoding=UTF-8", "-cp", runnerDir.getAbsolutePath(),
+                JudgeAgent.class.getName()));
+        Process process = new ProcessBuilder(cmd).start();
+        String name = "native-" + nameSequence.incrementAndGet();
+        NativeWorker worker = new NativeWorker(name, process, AgentConnection.connect(process, name));
+        if (!worker.getConnection().ping(START_TIME_OUT)) {
+            worker.destroy();
+            throw new IOException("判题JVM" + name + "启动超时");
+        }
+        log.debug("判题JVM{}已就绪", name);
+        return worker;
+    }
+
+    private void destroyWorker(NativeWorker worker) {
+        worker.destroy();
+        totalCount.decrementAndGet();
+    }
+
+    private static Thread newDaemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (maintainExecutor == null) {
+            return;
+        }
+        maintainExecutor.shutdownNow();
+        recycleExecutor.shutdownNow();
+        NativeWorker worker;
+        while ((worker = idleWorkers.pollFirst()) != null) {
+            worker.destroy();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.hkex.hyperojcodesandbox.cache;
+
+import com.hkex.hyperojcodesandbox.CaseResultListener;
+import com.hkex.hyperojcodesandbox.model.CaseJudgeInfo;
+import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import com.hkex.hyperojcodesandbox.model.JudgeInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger(0);
+        Future<ExecuteCodeResponse> leader = executor.submit(() -> singleFlight.execute("k", null, listener -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(release);
+            return response("1", "2");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Future<ExecuteCodeResponse>> followers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute("k", null, listener -> {
+                runs.incrementAndGet();
+                return response("other");
+            })));
+        }
+        waitUntil(() -> singleFlight.getJoined() == 3);
+        release.countDown();
+
+        assertEquals(Arrays.asList("1", "2"), leader.get(5, TimeUnit.SECONDS).getOutputList());
+        for (Future<ExecuteCodeResponse> follower : followers) {
+            assertEquals(Arrays.asList("1", "2"), follower.get(5, TimeUnit.SECONDS).getOutputList());
+        }
+        assertEquals(1, runs.get());
+        assertEquals(1, singleFlight.getExecutions());
+    }
+
+    @Test
+    void differentKeysDoNotJoin() {
+        singleFlight.execute("a", null, listener -> response("a"));
+        singleFlight.execute("b", null, listener -> response("b"));
+        assertEquals(2, singleFlight.getExecutions());
+        assertEquals(0, singleFlight.getJoined());
+    }
+
+    @Test
+    void finishedFlightIsNotReused() {
+        AtomicInteger runs = new AtomicInteger(0);
+        singleFlight.execute("k", null, listener -> response(String.valueOf(runs.incrementAndGet())));
+        ExecuteCodeResponse second = singleFlight.execute("k", null,
+                listener -> response(String.valueOf(runs.incrementAndGet())));
+        assertEquals(Collections.singletonList("2"), second.getOutputList());
+        assertEquals(0, singleFlight.getJoined());
+    }
+
+    @Test
+    void callersGetIndependentCopies() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecuteCodeResponse original = response("1");
+        original.setJudgeInfo(new JudgeInfo());
+        original.getJudgeInfo().setTime(10L);
+        original.setCaseResults(new ArrayList<>(Collections.singletonList(
+                CaseJudgeInfo.builder().status(1).time(10L).build())));
+        Future<ExecuteCodeResponse> leader = executor.submit(() -> singleFlight.execute("k", null, listener -> {
+            started.countDown();
+            await(release);
+            return original;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<ExecuteCodeResponse> follower = executor.submit(() -> singleFlight.execute("k", null, listener -> null));
+        waitUntil(() -> singleFlight.getJoined() == 1);
+        release.countDown();
+        ExecuteCodeResponse first = leader.get(5, TimeUnit.SECONDS);
+        ExecuteCodeResponse second = follower.get(5, TimeUnit.SECONDS);
+
+        first.setCorrelationId("first");
+        first.getOutputList().add("extra");
+        first.getJudgeInfo().setTime(99L);
+        first.getCaseResults().get(0).setStatus(7);
+
+        assertNotSame(original, first);
+        assertNull(second.getCorrelationId());
+        assertEquals(Collections.singletonList("1"), second.getOutputList());
+        assertEquals(10L, second.getJudgeInfo().getTime());
+        assertEquals(1, second.getCaseResults().get(0).getStatus());
+        assertEquals(Collections.singletonList("1"), original.getOutputList());
+    }
+
+    @Test
+    void joiningListenerReceivesDecidedCasesThenTheRest() throws Exception {
+        CountDownLatch firstCaseDecided = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> leaderEvents = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> followerEvents = Collections.synchronizedList(new ArrayList<>());
+        Future<ExecuteCodeResponse> leader = executor.submit(() -> singleFlight.execute("k",
+                (index, caseResult) -> leaderEvents.add(index), listener -> {
+                    listener.onCaseResult(2, CaseJudgeInfo.builder().status(1).build());
+                    firstCaseDecided.countDown();
+                    await(release);
+                    listener.onCaseResult(0, CaseJudgeInfo.builder().status(1).build());
+                    return response("1");
+                }));
+        assertTrue(firstCaseDecided.await(5, TimeUnit.SECONDS));
+        Future<ExecuteCodeResponse> follower = executor.submit(() -> singleFlight.execute("k",
+                (index, caseResult) -> followerEvents.add(index), listener -> null));
+        waitUntil(() -> followerEvents.size() == 1);
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+        follower.get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(2, 0), leaderEvents);
+        assertEquals(Arrays.asList(2, 0), followerEvents);
+    }
+
+    @Test
+    void listenersGetTheirOwnCaseResult() {
+        List<CaseJudgeInfo> received = new ArrayList<>();
+        CaseJudgeInfo decided = CaseJudgeInfo.builder().status(1).time(5L).build();
+        singleFlight.execute("k", (index, caseResult) -> {
+            received.add(caseResult);
+            caseResult.setStatus(7);
+        }, listener -> {
+            listener.onCaseResult(0, decided);
+            return response("1");
+        });
+        assertEquals(1, received.size());
+        assertNotSame(decided, received.get(0));
+        assertEquals(1, decided.getStatus());
+    }
+
+    @Test
+    void failingListenerDoesNotStopExecution() {
+        CaseResultListener failing = (index, caseResult) -> {
+            throw new IllegalStateException("listener failed");
+        };
+        ExecuteCodeResponse response = singleFlight.execute("k", failing, listener -> {
+            listener.onCaseResult(0, CaseJudgeInfo.builder().status(1).build());
+            return response("1");
+        });
+        assertEquals(Collections.singletonList("1"), response.getOutputList());
+    }
+
+    @Test
+    void exceptionPropagatesToJoinedCallersAndFlightIsRemoved() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("sandbox down");
+        Future<ExecuteCodeResponse> leader = executor.submit(() -> singleFlight.execute("k", null, listener -> {
+            started.countDown();
+            await(release);
+            throw failure;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<ExecuteCodeResponse> follower = executor.submit(() -> singleFlight.execute("k", null, listener -> null));
+        waitUntil(() -> singleFlight.getJoined() == 1);
+        release.countDown();
+
+        assertSame(failure, causeOf(leader));
+        assertSame(failure, causeOf(follower));
+        ExecuteCodeResponse retry = singleFlight.execute("k", null, listener -> response("ok"));
+        assertEquals(Collections.singletonList("ok"), retry.getOutputList());
+        assertEquals(2, singleFlight.getExecutions());
+    }
+
+    @Test
+    void soleCallerGetsNullResponseAndExceptionAsIs() {
+        assertNull(singleFlight.execute("k", null, listener -> null));
+        assertThrows(IllegalArgumentException.class, () -> singleFlight.execute("k", null, listener -> {
+            throw new IllegalArgumentException("bad request");
+        }));
+    }
+
+    private static ExecuteCodeResponse response(String... outputs) {
+        ExecuteCodeResponse response = new ExecuteCodeResponse();
+        response.setOutputList(new ArrayList<>(Arrays.asList(outputs)));
+        response.setStatus(1);
+        return response;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("timed out waiting for latch");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("condition not reached");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static Throwable causeOf(Future<?> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (TimeoutException e) {
+            fail("future did not complete");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import com.hkex.hyperojcodesandbox.model.enums.CompareModeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExactComparatorTest {
+
+    @Test
+    void identicalOutputMatches() {
+        OutputComparator comparator = comparator("1 2\n3");
+        assertTrue(write(comparator, "1 2\n3"));
+        assertTrue(comparator.finish());
+        assertNull(comparator.getDiff());
+    }
+
+    @Test
+    void trailingWhitespaceAndBlankLinesAreIgnoredOnBothSides() {
+        assertMatches("1 2\n3\n", "1 2 \t\n3\r\n\n\n");
+        assertMatches("1 2  \n3\n\n\n", "1 2\n3");
+    }
+
+    @Test
+    void innerDifferencesInWhitespaceAreSignificant() {
+        assertDiffers("a b", "a  b");
+        assertDiffers("a\n\nb", "a\nb");
+        assertDiffers("a", "\na");
+    }
+
+    @Test
+    void outputLongerThanExpectedFailsWhileWriting() {
+        OutputComparator comparator = comparator("1 2");
+        assertFalse(write(comparator, "1 23"));
+        assertTrue(comparator.isDiverged());
+        assertEquals("第1行输出过长，多出“3”", comparator.getDiff());
+    }
+
+    @Test
+    void outputShorterThanExpectedFailsOnFinish() {
+        OutputComparator comparator = comparator("1 23\n4");
+        assertTrue(write(comparator, "1 2"));
+        assertFalse(comparator.finish());
+        assertEquals("第1行输出过短，期望还有“3\\n4”", comparator.getDiff());
+    }
+
+    @Test
+    void extraWhitespaceBeforeMoreOutputIsNotAcceptedAsTrailing() {
+        OutputComparator comparator = comparator("ab");
+        assertTrue(write(comparator, "ab  "));
+        assertFalse(write(comparator, "c"));
+        assertTrue(comparator.getDiff().startsWith("第1行输出过长"));
+    }
+
+    @Test
+    void divergenceInALaterChunkReportsLineAndContext() {
+        OutputComparator comparator = comparator("first\nabcd");
+        assertTrue(write(comparator, "first\nab"));
+        assertFalse(write(comparator, "ce"));
+        assertEquals("第2行不一致：期望“abcd”，实际“abce”", comparator.getDiff());
+    }
+
+    @Test
+    void writesAfterDivergenceAreIgnored() {
+        OutputComparator comparator = comparator("abc");
+        assertFalse(write(comparator, "x"));
+        String diff = comparator.getDiff();
+        assertFalse(write(comparator, "abc"));
+        assertFalse(comparator.finish());
+        assertEquals(diff, comparator.getDiff());
+    }
+
+    @Test
+    void resultDoesNotDependOnHowOutputIsSplit() {
+        String expected = "3\n1 2 3  \n\n4 5\n";
+        String[] outputs = {"3\n1 2 3\n\n4 5", "3\r\n1 2 3\r\n\r\n4 5\r\n", "3\n1 2 3\n4 5", "3\n1 2 3\n\n4 5 6"};
+        for (String output : outputs) {
+            boolean whole = compare(expected, output.getBytes(StandardCharsets.UTF_8).length, output);
+            for (int chunk = 1; chunk <= 3; chunk++) {
+                assertEquals(whole, compare(expected, chunk, output), output);
+            }
+        }
+    }
+
+    @Test
+    void multiByteCharactersSplitAcrossWritesAreCompared() {
+        byte[] output = "答案：42\n".getBytes(StandardCharsets.UTF_8);
+        OutputComparator comparator = comparator("答案：42");
+        for (byte b : output) {
+            assertTrue(comparator.write(new byte[]{b}, 0, 1));
+        }
+        assertTrue(comparator.finish());
+    }
+
+    static void assertMatches(String expected, String actual) {
+        assertTrue(compare(expected, Integer.MAX_VALUE, actual), actual);
+    }
+
+    static void assertDiffers(String expected, String actual) {
+        assertFalse(compare(expected, Integer.MAX_VALUE, actual), actual);
+    }
+
+    /**
+     * 按固定大小分段写入实际输出后完成比较
+     */
+    private static boolean compare(String expected, int chunkSize, String actual) {
+        OutputComparator comparator = comparator(expected);
+        byte[] data = actual.getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            comparator.write(data, offset, Math.min(chunkSize, data.length - offset));
+        }
+        return comparator.finish();
+    }
+
+    private static OutputComparator comparator(String expected) {
+        return OutputComparator.create(ExpectedOutput.ofContent(expected), CompareModeEnum.EXACT, null);
+    }
+
+    private static boolean write(OutputComparator comparator, String output) {
+        byte[] data = output.getBytes(StandardCharsets.UTF_8);
+        return comparator.write(data, 0, data.length);
+    }
+}
@@ -0,0 +1,112 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import com.hkex.hyperojcodesandbox.model.enums.CompareModeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 客户端按以下约定计算期望输出的哈希：
+ * 精确模式为去掉各行行尾空白（空格、制表符、\r）与末尾空行、且不带末尾换行的UTF-8字节的SHA-256；
+ * 记号模式为各记号以单个空格连接的SHA-256
+ */
+class HashComparatorTest {
+
+    @Test
+    void exactModeHashesTheNormalizedOutput() throws Exception {
+        String hash = sha256("1 2\n3");
+        assertTrue(compare(hash, CompareModeEnum.EXACT, "1 2 \t\r\n3\r\n\n\n"));
+        assertTrue(compare(hash, CompareModeEnum.EXACT, "1 2\n3"));
+        assertFalse(compare(hash, CompareModeEnum.EXACT, "1 2\n3\n4"));
+        assertFalse(compare(hash, CompareModeEnum.EXACT, "1  2\n3"));
+    }
+
+    @Test
+    void exactModeKeepsLeadingAndInnerBlankLines() throws Exception {
+        assertTrue(compare(sha256("\na\n\nb"), CompareModeEnum.EXACT, "\na\n\nb\n"));
+        assertFalse(compare(sha256("a\nb"), CompareModeEnum.EXACT, "a\n\nb"));
+    }
+
+    @Test
+    void tokenModeHashesTokensJoinedBySingleSpaces() throws Exception {
+        String hash = sha256("1 2 3");
+        assertTrue(compare(hash, CompareModeEnum.TOKEN, "\n 1\t2\r\n\n3 \n"));
+        assertFalse(compare(hash, CompareModeEnum.TOKEN, "1 23"));
+        assertTrue(compare(sha256(""), CompareModeEnum.TOKEN, " \n "));
+    }
+
+    @Test
+    void hashMatchesExactComparatorOnTheSameOutputs() throws Exception {
+        String expected = "答案\n1 2";
+        String hash = sha256(expected);
+        String[] outputs = {"答案 \n1 2\n", "答案\r\n1 2\r\n\r\n", "答案\n1 2 3", "答案\n\n1 2"};
+        for (String output : outputs) {
+            OutputComparator exact = OutputComparator.create(ExpectedOutput.ofContent(expected), CompareModeEnum.EXACT, null);
+            write(exact, output);
+            assertEquals(exact.finish(), compare(hash, CompareModeEnum.EXACT, output), output);
+        }
+    }
+
+    @Test
+    void uppercaseHashIsAccepted() throws Exception {
+        assertTrue(compare(sha256("ok").toUpperCase(), CompareModeEnum.EXACT, "ok\n"));
+    }
+
+    @Test
+    void resultIsOnlyKnownAfterFinish() throws Exception {
+        String hash = sha256("1");
+        OutputComparator comparator = comparator(hash, CompareModeEnum.EXACT);
+        assertTrue(write(comparator, "2"));
+        assertFalse(comparator.isDiverged());
+        assertFalse(comparator.finish());
+        assertTrue(comparator.getDiff().startsWith("输出哈希不一致：期望" + hash));
+    }
+
+    @Test
+    void splitWritesProduceTheSameHash() throws Exception {
+        String hash = sha256("多字节 输出\n1 2");
+        for (CompareModeEnum mode : new CompareModeEnum[]{CompareModeEnum.EXACT, CompareModeEnum.TOKEN}) {
+            String expectedHash = mode == CompareModeEnum.TOKEN ? sha256("多字节 输出 1 2") : hash;
+            OutputComparator comparator = comparator(expectedHash, mode);
+            for (byte b : "多字节 输出 \n1 2\n\n".getBytes(StandardCharsets.UTF_8)) {
+                comparator.write(new byte[]{b}, 0, 1);
+            }
+            assertTrue(comparator.finish(), mode.name());
+        }
+    }
+
+    @Test
+    void floatModeIsRejected() throws Exception {
+        assertThrows(RuntimeException.class,
+                () -> OutputComparator.create(ExpectedOutput.ofHash(sha256("1.0")), CompareModeEnum.FLOAT, null));
+    }
+
+    private static boolean compare(String hash, CompareModeEnum mode, String output) {
+        OutputComparator comparator = comparator(hash, mode);
+        write(comparator, output);
+        return comparator.finish();
+    }
+
+    private static OutputComparator comparator(String hash, CompareModeEnum mode) {
+        return OutputComparator.create(ExpectedOutput.ofHash(hash), mode, null);
+    }
+
+    private static boolean write(OutputComparator comparator, String output) {
+        byte[] data = output.getBytes(StandardCharsets.UTF_8);
+        return comparator.write(data, 0, data.length);
+    }
+
+    private static String sha256(String text) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8))) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        return hex.toString();
+    }
+}
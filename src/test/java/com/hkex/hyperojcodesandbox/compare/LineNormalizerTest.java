@@ -0,0 +1,58 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineNormalizerTest {
+
+    @Test
+    void trailingWhitespaceOnEachLineIsDropped() {
+        assertEquals("1 2\n3", normalize("1 2 \t\n3\r\n"));
+    }
+
+    @Test
+    void trailingBlankLinesAreDropped() {
+        assertEquals("a", normalize("a\n\n \n\t\n"));
+    }
+
+    @Test
+    void leadingAndInnerBlankLinesAreKept() {
+        assertEquals("\n\na\n\nb", normalize("\n\na\n \nb"));
+    }
+
+    @Test
+    void innerWhitespaceIsKept() {
+        assertEquals("a \t b", normalize("a \t b"));
+    }
+
+    @Test
+    void whitespaceOnlyOutputIsEmpty() {
+        assertEquals("", normalize(" \n\r\n\t"));
+    }
+
+    @Test
+    void pendingWhitespaceLongerThanTheInitialQueueIsKept() {
+        StringBuilder spaces = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            spaces.append(' ');
+        }
+        assertEquals("a" + spaces + "b", normalize("a" + spaces + "b" + spaces + "\n"));
+    }
+
+    private static String normalize(String text) {
+        LineNormalizer normalizer = new LineNormalizer();
+        ByteQueue out = new ByteQueue();
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            normalizer.push(b, out);
+            while (!out.isEmpty()) {
+                result.write(out.poll());
+            }
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
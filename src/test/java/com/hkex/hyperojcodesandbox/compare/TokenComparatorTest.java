@@ -0,0 +1,154 @@
+package com.hkex.hyperojcodesandbox.compare;
+
+import com.hkex.hyperojcodesandbox.model.enums.CompareModeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenComparatorTest {
+
+    @Test
+    void whitespaceBetweenTokensIsIgnored() {
+        assertTrue(compare(CompareModeEnum.TOKEN, null, "1 2\n3", "\n1\t\t2 \r\n\n 3 \n"));
+        assertTrue(compare(CompareModeEnum.TOKEN, null, "", " \n\f\u000B"));
+    }
+
+    @Test
+    void tokensAreComparedExactly() {
+        assertFalse(compare(CompareModeEnum.TOKEN, null, "1 2", "1 02"));
+        assertFalse(compare(CompareModeEnum.TOKEN, null, "1 2", "12"));
+        assertFalse(compare(CompareModeEnum.TOKEN, null, "1.0", "1"));
+    }
+
+    @Test
+    void expectedOutputEndingMidTokenIsAMismatch() {
+        OutputComparator comparator = comparator(CompareModeEnum.TOKEN, null, "1 12");
+        assertFalse(write(comparator, "1 123"));
+        assertEquals("第2个记号不一致：期望“12”，实际“123”", comparator.getDiff());
+    }
+
+    @Test
+    void outputEndingMidTokenIsAMismatch() {
+        OutputComparator comparator = comparator(CompareModeEnum.TOKEN, null, "1 123");
+        assertTrue(write(comparator, "1 12"));
+        assertFalse(comparator.finish());
+        assertEquals("第2个记号不一致：期望“123”，实际“12”", comparator.getDiff());
+    }
+
+    @Test
+    void extraTokenFailsWhileWriting() {
+        OutputComparator comparator = comparator(CompareModeEnum.TOKEN, null, "1 2");
+        assertTrue(write(comparator, "1 2\n"));
+        assertFalse(write(comparator, "3 4"));
+        assertEquals("输出过长，多出第3个记号“3”", comparator.getDiff());
+    }
+
+    @Test
+    void missingTokenFailsOnFinish() {
+        OutputComparator comparator = comparator(CompareModeEnum.TOKEN, null, "1 2 3");
+        assertTrue(write(comparator, "1 2"));
+        assertFalse(comparator.finish());
+        assertEquals("输出过短，缺少第3个记号“3”", comparator.getDiff());
+    }
+
+    @Test
+    void tokenSplitAcrossWritesIsComparedAsOne() {
+        OutputComparator comparator = comparator(CompareModeEnum.TOKEN, null, "123 456");
+        assertTrue(write(comparator, "12"));
+        assertTrue(write(comparator, "3 4"));
+        assertTrue(write(comparator, "56"));
+        assertTrue(comparator.finish());
+    }
+
+    @Test
+    void divergenceInALaterChunkIsDetectedAtTheFirstDifferentByte() {
+        OutputComparator comparator = comparator(CompareModeEnum.TOKEN, null, "12345 6");
+        assertTrue(write(comparator, "123"));
+        assertFalse(write(comparator, "55 6"));
+        assertEquals("第1个记号不一致：期望“12345”，实际“12355”", comparator.getDiff());
+    }
+
+    @Test
+    void floatsWithinAbsoluteToleranceMatch() {
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "0.1234567", "0.1234570"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, "0.123", "0.124"));
+    }
+
+    @Test
+    void largeFloatsUseRelativeTolerance() {
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "1000000", "1000000.5"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, "1000000", "1000001.5"));
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "-1000000", "-1000000.5"));
+    }
+
+    @Test
+    void toleranceBoundaryIsInclusive() {
+        assertTrue(compare(CompareModeEnum.FLOAT, 0.5, "1", "1.5"));
+        assertTrue(compare(CompareModeEnum.FLOAT, 0.5, "1", "0.5"));
+        assertFalse(compare(CompareModeEnum.FLOAT, 0.5, "1", "1.5001"));
+    }
+
+    @Test
+    void equivalentDecimalSpellingsMatch() {
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "100000", "1e5"));
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "0.5", ".5"));
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "1", "1."));
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "0", "-0.0"));
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "2.50", "+2.5E0"));
+    }
+
+    @Test
+    void nonDecimalTokensMustMatchExactlyInFloatMode() {
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "YES 1.0", "YES 1"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, "YES", "yes"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, "NaN", "0"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, "1.5", "1.5e"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, "0x10", "16"));
+    }
+
+    @Test
+    void expectedFloatEndingMidTokenComparesByValue() {
+        assertTrue(compare(CompareModeEnum.FLOAT, null, "1.5", "1.50000"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, "1.5", "1.51"));
+    }
+
+    @Test
+    void floatSplitAcrossWritesIsComparedByValue() {
+        OutputComparator comparator = comparator(CompareModeEnum.FLOAT, 1e-4, "3.14159 2");
+        assertTrue(write(comparator, "3.14"));
+        assertTrue(write(comparator, "16"));
+        assertTrue(write(comparator, "0 2"));
+        assertTrue(comparator.finish());
+    }
+
+    @Test
+    void overlongTokensAreComparedExactlyInFloatMode() {
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            digits.append(i % 10);
+        }
+        assertTrue(compare(CompareModeEnum.FLOAT, null, digits.toString(), digits.toString()));
+        OutputComparator comparator = comparator(CompareModeEnum.FLOAT, null, digits.toString());
+        assertFalse(write(comparator, digits + "0"));
+        assertFalse(compare(CompareModeEnum.FLOAT, null, digits.toString(), digits.substring(1)));
+    }
+
+    private static boolean compare(CompareModeEnum mode, Double tolerance, String expected, String actual) {
+        OutputComparator comparator = comparator(mode, tolerance, expected);
+        write(comparator, actual);
+        return comparator.finish();
+    }
+
+    private static OutputComparator comparator(CompareModeEnum mode, Double tolerance, String expected) {
+        return OutputComparator.create(ExpectedOutput.ofContent(expected), mode, tolerance);
+    }
+
+    private static boolean write(OutputComparator comparator, String output) {
+        byte[] data = output.getBytes(StandardCharsets.UTF_8);
+        return comparator.write(data, 0, data.length);
+    }
+}
@@ -0,0 +1,187 @@
+package com.hkex.hyperojcodesandbox.compiler;
+
+import com.hkex.hyperojcodesandbox.config.CompileCacheProperties;
+import com.hkex.hyperojcodesandbox.model.CompileDiagnostic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompileCacheTest {
+
+    /**
+     * 类名为"A"、字节码长1000的条目的估算大小
+     */
+    private static final long ENTRY_SIZE = 256 + 2 + 1000;
+
+    @TempDir
+    Path diskDir;
+
+    @Test
+    void keyDependsOnCodeAndFlags() {
+        CompileCache cache = cache(properties(), null);
+        assertEquals(cache.key("code", "javac -g"), cache.key("code", "javac -g"));
+        assertNotEquals(cache.key("code", "javac -g"), cache.key("code", "javac"));
+        assertNotEquals(cache.key("code", "javac"), cache.key("code2", "javac"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenOverTheByteLimit() {
+        CompileCacheProperties properties = properties();
+        properties.setMemoryLimit(ENTRY_SIZE * 2 + ENTRY_SIZE / 2);
+        CompileCache cache = cache(properties, null);
+        cache.put("a", success(1000));
+        cache.put("b", success(1000));
+        assertNotNull(cache.get("a"));
+        cache.put("c", success(1000));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        CompileCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getMemoryEntries());
+        assertEquals(ENTRY_SIZE * 2, stats.getMemoryBytes());
+        assertEquals(3, stats.getMemoryHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    void replacingAnEntryDoesNotCountItsSizeTwice() {
+        CompileCacheProperties properties = properties();
+        properties.setMemoryLimit(ENTRY_SIZE * 2);
+        CompileCache cache = cache(properties, null);
+        cache.put("a", success(1000));
+        cache.put("a", success(1000));
+        cache.put("b", success(1000));
+        CompileCacheStats stats = cache.getStats();
+        assertEquals(0, stats.getEvictions());
+        assertEquals(ENTRY_SIZE * 2, stats.getMemoryBytes());
+    }
+
+    @Test
+    void entryLargerThanTheLimitIsNotKeptInMemory() {
+        CompileCacheProperties properties = properties();
+        properties.setMemoryLimit(ENTRY_SIZE * 2);
+        CompileCache cache = cache(properties, null);
+        cache.put("a", success(1000));
+        cache.put("huge", success(10000));
+        assertNull(cache.get("huge"));
+        assertNotNull(cache.get("a"));
+        assertEquals(0, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        CompileCacheProperties properties = properties();
+        properties.setEnabled(false);
+        CompileCache cache = cache(properties, diskDir.toFile());
+        cache.put("a", success(10));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getStats().getMisses());
+        assertEquals(0, diskDir.toFile().list().length);
+    }
+
+    @Test
+    void diskEntrySurvivesARestart() {
+        CompileResult result = success(100);
+        result.getClasses().put("Main$Inner", new byte[]{1, 2, 3});
+        result.setDiagnostics(Collections.singletonList(CompileDiagnostic.builder()
+                .kind("WARNING").line(3L).column(7L).message("未检查的转换").build()));
+        cache(properties(), diskDir.toFile()).put("k", result);
+
+        CompileCache restarted = cache(properties(), diskDir.toFile());
+        CompileResult cached = restarted.get("k");
+        assertNotNull(cached);
+        assertTrue(cached.isSuccess());
+        assertNull(cached.getMessage());
+        assertEquals(result.getClasses().keySet(), cached.getClasses().keySet());
+        for (Map.Entry<String, byte[]> entry : result.getClasses().entrySet()) {
+            assertArrayEquals(entry.getValue(), cached.getClasses().get(entry.getKey()));
+        }
+        assertEquals(result.getDiagnostics(), cached.getDiagnostics());
+
+        assertNotNull(restarted.get("k"));
+        CompileCacheStats stats = restarted.getStats();
+        assertEquals(1, stats.getDiskHits());
+        assertEquals(1, stats.getMemoryHits());
+    }
+
+    @Test
+    void compileErrorIsCachedOnDisk() {
+        CompileResult result = new CompileResult();
+        result.setSuccess(false);
+        result.setClasses(Collections.emptyMap());
+        result.setMessage("Main.java:1: 错误: 需要';'");
+        cache(properties(), diskDir.toFile()).put("k", result);
+
+        CompileResult cached = cache(properties(), diskDir.toFile()).get("k");
+        assertNotNull(cached);
+        assertFalse(cached.isSuccess());
+        assertEquals(result.getMessage(), cached.getMessage());
+        assertTrue(cached.getClasses().isEmpty());
+        assertNull(cached.getDiagnostics());
+    }
+
+    @Test
+    void corruptDiskEntryIsDeletedAndMissed() throws Exception {
+        File file = diskDir.resolve("k.bin").toFile();
+        Files.write(file.toPath(), "garbage".getBytes(StandardCharsets.UTF_8));
+        CompileCache cache = cache(properties(), diskDir.toFile());
+        assertNull(cache.get("k"));
+        assertFalse(file.exists());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    void diskEntriesAreCappedAndNoTemporaryFilesRemain() {
+        CompileCacheProperties properties = properties();
+        properties.setDiskMaxEntries(5);
+        CompileCache cache = cache(properties, diskDir.toFile());
+        for (int i = 0; i < 100; i++) {
+            cache.put("k" + i, success(10));
+        }
+        String[] files = diskDir.toFile().list();
+        assertEquals(5, files.length);
+        for (String name : files) {
+            assertTrue(name.endsWith(".bin"), name);
+        }
+    }
+
+    private static CompileCacheProperties properties() {
+        CompileCacheProperties properties = new CompileCacheProperties();
+        properties.setDiskEnabled(true);
+        return properties;
+    }
+
+    private static CompileCache cache(CompileCacheProperties properties, File diskDir) {
+        CompileCache cache = new CompileCache();
+        ReflectionTestUtils.setField(cache, "compileCacheProperties", properties);
+        ReflectionTestUtils.setField(cache, "diskDir", diskDir);
+        return cache;
+    }
+
+    private static CompileResult success(int classBytes) {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        classes.put("A", new byte[classBytes]);
+        CompileResult result = new CompileResult();
+        result.setSuccess(true);
+        result.setClasses(classes);
+        return result;
+    }
+}
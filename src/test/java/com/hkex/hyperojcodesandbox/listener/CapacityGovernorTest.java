@@ -0,0 +1,107 @@
+package com.hkex.hyperojcodesandbox.listener;
+
+import com.hkex.hyperojcodesandbox.config.MQConsumerProperties;
+import com.hkex.hyperojcodesandbox.model.enums.SubmissionLaneEnum;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static com.hkex.hyperojcodesandbox.model.enums.SubmissionLaneEnum.CONTEST;
+import static com.hkex.hyperojcodesandbox.model.enums.SubmissionLaneEnum.PRACTICE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CapacityGovernorTest {
+
+    private final MQConsumerProperties properties = new MQConsumerProperties();
+
+    /**
+     * 默认配置：比赛通道权重3、预留1，练习通道权重1、不预留
+     */
+    private final CapacityGovernor governor = new CapacityGovernor();
+
+    CapacityGovernorTest() {
+        ReflectionTestUtils.setField(governor, "mqConsumerProperties", properties);
+    }
+
+    @Test
+    void reservationIsFilledFirst() {
+        assertGrants(1, 0, allocate(1, 0, 0, 5, 5));
+    }
+
+    @Test
+    void remainderIsSplitByWeightAfterTheReservation() {
+        assertGrants(4, 1, allocate(5, 0, 0, 5, 5));
+    }
+
+    @Test
+    void runningSubmissionsCountAgainstTheReservation() {
+        assertGrants(3, 1, allocate(4, 1, 0, 5, 5));
+        assertGrants(3, 1, allocate(4, 3, 0, 5, 5));
+    }
+
+    @Test
+    void weightedSplitPrefersTheEarlierLaneOnTies() {
+        properties.getContest().setReserved(0);
+        properties.getContest().setWeight(1);
+        assertGrants(1, 0, allocate(1, 0, 0, 5, 5));
+        assertGrants(2, 1, allocate(3, 0, 0, 5, 5));
+    }
+
+    @Test
+    void onlyBackloggedLanesShareTheRemainder() {
+        assertGrants(0, 3, allocate(3, 1, 0, 0, 5));
+        assertGrants(1, 2, allocate(3, 0, 0, 0, 5));
+    }
+
+    @Test
+    void unknownQueueDepthCountsAsBacklog() {
+        assertGrants(3, 0, allocate(3, 1, 0, -1, 0));
+    }
+
+    @Test
+    void withoutBacklogAllWeightedLanesShare() {
+        assertGrants(3, 1, allocate(4, 1, 0, 0, 0));
+    }
+
+    @Test
+    void zeroWeightLaneOnlyGetsItsReservation() {
+        properties.getPractice().setWeight(0);
+        properties.getPractice().setReserved(2);
+        assertGrants(3, 2, allocate(5, 0, 0, 5, 5));
+        assertGrants(4, 1, allocate(5, 0, 1, 5, 5));
+    }
+
+    @Test
+    void reservationsBeyondTheFreeCapacityFollowLaneOrder() {
+        properties.getContest().setReserved(3);
+        properties.getPractice().setReserved(2);
+        assertGrants(3, 1, allocate(4, 0, 0, 5, 5));
+        assertGrants(0, 0, allocate(0, 0, 0, 5, 5));
+    }
+
+    @Test
+    void grantsAddUpToTheFreeCapacity() {
+        for (int free = 0; free <= 20; free++) {
+            Map<SubmissionLaneEnum, Integer> grants = allocate(free, free % 3, free % 2, free % 4 - 1, free % 5);
+            assertEquals(free, grants.get(CONTEST) + grants.get(PRACTICE), "free=" + free);
+        }
+    }
+
+    private Map<SubmissionLaneEnum, Integer> allocate(int free, int contestRunning, int practiceRunning,
+                                                      long contestDepth, long practiceDepth) {
+        Map<SubmissionLaneEnum, Integer> running = new EnumMap<>(SubmissionLaneEnum.class);
+        running.put(CONTEST, contestRunning);
+        running.put(PRACTICE, practiceRunning);
+        Map<SubmissionLaneEnum, Long> queueDepths = new EnumMap<>(SubmissionLaneEnum.class);
+        queueDepths.put(CONTEST, contestDepth);
+        queueDepths.put(PRACTICE, practiceDepth);
+        return governor.allocate(free, running, queueDepths);
+    }
+
+    private static void assertGrants(int contest, int practice, Map<SubmissionLaneEnum, Integer> grants) {
+        assertEquals(contest, grants.get(CONTEST), "contest");
+        assertEquals(practice, grants.get(PRACTICE), "practice");
+    }
+}
@@ -0,0 +1,105 @@
+package com.hkex.hyperojcodesandbox.monitor;
+
+import com.hkex.hyperojcodesandbox.config.NativeMonitorProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ProcessMonitorTest {
+
+    /**
+     * 约0.1秒以上CPU时间的忙循环
+     */
+    private static final List<String> BUSY_LOOP = Arrays.asList("sh", "-c",
+            "i=0; while [ $i -lt 100000 ]; do i=$((i+1)); done");
+
+    @TempDir
+    File tempDir;
+
+    private ProcessMonitor processMonitor;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(new File("/proc/self/stat").isFile(), "需要/proc");
+        processMonitor = new ProcessMonitor();
+        NativeMonitorProperties properties = new NativeMonitorProperties();
+        // 采样间隔远大于进程运行时间，进程结束前不会被采样
+        properties.setSampleInterval(60_000L);
+        ReflectionTestUtils.setField(processMonitor, "nativeMonitorProperties", properties);
+        processMonitor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (processMonitor != null) {
+            processMonitor.destroy();
+        }
+    }
+
+    @Test
+    void processFinishingBeforeTheFirstSampleGetsItsFinalCpuTime() throws Exception {
+        File statFile = new File(tempDir, "proc.stat");
+        Process process = new ProcessBuilder(processMonitor.wrapCommand(BUSY_LOOP, statFile)).start();
+        ProcessMeasurement measurement = processMonitor.watch(process, statFile, null, null);
+        assertNotNull(measurement);
+        assertEquals(0, process.waitFor());
+        measurement.close();
+        assertNotNull(measurement.getCpuTime());
+        assertTrue(measurement.getCpuTime() >= 50, "CPU时间" + measurement.getCpuTime());
+        assertFalse(statFile.exists());
+    }
+
+    @Test
+    void exitValueOfTheCommandIsKept() throws Exception {
+        File statFile = new File(tempDir, "proc.stat");
+        Process process = new ProcessBuilder(processMonitor.wrapCommand(Arrays.asList("sh", "-c", "exit 3"),
+                statFile)).start();
+        assertEquals(3, process.waitFor());
+    }
+
+    @Test
+    void killingTheWrapperKillsTheCommand() throws Exception {
+        File statFile = new File(tempDir, "proc.stat");
+        Process process = new ProcessBuilder(processMonitor.wrapCommand(Arrays.asList("sleep", "30"), statFile))
+                .start();
+        long wrapperPid = ProcStat.getPid(process);
+        long childPid = -1;
+        for (int i = 0; i < 100 && childPid <= 0; i++) {
+            Thread.sleep(10);
+            childPid = ProcStat.readChildPid(wrapperPid);
+        }
+        assertTrue(childPid > 0);
+        process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 100 && isRunning(childPid); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(isRunning(childPid));
+    }
+
+    /**
+     * 进程是否存在且不是僵尸进程（孤儿进程由1号进程回收，容器中的1号进程不一定回收）
+     */
+    private static boolean isRunning(long pid) throws Exception {
+        File stat = new File("/proc/" + pid + "/stat");
+        if (!stat.exists()) {
+            return false;
+        }
+        String content = new String(Files.readAllBytes(stat.toPath()), StandardCharsets.US_ASCII);
+        return content.charAt(content.lastIndexOf(')') + 2) != 'Z';
+    }
+}
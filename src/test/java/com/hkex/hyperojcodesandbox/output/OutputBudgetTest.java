@@ -0,0 +1,56 @@
+package com.hkex.hyperojcodesandbox.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutputBudgetTest {
+
+    @Test
+    void grantsUpToTheRemainingBytes() {
+        OutputBudget budget = new OutputBudget(10);
+        assertEquals(6, budget.acquire(6));
+        assertEquals(4, budget.acquire(6));
+        assertEquals(0, budget.acquire(1));
+        assertEquals(0, budget.getRemaining());
+    }
+
+    @Test
+    void zeroBudgetGrantsNothing() {
+        OutputBudget budget = new OutputBudget(0);
+        assertEquals(0, budget.acquire(1));
+        assertEquals(0, budget.getRemaining());
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedTheLimit() throws Exception {
+        OutputBudget budget = new OutputBudget(100000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    long total = 0;
+                    for (int j = 0; j < 10000; j++) {
+                        total += budget.acquire(3);
+                    }
+                    return total;
+                }));
+            }
+            long granted = 0;
+            for (Future<Long> future : futures) {
+                granted += future.get();
+            }
+            assertEquals(100000, granted);
+            assertEquals(0, budget.getRemaining());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.hkex.hyperojcodesandbox.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputCaptureTest {
+
+    @Test
+    void multiByteCharactersSplitAcrossFramesAreDecoded() {
+        String text = "答案：42 😀";
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        OutputCapture capture = new OutputCapture(new OutputBudget(1024), StandardCharsets.UTF_8);
+        for (byte b : data) {
+            assertTrue(capture.write(new byte[]{b}, 0, 1));
+        }
+        assertEquals(text, capture.finish());
+    }
+
+    @Test
+    void outputLargerThanTheDecodeBufferIsKept() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < BufferPool.BUFFER_SIZE; i++) {
+            text.append('中');
+        }
+        byte[] data = text.toString().getBytes(StandardCharsets.UTF_8);
+        OutputCapture capture = new OutputCapture(new OutputBudget(data.length), StandardCharsets.UTF_8);
+        int half = data.length / 2 + 1;
+        assertTrue(capture.write(data, 0, half));
+        assertTrue(capture.write(data, half, data.length - half));
+        assertFalse(capture.isOverflow());
+        assertEquals(text.toString(), capture.finish());
+    }
+
+    @Test
+    void budgetExhaustedMidChunkKeepsTheGrantedPrefix() {
+        OutputCapture capture = new OutputCapture(new OutputBudget(5), StandardCharsets.UTF_8);
+        assertTrue(capture.write(bytes("abc"), 0, 3));
+        assertFalse(capture.write(bytes("defgh"), 0, 5));
+        assertTrue(capture.isOverflow());
+        assertFalse(capture.write(bytes("x"), 0, 1));
+        assertEquals("abcde", capture.finish());
+    }
+
+    @Test
+    void budgetExhaustedInsideAMultiByteCharacterReplacesTheTruncatedCharacter() {
+        OutputCapture capture = new OutputCapture(new OutputBudget(4), StandardCharsets.UTF_8);
+        assertFalse(capture.write(bytes("ab中"), 0, 5));
+        assertEquals("ab\uFFFD", capture.finish());
+    }
+
+    @Test
+    void stdoutAndStderrShareTheBudget() {
+        OutputBudget budget = new OutputBudget(6);
+        OutputCapture stdout = new OutputCapture(budget, StandardCharsets.UTF_8);
+        OutputCapture stderr = new OutputCapture(budget, StandardCharsets.UTF_8);
+        assertTrue(stdout.write(bytes("1234"), 0, 4));
+        assertFalse(stderr.write(bytes("err"), 0, 3));
+        assertFalse(stdout.write(bytes("5"), 0, 1));
+        assertTrue(stderr.isOverflow());
+        assertTrue(stdout.isOverflow());
+        assertEquals("1234", stdout.finish());
+        assertEquals("er", stderr.finish());
+        assertEquals(0, budget.getRemaining());
+    }
+
+    @Test
+    void writeHonoursOffsetAndLength() {
+        OutputCapture capture = new OutputCapture(new OutputBudget(1024), StandardCharsets.UTF_8);
+        byte[] data = bytes("xxhelloxx");
+        assertTrue(capture.write(data, 2, 5));
+        assertEquals("hello", capture.finish());
+    }
+
+    @Test
+    void finishIsIdempotentAndIgnoresLaterWrites() {
+        OutputBudget budget = new OutputBudget(1024);
+        OutputCapture capture = new OutputCapture(budget, StandardCharsets.UTF_8);
+        capture.write(bytes("ok"), 0, 2);
+        assertEquals("ok", capture.finish());
+        assertTrue(capture.write(bytes("more"), 0, 4));
+        assertEquals("ok", capture.finish());
+        assertEquals(1022, budget.getRemaining());
+    }
+
+    @Test
+    void malformedInputIsReplaced() {
+        OutputCapture capture = new OutputCapture(new OutputBudget(1024), StandardCharsets.UTF_8);
+        byte[] data = Arrays.copyOf(bytes("a"), 3);
+        data[1] = (byte) 0xff;
+        data[2] = 'b';
+        capture.write(data, 0, data.length);
+        assertEquals("a\uFFFDb", capture.finish());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,282 @@
+package com.hkex.hyperojcodesandbox.utils;
+
+import com.hkex.hyperojcodesandbox.config.MQPublisherProperties;
+import com.hkex.hyperojcodesandbox.model.CaseResultEvent;
+import com.hkex.hyperojcodesandbox.model.ExecuteCodeResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MQUtilsTest {
+
+    private MQUtils mqUtils;
+
+    @AfterEach
+    void tearDown() {
+        if (mqUtils != null) {
+            mqUtils.stop();
+        }
+    }
+
+    @Test
+    void messagesBufferedWhilePublishingAreSentInBatches() throws Exception {
+        StubRabbit rabbit = new StubRabbit(true);
+        rabbit.blockFirstInvoke();
+        mqUtils = start(rabbit, properties(3, 3));
+        mqUtils.sendExecuteResult(response("sub-0"));
+        assertTrue(rabbit.firstInvokeStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            mqUtils.sendExecuteResult(response("sub-" + i));
+        }
+        MQPublisherStats stats = mqUtils.getStats();
+        assertEquals(5, stats.getBufferDepth());
+        assertEquals(5, stats.getMaxBufferDepth());
+        rabbit.releaseFirstInvoke.countDown();
+        mqUtils.stop();
+
+        assertEquals(Arrays.asList(1, 3, 2), rabbit.batchSizes());
+        assertEquals(3, rabbit.confirmWaits.get());
+        stats = mqUtils.getStats();
+        assertEquals(0, stats.getBufferDepth());
+        assertEquals(6, stats.getConfirmed());
+        assertEquals(3, stats.getBatches());
+        assertEquals(0, stats.getRetries());
+        assertEquals(0, stats.getDropped());
+    }
+
+    @Test
+    void unconfirmedBatchIsResentAsAWhole() throws Exception {
+        StubRabbit rabbit = new StubRabbit(true);
+        rabbit.scriptConfirms(true, false, false, true);
+        rabbit.blockFirstInvoke();
+        mqUtils = start(rabbit, properties(10, 5));
+        mqUtils.sendExecuteResult(response("sub-0"));
+        assertTrue(rabbit.firstInvokeStarted.await(5, TimeUnit.SECONDS));
+        mqUtils.sendCaseEvent(caseEvent("sub-1", 1));
+        mqUtils.sendCaseEvent(caseEvent("sub-1", 2));
+        rabbit.releaseFirstInvoke.countDown();
+        mqUtils.stop();
+
+        // 第一批1条直接确认，第二批2条两次未确认后整批重发
+        assertEquals(Arrays.asList(1, 2, 2, 2), rabbit.batchSizes());
+        assertEquals(Arrays.asList("code.execute.completed", "code.execute.case", "code.execute.case",
+                "code.execute.case", "code.execute.case", "code.execute.case", "code.execute.case"),
+                rabbit.routingKeys());
+        MQPublisherStats stats = mqUtils.getStats();
+        assertEquals(3, stats.getConfirmed());
+        assertEquals(2, stats.getBatches());
+        assertEquals(2, stats.getRetries());
+        assertEquals(0, stats.getDropped());
+    }
+
+    @Test
+    void batchIsDroppedAfterMaxAttempts() {
+        StubRabbit rabbit = new StubRabbit(true);
+        rabbit.failInvokes(Integer.MAX_VALUE);
+        mqUtils = start(rabbit, properties(10, 3));
+        mqUtils.sendExecuteResult(response("sub-0"));
+        mqUtils.stop();
+
+        assertEquals(3, rabbit.invokes.get());
+        MQPublisherStats stats = mqUtils.getStats();
+        assertEquals(0, stats.getConfirmed());
+        assertEquals(0, stats.getBatches());
+        assertEquals(2, stats.getRetries());
+        assertEquals(1, stats.getDropped());
+    }
+
+    @Test
+    void messagesAreDroppedWhenTheBufferIsFull() throws Exception {
+        StubRabbit rabbit = new StubRabbit(true);
+        rabbit.blockFirstInvoke();
+        MQPublisherProperties properties = properties(10, 1);
+        properties.setBufferSize(1);
+        properties.setOfferTimeout(1L);
+        mqUtils = start(rabbit, properties);
+        mqUtils.sendExecuteResult(response("sub-0"));
+        assertTrue(rabbit.firstInvokeStarted.await(5, TimeUnit.SECONDS));
+        mqUtils.sendExecuteResult(response("sub-1"));
+        mqUtils.sendExecuteResult(response("sub-2"));
+        MQPublisherStats stats = mqUtils.getStats();
+        assertEquals(1, stats.getBufferDepth());
+        assertEquals(1, stats.getBufferCapacity());
+        assertEquals(1, stats.getDropped());
+        rabbit.releaseFirstInvoke.countDown();
+        mqUtils.stop();
+
+        stats = mqUtils.getStats();
+        assertEquals(2, stats.getConfirmed());
+        assertEquals(1, stats.getDropped());
+    }
+
+    @Test
+    void confirmsAreNotAwaitedWhenDisabled() {
+        StubRabbit rabbit = new StubRabbit(false);
+        mqUtils = start(rabbit, properties(10, 3));
+        mqUtils.sendExecuteResult(response("sub-0"));
+        mqUtils.stop();
+
+        assertEquals(0, rabbit.confirmWaits.get());
+        assertEquals(1, mqUtils.getStats().getConfirmed());
+    }
+
+    @Test
+    void messagesAfterStopAreDropped() {
+        StubRabbit rabbit = new StubRabbit(true);
+        mqUtils = start(rabbit, properties(10, 3));
+        mqUtils.stop();
+        mqUtils.sendExecuteResult(response("sub-0"));
+
+        assertEquals(0, rabbit.invokes.get());
+        assertEquals(1, mqUtils.getStats().getDropped());
+    }
+
+    private static MQUtils start(StubRabbit rabbit, MQPublisherProperties properties) {
+        MQUtils mqUtils = new MQUtils(rabbit.operations, properties);
+        mqUtils.start();
+        return mqUtils;
+    }
+
+    private static MQPublisherProperties properties(int batchSize, int maxAttempts) {
+        MQPublisherProperties properties = new MQPublisherProperties();
+        properties.setBufferSize(100);
+        properties.setBatchSize(batchSize);
+        properties.setMaxAttempts(maxAttempts);
+        properties.setRetryInterval(1L);
+        properties.setConfirmTimeout(1000L);
+        return properties;
+    }
+
+    private static ExecuteCodeResponse response(String correlationId) {
+        ExecuteCodeResponse response = new ExecuteCodeResponse();
+        response.setCorrelationId(correlationId);
+        return response;
+    }
+
+    private static CaseResultEvent caseEvent(String correlationId, int sequence) {
+        CaseResultEvent event = new CaseResultEvent();
+        event.setCorrelationId(correlationId);
+        event.setSequence(sequence);
+        return event;
+    }
+
+    /**
+     * 记录每次invoke中发出的消息，可让invoke或等待确认失败
+     */
+    private static final class StubRabbit {
+
+        private final RabbitOperations operations;
+
+        private final List<List<String>> sent = Collections.synchronizedList(new ArrayList<>());
+
+        private final AtomicInteger invokes = new AtomicInteger(0);
+
+        private final AtomicInteger confirmWaits = new AtomicInteger(0);
+
+        private final AtomicInteger invokeFailures = new AtomicInteger(0);
+
+        private final Queue<Boolean> confirmOutcomes = new ConcurrentLinkedQueue<>();
+
+        private final CountDownLatch firstInvokeStarted = new CountDownLatch(1);
+
+        private final CountDownLatch releaseFirstInvoke = new CountDownLatch(1);
+
+        private volatile boolean blockFirst;
+
+        private StubRabbit(boolean confirmEnabled) {
+            ConnectionFactory connectionFactory = (ConnectionFactory) Proxy.newProxyInstance(
+                    getClass().getClassLoader(), new Class<?>[]{ConnectionFactory.class}, (proxy, method, args) -> {
+                        if ("isSimplePublisherConfirms".equals(method.getName())) {
+                            return confirmEnabled;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+            List<String> current = new ArrayList<>();
+            operations = (RabbitOperations) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RabbitOperations.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getConnectionFactory":
+                                return connectionFactory;
+                            case "invoke":
+                                return invoke((RabbitOperations) proxy, (RabbitOperations.OperationsCallback<?>) args[0],
+                                        current);
+                            case "convertAndSend":
+                                current.add((String) args[0]);
+                                return null;
+                            case "waitForConfirmsOrDie":
+                                confirmWaits.incrementAndGet();
+                                if (Boolean.FALSE.equals(confirmOutcomes.poll())) {
+                                    throw new AmqpException("未确认");
+                                }
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        private Object invoke(RabbitOperations proxy, RabbitOperations.OperationsCallback<?> callback,
+                              List<String> current) throws InterruptedException {
+            if (invokes.incrementAndGet() == 1 && blockFirst) {
+                firstInvokeStarted.countDown();
+                releaseFirstInvoke.await(5, TimeUnit.SECONDS);
+            }
+            current.clear();
+            try {
+                if (invokeFailures.getAndDecrement() > 0) {
+                    throw new AmqpException("连接失败");
+                }
+                return callback.doInRabbit(proxy);
+            } finally {
+                sent.add(new ArrayList<>(current));
+            }
+        }
+
+        private void blockFirstInvoke() {
+            blockFirst = true;
+        }
+
+        private void failInvokes(int count) {
+            invokeFailures.set(count);
+        }
+
+        /**
+         * 依次指定每次等待确认的结果，用完后都确认
+         */
+        private void scriptConfirms(Boolean... outcomes) {
+            confirmOutcomes.addAll(Arrays.asList(outcomes));
+        }
+
+        private List<Integer> batchSizes() {
+            List<Integer> sizes = new ArrayList<>();
+            for (List<String> batch : sent) {
+                sizes.add(batch.size());
+            }
+            return sizes;
+        }
+
+        private List<String> routingKeys() {
+            List<String> keys = new ArrayList<>();
+            for (List<String> batch : sent) {
+                keys.addAll(batch);
+            }
+            return keys;
+        }
+    }
+}